@@ -0,0 +1,90 @@
+package org.entur.netex;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.stream.XMLStreamReader;
+import org.entur.netex.loader.NetexXmlParser;
+import org.entur.netex.loader.SkippingXmlStreamReader;
+
+/**
+ * An {@link XmlStreamReaderFactory} that drops whole subtrees of the document before
+ * they are unmarshalled. Elements are matched on their local name, regardless of the
+ * namespace, for instance "keyList", "Extensions", "projections" or "LineString".
+ * <p>
+ * Frames can be selected with an include list: when it is not empty, the frames that are
+ * not listed are dropped. Composite frames are never dropped, the frames they contain
+ * are filtered instead.
+ * <pre>
+ * new NetexParser(
+ *   new FilteringXmlStreamReaderFactory()
+ *     .withIncludedFrames("ServiceFrame", "TimetableFrame")
+ *     .withExcludedElements("keyList", "projections")
+ * );
+ * </pre>
+ * Dropped elements are missing from the parsed entities, in the same way as if they were
+ * not present in the document.
+ */
+public class FilteringXmlStreamReaderFactory implements XmlStreamReaderFactory {
+
+  private static final String FRAME_SUFFIX = "Frame";
+
+  private static final String COMPOSITE_FRAME = "CompositeFrame";
+
+  private final Set<String> includedFrames = new HashSet<>();
+
+  private final Set<String> excludedElements = new HashSet<>();
+
+  /**
+   * Keep only the given frames, for instance "SiteFrame". May be called several times,
+   * the frames are added to the include list.
+   */
+  public FilteringXmlStreamReaderFactory withIncludedFrames(String... frames) {
+    includedFrames.addAll(Arrays.asList(frames));
+    return this;
+  }
+
+  /**
+   * Drop the elements with the given local names, including their children. May be
+   * called several times, the elements are added to the exclude list.
+   */
+  public FilteringXmlStreamReaderFactory withExcludedElements(
+    String... elements
+  ) {
+    excludedElements.addAll(Arrays.asList(elements));
+    return this;
+  }
+
+  @Override
+  public XMLStreamReader createXmlStreamReader(InputStream inputStream) {
+    return new FilteringXmlStreamReader(
+      NetexXmlParser.createXmlStreamReader(inputStream)
+    );
+  }
+
+  private boolean isExcluded(String localName) {
+    if (excludedElements.contains(localName)) {
+      return true;
+    }
+    return (
+      !includedFrames.isEmpty() &&
+      localName.endsWith(FRAME_SUFFIX) &&
+      !COMPOSITE_FRAME.equals(localName) &&
+      !includedFrames.contains(localName)
+    );
+  }
+
+  /** Skip the excluded elements as the document is read. */
+  private class FilteringXmlStreamReader extends SkippingXmlStreamReader {
+
+    FilteringXmlStreamReader(XMLStreamReader reader) {
+      super(reader);
+    }
+
+    @Override
+    protected boolean acceptElement() {
+      return !isExcluded(getLocalName());
+    }
+  }
+}
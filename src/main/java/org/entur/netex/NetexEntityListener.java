@@ -0,0 +1,154 @@
+package org.entur.netex;
+
+import java.time.LocalDateTime;
+import org.rutebanken.netex.model.Authority;
+import org.rutebanken.netex.model.Block;
+import org.rutebanken.netex.model.Branding;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DeadRun;
+import org.rutebanken.netex.model.DestinationDisplay;
+import org.rutebanken.netex.model.FareZone;
+import org.rutebanken.netex.model.FlexibleLine;
+import org.rutebanken.netex.model.FlexibleStopAssignment;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupOfStopPlaces;
+import org.rutebanken.netex.model.GroupOfTariffZones;
+import org.rutebanken.netex.model.JourneyPattern;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
+import org.rutebanken.netex.model.OperatingDay;
+import org.rutebanken.netex.model.OperatingPeriod;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.Parking;
+import org.rutebanken.netex.model.PassengerStopAssignment;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.Route;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ScheduledStopPoint;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ServiceJourneyPattern;
+import org.rutebanken.netex.model.ServiceLink;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TopographicPlace;
+
+/**
+ * Receive the NeTEx entities one by one, as they are parsed, instead of collecting them in
+ * an index. Used with {@link NetexParser#parse(String, NetexEntityListener)} to process a
+ * dataset in constant memory.
+ * <p>
+ * All methods do nothing by default, implementations override the callbacks for the
+ * entities they need. The entities are passed in document order, and the callbacks are
+ * invoked on the thread that called the parser.
+ */
+public interface NetexEntityListener {
+  default void onPublicationTimestamp(LocalDateTime publicationTimestamp) {}
+
+  /* ResourceFrame */
+
+  default void onAuthority(Authority authority) {}
+
+  default void onOperator(Operator operator) {}
+
+  default void onBranding(Branding branding) {}
+
+  /* ServiceCalendarFrame */
+
+  default void onDayType(DayType dayType) {}
+
+  default void onOperatingPeriod(OperatingPeriod operatingPeriod) {}
+
+  default void onOperatingDay(OperatingDay operatingDay) {}
+
+  default void onDayTypeAssignment(DayTypeAssignment dayTypeAssignment) {}
+
+  /* VehicleScheduleFrame */
+
+  default void onBlock(Block block) {}
+
+  /* TimetableFrame */
+
+  default void onServiceJourney(ServiceJourney serviceJourney) {}
+
+  default void onDatedServiceJourney(DatedServiceJourney datedServiceJourney) {}
+
+  default void onDeadRun(DeadRun deadRun) {}
+
+  default void onServiceJourneyInterchange(
+    ServiceJourneyInterchange serviceJourneyInterchange
+  ) {}
+
+  /* ServiceFrame */
+
+  default void onNetwork(Network network) {}
+
+  /**
+   * @param networkId the id of the Network the GroupOfLines is defined in
+   */
+  default void onGroupOfLines(GroupOfLines groupOfLines, String networkId) {}
+
+  default void onLine(Line line) {}
+
+  default void onFlexibleLine(FlexibleLine flexibleLine) {}
+
+  default void onRoute(Route route) {}
+
+  default void onJourneyPattern(JourneyPattern journeyPattern) {}
+
+  default void onServiceJourneyPattern(
+    ServiceJourneyPattern serviceJourneyPattern
+  ) {}
+
+  default void onDestinationDisplay(DestinationDisplay destinationDisplay) {}
+
+  default void onServiceLink(ServiceLink serviceLink) {}
+
+  default void onScheduledStopPoint(ScheduledStopPoint scheduledStopPoint) {}
+
+  default void onRoutePoint(RoutePoint routePoint) {}
+
+  default void onPassengerStopAssignment(
+    PassengerStopAssignment passengerStopAssignment
+  ) {}
+
+  default void onFlexibleStopAssignment(
+    FlexibleStopAssignment flexibleStopAssignment
+  ) {}
+
+  /* ServiceFrame and TimetableFrame */
+
+  default void onNotice(Notice notice) {}
+
+  default void onNoticeAssignment(NoticeAssignment noticeAssignment) {}
+
+  /* SiteFrame */
+
+  default void onStopPlace(StopPlace stopPlace) {}
+
+  /**
+   * @param stopPlaceId the id of the StopPlace the Quay belongs to
+   */
+  default void onQuay(Quay quay, String stopPlaceId) {}
+
+  default void onFlexibleStopPlace(FlexibleStopPlace flexibleStopPlace) {}
+
+  default void onGroupOfStopPlaces(GroupOfStopPlaces groupOfStopPlaces) {}
+
+  default void onTariffZone(TariffZone tariffZone) {}
+
+  default void onGroupOfTariffZones(GroupOfTariffZones groupOfTariffZones) {}
+
+  default void onTopographicPlace(TopographicPlace topographicPlace) {}
+
+  default void onParking(Parking parking) {}
+
+  /* FareFrame */
+
+  default void onFareZone(FareZone fareZone) {}
+}
@@ -0,0 +1,228 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.IndexProvenance;
+import org.entur.netex.index.impl.NetexIndexParts;
+import org.entur.netex.index.snapshot.NetexIndexSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holder of the index served to readers while a new version of the dataset is loaded.
+ * Each load builds a new generation of the index, and publishes it atomically once it
+ * is complete: a reader never sees a partially loaded index. A reader should get the
+ * index once per query, and keeps a consistent view of the dataset as long as it uses
+ * the same generation.
+ * <p>
+ * Optionally, the archives that did not change since the previous load are not parsed
+ * again: their entities are shared between the previous and the new generation. This is
+ * intended for the large archives that rarely change, such as the stop place registry,
+ * and limits the memory used while the two generations are alive. The new generation is
+ * a copy of the previous one, where the content of the changed and removed archives is
+ * replaced, see {@link IndexProvenance}. This requires keeping the checksum of each
+ * archive and the sources of each entity, but not a separate index per archive. The new
+ * generation has the same content as when all the archives are parsed: an entity defined
+ * in several archives is taken from the last one in order of precedence. If the order of
+ * the archives of the previous generation changes, or if a new archive is not after all
+ * of them, all the archives are parsed again.
+ * <p>
+ * Loads are serialized, readers are never blocked.
+ */
+public class NetexIndexHolder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    NetexIndexHolder.class
+  );
+
+  private final NetexParser parser;
+
+  private final boolean reuseUnchangedArchives;
+
+  private final AtomicReference<NetexEntitiesIndex> current =
+    new AtomicReference<>();
+
+  /** The archive each entity of the current generation was loaded from, if reused. */
+  private IndexProvenance provenance = new IndexProvenance();
+
+  /** The checksum of each archive of the current generation, in order, if reused. */
+  private Map<Path, Long> checksums = Map.of();
+
+  /**
+   * The FlexibleStopPlace references of the current generation, including those that
+   * were not resolved, to resolve them again when the FlexibleStopPlaces change.
+   */
+  private Map<String, String> flexibleStopPlaceRefs = Map.of();
+
+  private volatile long generation;
+
+  /**
+   * Create a holder that parses all the archives of each load.
+   */
+  public NetexIndexHolder(NetexParser parser) {
+    this(parser, false);
+  }
+
+  /**
+   * Create a holder that parses the archives with the given parser.
+   *
+   * @param reuseUnchangedArchives share the entities of the archives that did not change
+   *                               since the previous load, instead of parsing them again
+   */
+  public NetexIndexHolder(NetexParser parser, boolean reuseUnchangedArchives) {
+    this.parser = parser;
+    this.reuseUnchangedArchives = reuseUnchangedArchives;
+  }
+
+  /**
+   * Return the current generation of the index, or null if no load completed yet.
+   */
+  public NetexEntitiesIndex get() {
+    return current.get();
+  }
+
+  /**
+   * Return the number of loads published so far.
+   */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Load the archives into a new index and publish it. The current index is served to
+   * the readers until the load completes, and remains the current index if it fails.
+   *
+   * @param archives Paths to the zip files, in order of precedence
+   * @return The new index
+   */
+  public synchronized NetexEntitiesIndex load(Collection<Path> archives)
+    throws IOException {
+    long start = System.nanoTime();
+    NetexEntitiesIndex index;
+    if (reuseUnchangedArchives) {
+      index = loadReusingUnchangedArchives(archives);
+    } else {
+      index = parser.newIndex();
+      parser.parseAll(archives, index);
+    }
+    current.set(index);
+    generation++;
+    LOG.info(
+      "Netex import - Index generation {} published in {} ms",
+      generation,
+      Duration.ofNanos(System.nanoTime() - start).toMillis()
+    );
+    return index;
+  }
+
+  /**
+   * Load the archives into a new index on the given executor, and publish it once it is
+   * loaded, see {@link #load(Collection)}.
+   *
+   * @param archives Paths to the zip files, in order of precedence
+   * @param executor The executor running the load
+   * @return The new index, once published
+   */
+  public Future<NetexEntitiesIndex> loadInBackground(
+    Collection<Path> archives,
+    ExecutorService executor
+  ) {
+    List<Path> paths = List.copyOf(archives);
+    return executor.submit(() -> load(paths));
+  }
+
+  private NetexEntitiesIndex loadReusingUnchangedArchives(
+    Collection<Path> archives
+  ) throws IOException {
+    Map<Path, Long> loaded = new LinkedHashMap<>();
+    for (Path path : archives) {
+      Path archive = path.toAbsolutePath().normalize();
+      loaded.put(archive, NetexIndexSnapshot.checksum(archive));
+    }
+    if (!isSameOrder(loaded.keySet())) {
+      LOG.info(
+        "Netex import - Order of the archives changed, parsing all of them"
+      );
+      resetProvenance();
+    }
+    List<Path> changed = new ArrayList<>();
+    loaded.forEach((archive, checksum) -> {
+      if (checksum.equals(checksums.get(archive))) {
+        LOG.info("Netex import - Reusing unchanged archive {}", archive);
+      } else {
+        changed.add(archive);
+      }
+    });
+    List<NetexEntitiesIndex> changedIndexes = parser.parseArchives(changed);
+
+    NetexEntitiesIndex index = parser.newIndex();
+    try {
+      if (!checksums.isEmpty()) {
+        NetexIndexParts.putAll(current.get(), index);
+        index
+          .getFlexibleStopPlaceIdByStopPointRefIndex()
+          .putAll(flexibleStopPlaceRefs);
+      }
+      for (Path archive : checksums.keySet()) {
+        if (!loaded.containsKey(archive)) {
+          provenance.remove(archive.toString(), index);
+        }
+      }
+      for (int i = 0; i < changed.size(); i++) {
+        provenance.replace(
+          changed.get(i).toString(),
+          changedIndexes.get(i),
+          index
+        );
+      }
+    } catch (RuntimeException e) {
+      // The provenance may be partly updated: parse all the archives next time
+      resetProvenance();
+      throw e;
+    }
+    flexibleStopPlaceRefs =
+      Map.copyOf(index.getFlexibleStopPlaceIdByStopPointRefIndex());
+    NetexParser.resolveFlexibleStopPlaces(index);
+    checksums = loaded;
+    return index;
+  }
+
+  /**
+   * Return true if the archives of the current generation keep their order, and the new
+   * archives come after them, so that the provenance merges them in order of precedence.
+   */
+  private boolean isSameOrder(Collection<Path> archives) {
+    Iterator<Path> previous = checksums
+      .keySet()
+      .stream()
+      .filter(archives::contains)
+      .iterator();
+    for (Path archive : archives) {
+      if (!previous.hasNext()) {
+        return true;
+      }
+      if (!archive.equals(previous.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Forget the archives of the current generation, so that they are all parsed again. */
+  private void resetProvenance() {
+    provenance = new IndexProvenance();
+    checksums = Map.of();
+    flexibleStopPlaceRefs = Map.of();
+  }
+}
@@ -0,0 +1,105 @@
+package org.entur.netex;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.entur.netex.loader.StringDeduplicator;
+
+/**
+ * Summary of a load of several archives with
+ * {@link NetexParser#parseAll(java.util.Collection, org.entur.netex.index.api.NetexEntitiesIndex)}.
+ */
+public class NetexLoadReport {
+
+  private final List<ArchiveLoad> archives;
+
+  private final Duration duration;
+
+  private final StringDeduplicator.Statistics stringDeduplication;
+
+  private final Map<String, Long> skippedElements;
+
+  NetexLoadReport(
+    List<ArchiveLoad> archives,
+    Duration duration,
+    StringDeduplicator.Statistics stringDeduplication,
+    Map<String, Long> skippedElements
+  ) {
+    this.archives = List.copyOf(archives);
+    this.duration = duration;
+    this.stringDeduplication = stringDeduplication;
+    this.skippedElements = skippedElements;
+  }
+
+  /** The archives, in the order they were applied to the index. */
+  public List<ArchiveLoad> getArchives() {
+    return archives;
+  }
+
+  /** The wall-clock time of the whole load. */
+  public Duration getDuration() {
+    return duration;
+  }
+
+  /**
+   * The strings deduplicated during the load, or null if string deduplication is not
+   * enabled in the {@link NetexParserOptions}.
+   */
+  public StringDeduplicator.Statistics getStringDeduplication() {
+    return stringDeduplication;
+  }
+
+  /**
+   * The number of elements intentionally skipped by the parsers during the load, by element
+   * type, for instance GeneralFrame.
+   */
+  public Map<String, Long> getSkippedElements() {
+    return skippedElements;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("NetexLoadReport{duration=")
+      .append(duration.toMillis())
+      .append("ms");
+    if (stringDeduplication != null) {
+      sb.append(", strings: ").append(stringDeduplication);
+    }
+    if (!skippedElements.isEmpty()) {
+      sb.append(", skipped: ").append(skippedElements);
+    }
+    for (ArchiveLoad archive : archives) {
+      sb.append(", ").append(archive);
+    }
+    return sb.append('}').toString();
+  }
+
+  /**
+   * The load of one archive.
+   *
+   * @param archive the path to the archive
+   * @param entries the number of zip entries in the archive
+   * @param readTime the time spent reading and unmarshalling the entries, summed over the
+   *                 worker threads
+   * @param indexTime the time spent populating the index with the entries, on the
+   *                  calling thread
+   */
+  public record ArchiveLoad(
+    Path archive,
+    int entries,
+    Duration readTime,
+    Duration indexTime
+  ) {
+    @Override
+    public String toString() {
+      return String.format(
+        "%s: %d entries, read %d ms, index %d ms",
+        archive.getFileName(),
+        entries,
+        readTime.toMillis(),
+        indexTime.toMillis()
+      );
+    }
+  }
+}
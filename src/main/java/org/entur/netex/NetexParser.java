@@ -3,38 +3,108 @@ package org.entur.netex;
 import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.xml.stream.XMLStreamReader;
+import org.entur.netex.NetexLoadReport.ArchiveLoad;
 import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.IndexProvenance;
 import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.impl.OverlayNetexEntitiesIndexImpl;
+import org.entur.netex.index.snapshot.NetexIndexSnapshot;
+import org.entur.netex.index.snapshot.ZipEntryCache;
 import org.entur.netex.loader.NetexXmlParser;
+import org.entur.netex.loader.PipelinedZipLoader;
+import org.entur.netex.loader.PropertyTrimmer;
+import org.entur.netex.loader.StringDeduplicator;
+import org.entur.netex.loader.parser.ChunkedContainerParser;
+import org.entur.netex.loader.parser.FlexibleStopPlaceResolver;
 import org.entur.netex.loader.parser.NetexDocumentParser;
+import org.entur.netex.loader.parser.NetexStreamingDocumentParser;
+import org.entur.netex.loader.parser.SkippedElements;
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Main entry point to the library. Used to parse a NeTEx publication
  * delivery into a queryable index.
+ * <p>
+ * A NetexParser is thread-safe and can be shared between threads.
  */
 public class NetexParser {
 
-  private final NetexXmlParser xmlParser = new NetexXmlParser();
+  private static final Logger LOG = LoggerFactory.getLogger(NetexParser.class);
 
-  private final XmlStreamReaderFactory xmlStreamReaderFactory;
+  /** The XML parser used by all the loads, unless strings are deduplicated or trimmed. */
+  private final NetexXmlParser sharedXmlParser = new NetexXmlParser();
+
+  private final NetexParserOptions options;
 
   /**
    * Create a default NetexParser. The default implementation relies on a SAX parser.
    */
   public NetexParser() {
-    xmlStreamReaderFactory = null;
+    this(new NetexParserOptions());
   }
 
   /**
    * Create a NeTexParser that parses a NeTEx document through an XML stream reader (StAX).
    */
   public NetexParser(XmlStreamReaderFactory xmlStreamReaderFactory) {
-    this.xmlStreamReaderFactory = xmlStreamReaderFactory;
+    this(
+      new NetexParserOptions()
+        .withXmlStreamReaderFactory(xmlStreamReaderFactory)
+    );
+  }
+
+  /**
+   * Create a NetexParser configured with the given options.
+   */
+  public NetexParser(NetexParserOptions options) {
+    this.options = options;
+  }
+
+  /**
+   * Initialize the JAXB context shared by all parsers. This is otherwise done when
+   * the first document is parsed, and takes several seconds for the NeTEx model.
+   */
+  public static void warmUp() {
+    NetexXmlParser.warmUp();
+  }
+
+  /**
+   * Remove the FlexibleStopPlace references of the stop points that do not match a
+   * FlexibleStopPlace in the index. This is done at the end of each parse call, unless
+   * disabled in the {@link NetexParserOptions}, in which case it should be called once
+   * all the documents of the dataset are loaded. In an
+   * {@link OverlayNetexEntitiesIndexImpl}, only the references of the overlay are
+   * resolved: the base is shared and read-only.
+   */
+  public static void resolveFlexibleStopPlaces(NetexEntitiesIndex index) {
+    if (index instanceof OverlayNetexEntitiesIndexImpl overlayIndex) {
+      FlexibleStopPlaceResolver.resolve(
+        overlayIndex.getOverlay().getFlexibleStopPlaceIdByStopPointRefIndex(),
+        index.getFlexibleStopPlaceIndex()
+      );
+    } else {
+      FlexibleStopPlaceResolver.resolve(index);
+    }
   }
 
   /**
@@ -45,7 +115,9 @@ public class NetexParser {
    * @return A queryable index of NeTEx entities
    */
   public NetexEntitiesIndex parse(String pathToZip) throws IOException {
-    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl(
+      options.isLatestVersionsOnly()
+    );
     return parse(pathToZip, index);
   }
 
@@ -54,6 +126,13 @@ public class NetexParser {
    * a zip archive into an existing index.
    *
    * Existing entities with same id will be overwritten.
+   * When parallel parsing is enabled in the {@link NetexParserOptions}, entries are
+   * unmarshalled concurrently, but the index is still populated in the order of the
+   * entries in the archive.
+   * FlexibleStopAssignments are linked to the FlexibleStopPlaces once all the entries are
+   * loaded, so the order of the entries does not matter. This only holds within a call:
+   * see {@link NetexParserOptions#withFlexibleStopPlaceResolution(boolean)} to load a
+   * dataset with several calls.
    *
    * @param pathToZip Path to zip file
    * @param index An instance of NetexEntitiesIndex
@@ -62,16 +141,128 @@ public class NetexParser {
   public NetexEntitiesIndex parse(String pathToZip, NetexEntitiesIndex index)
     throws IOException {
     try (ZipFile zipFile = new ZipFile(pathToZip)) {
-      Enumeration<? extends ZipEntry> entries = zipFile.entries();
-      while (entries.hasMoreElements()) {
-        ZipEntry entry = entries.nextElement();
-        InputStream stream = zipFile.getInputStream(entry);
-        load(index, stream);
-      }
+      LoadContext context = newLoadContext();
+      load(index, zipFile, context);
+      resolveAfterLoad(index);
+      logLoadStatistics(pathToZip, context);
       return index;
     }
   }
 
+  /**
+   * Parse the NeTEx publication deliveries of several zip archives into an existing
+   * index.
+   *
+   * The archives are read and unmarshalled concurrently, on the executor of the
+   * {@link NetexParserOptions}, or on a pool of {@link NetexParserOptions#getParallelism()}
+   * threads, or one thread per available processor if no parallelism is set. The index
+   * is populated on the calling thread, in the order of the given archives: an entity
+   * defined in several archives is taken from the last one, as when the archives are
+   * parsed one after the other. FlexibleStopAssignments are linked once all the archives
+   * are loaded.
+   *
+   * With entity streaming, the archives are loaded one at a time on the calling thread.
+   *
+   * @param archives Paths to the zip files, in order of precedence
+   * @param index An instance of NetexEntitiesIndex
+   * @return The time spent on each archive, the elements skipped by the parsers, and the
+   *         strings deduplicated if enabled
+   */
+  public NetexLoadReport parseAll(
+    Collection<Path> archives,
+    NetexEntitiesIndex index
+  ) throws IOException {
+    long start = System.nanoTime();
+    LoadContext context = newLoadContext();
+    List<Path> paths = List.copyOf(archives);
+    List<NetexEntitiesIndex> indexes = Collections.nCopies(paths.size(), index);
+    List<ArchiveLoad> loads = options.isEntityStreaming()
+      ? loadArchives(paths, indexes, context)
+      : loadArchivesInParallel(paths, indexes, context);
+    resolveAfterLoad(index);
+    logLoadStatistics(archives.size() + " archives", context);
+    StringDeduplicator stringDeduplicator =
+      context.xmlParser().getStringDeduplicator();
+    return new NetexLoadReport(
+      loads,
+      elapsedSince(start),
+      stringDeduplicator == null ? null : stringDeduplicator.getStatistics(),
+      context.skippedElements().asMap()
+    );
+  }
+
+  /**
+   * Parse the NeTEx publication deliveries of several zip archives into a new index, as
+   * {@link #parseAll(Collection, NetexEntitiesIndex)}, or read the index from the given
+   * snapshot if it was written from the same archives, see {@link NetexIndexSnapshot}.
+   * Otherwise, the snapshot is written once the archives are parsed. A snapshot that
+   * cannot be read is replaced, and a snapshot that cannot be written is logged: the
+   * parsed index is returned in both cases.
+   *
+   * @param archives Paths to the zip files, in order of precedence
+   * @param snapshot Path to the snapshot file
+   * @return A queryable index of NeTEx entities
+   */
+  public NetexEntitiesIndex parseWithSnapshot(
+    Collection<Path> archives,
+    Path snapshot
+  ) throws IOException {
+    long start = System.nanoTime();
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl(
+      options.isLatestVersionsOnly()
+    );
+    try {
+      if (NetexIndexSnapshot.read(snapshot, archives, index)) {
+        LOG.info(
+          "Netex import - Index read from snapshot {} in {} ms",
+          snapshot,
+          elapsedSince(start).toMillis()
+        );
+        return index;
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Netex import - Failed to read snapshot {}", snapshot, e);
+      index = new NetexEntitiesIndexImpl(options.isLatestVersionsOnly());
+    }
+    parseAll(archives, index);
+    try {
+      NetexIndexSnapshot.write(index, archives, snapshot);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Netex import - Failed to write snapshot {}", snapshot, e);
+    }
+    return index;
+  }
+
+  /**
+   * Parse each zip archive into a new index of its own, as
+   * {@link #parseAll(Collection, NetexEntitiesIndex)} does, but without linking the
+   * FlexibleStopAssignments to the FlexibleStopPlaces, since these may be defined in
+   * another archive. Used to load the changed archives of a {@link NetexIndexHolder}.
+   */
+  List<NetexEntitiesIndex> parseArchives(List<Path> archives)
+    throws IOException {
+    List<NetexEntitiesIndex> indexes = new ArrayList<>();
+    for (int i = 0; i < archives.size(); i++) {
+      indexes.add(newIndex());
+    }
+    if (archives.isEmpty()) {
+      return indexes;
+    }
+    LoadContext context = newLoadContext();
+    if (options.isEntityStreaming()) {
+      loadArchives(archives, indexes, context);
+    } else {
+      loadArchivesInParallel(archives, indexes, context);
+    }
+    logLoadStatistics(archives.size() + " archives", context);
+    return indexes;
+  }
+
+  /** Create an empty index configured with the options of the parser. */
+  NetexEntitiesIndex newIndex() {
+    return new NetexEntitiesIndexImpl(options.isLatestVersionsOnly());
+  }
+
   /**
    * Parse an input stream of a single NeTEx public delivery
    *
@@ -79,9 +270,10 @@ public class NetexParser {
    * @return A queryable index of NeTEx entities
    */
   public NetexEntitiesIndex parse(InputStream inputStream) {
-    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
-    load(index, inputStream);
-    return index;
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl(
+      options.isLatestVersionsOnly()
+    );
+    return parse(inputStream, index);
   }
 
   /**
@@ -98,24 +290,598 @@ public class NetexParser {
     InputStream inputStream,
     NetexEntitiesIndex index
   ) {
-    load(index, inputStream);
+    LoadContext context = newLoadContext();
+    load(index, inputStream, context);
+    resolveAfterLoad(index);
+    logLoadStatistics("input stream", context);
     return index;
   }
 
-  private void load(NetexEntitiesIndex index, InputStream inputStream) {
+  /**
+   * Parse a NeTEx publication delivery from one or more files in a zip archive into an
+   * existing index, and record each zip entry as the source of its content in the given
+   * provenance. A modified entry can then be loaded again with
+   * {@link #reload(String, InputStream, NetexEntitiesIndex, IndexProvenance)}, using the
+   * name of the entry as source. The entries are parsed one at a time.
+   *
+   * @param pathToZip Path to zip file
+   * @param index An instance of NetexEntitiesIndex
+   * @param provenance The sources of the content of the index
+   * @return The mutated index
+   */
+  public NetexEntitiesIndex parse(
+    String pathToZip,
+    NetexEntitiesIndex index,
+    IndexProvenance provenance
+  ) throws IOException {
+    try (ZipFile zipFile = new ZipFile(pathToZip)) {
+      LoadContext context = newLoadContext();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        try (InputStream stream = zipFile.getInputStream(entry)) {
+          load(entry.getName(), stream, index, provenance, context);
+        }
+      }
+      resolveAfterLoad(index);
+      logLoadStatistics(pathToZip, context);
+      return index;
+    }
+  }
+
+  /**
+   * Replace the content of a source of the index by the NeTEx publication delivery of the
+   * input stream: the entities, references and frames that the source contributed to the
+   * index are removed, and the new version of the source is added. The new version is
+   * parsed before the index is modified.
+   *
+   * @param source The name of the source, for instance the name of a zip entry
+   * @param inputStream The new version of the source
+   * @param index The index the source was loaded into
+   * @param provenance The sources of the content of the index
+   */
+  public void reload(
+    String source,
+    InputStream inputStream,
+    NetexEntitiesIndex index,
+    IndexProvenance provenance
+  ) {
+    LoadContext context = newLoadContext();
+    load(source, inputStream, index, provenance, context);
+    resolveAfterLoad(index);
+    logLoadStatistics(source, context);
+  }
+
+  /**
+   * Parse a NeTEx publication delivery from one or more files in
+   * a zip archive, and pass the entities to the listener as they are parsed.
+   *
+   * No index is built, the entities are streamed one by one whatever the
+   * {@link NetexParserOptions}, so that the memory usage does not depend on the size
+   * of the dataset. The entries are parsed in the order of the archive.
+   *
+   * @param pathToZip Path to zip file
+   * @param listener The listener notified of each entity
+   */
+  public void parse(String pathToZip, NetexEntityListener listener)
+    throws IOException {
+    try (ZipFile zipFile = new ZipFile(pathToZip)) {
+      LoadContext context = newLoadContext();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        try (InputStream stream = zipFile.getInputStream(entry)) {
+          parse(stream, listener, context);
+        }
+      }
+      logLoadStatistics(pathToZip, context);
+    }
+  }
+
+  /**
+   * Parse an input stream of a single NeTEx publication delivery, and pass the
+   * entities to the listener as they are parsed.
+   *
+   * @param inputStream An InputStream
+   * @param listener The listener notified of each entity
+   */
+  public void parse(InputStream inputStream, NetexEntityListener listener) {
+    LoadContext context = newLoadContext();
+    parse(inputStream, listener, context);
+    logLoadStatistics("input stream", context);
+  }
+
+  private void parse(
+    InputStream inputStream,
+    NetexEntityListener listener,
+    LoadContext context
+  ) {
+    NetexStreamingDocumentParser.parseAndNotifyListener(
+      listener,
+      createXmlStreamReader(inputStream),
+      context.xmlParser(),
+      context.skippedElements()
+    );
+  }
+
+  /** Resolve the FlexibleStopPlace references at the end of a load, if enabled. */
+  private void resolveAfterLoad(NetexEntitiesIndex index) {
+    if (options.isFlexibleStopPlaceResolution()) {
+      resolveFlexibleStopPlaces(index);
+    }
+  }
+
+  /**
+   * Create the state of a new load. The XML parser is the shared one, or a parser with its
+   * own string deduplicator and property trimmer if enabled, so that the intern table and
+   * the statistics live as long as the load.
+   */
+  private LoadContext newLoadContext() {
+    NetexXmlParser xmlParser = sharedXmlParser;
+    if (
+      options.isStringDeduplication() ||
+      !options.getTrimmedProperties().isEmpty()
+    ) {
+      xmlParser =
+        new NetexXmlParser(
+          options.isStringDeduplication() ? new StringDeduplicator() : null,
+          options.getTrimmedProperties().isEmpty()
+            ? null
+            : new PropertyTrimmer(options.getTrimmedProperties())
+        );
+    }
+    return new LoadContext(xmlParser, new SkippedElements());
+  }
+
+  private void logLoadStatistics(String source, LoadContext context) {
+    if (
+      options.isSkippedElementsSummary() && !context.skippedElements().isEmpty()
+    ) {
+      LOG.info(
+        "Netex import - Elements skipped in {}: {}",
+        source,
+        context.skippedElements()
+      );
+    }
+    StringDeduplicator stringDeduplicator =
+      context.xmlParser().getStringDeduplicator();
+    if (stringDeduplicator != null) {
+      LOG.info(
+        "Deduplicated strings of {}: {}",
+        source,
+        stringDeduplicator.getStatistics()
+      );
+    }
+    PropertyTrimmer propertyTrimmer = context.xmlParser().getPropertyTrimmer();
+    if (propertyTrimmer != null) {
+      LOG.info(
+        "Trimmed properties of {}: {}",
+        source,
+        propertyTrimmer.getTrimmedCount()
+      );
+    }
+  }
+
+  private void load(
+    NetexEntitiesIndex index,
+    ZipFile zipFile,
+    LoadContext context
+  ) throws IOException {
+    if (options.isPipelined()) {
+      new PipelinedZipLoader(stream -> parseXmlDoc(stream, context))
+        .load(zipFile, document -> populateIndex(index, document, context));
+    } else if (options.isParallel()) {
+      loadInParallel(index, zipFile, context);
+    } else {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (options.isEntryCaching()) {
+          populateIndex(index, unmarshal(zipFile, entry, context), context);
+        } else {
+          InputStream stream = zipFile.getInputStream(entry);
+          load(index, stream, context);
+        }
+      }
+    }
+  }
+
+  /** Load each archive into the index at the same position. */
+  private List<ArchiveLoad> loadArchives(
+    List<Path> archives,
+    List<NetexEntitiesIndex> indexes,
+    LoadContext context
+  ) throws IOException {
+    List<ArchiveLoad> loads = new ArrayList<>();
+    for (int i = 0; i < archives.size(); i++) {
+      Path archive = archives.get(i);
+      long start = System.nanoTime();
+      try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+        load(indexes.get(i), zipFile, context);
+        loads.add(
+          new ArchiveLoad(
+            archive,
+            zipFile.size(),
+            elapsedSince(start),
+            Duration.ZERO
+          )
+        );
+      }
+    }
+    return loads;
+  }
+
+  /**
+   * Unmarshal the zip entries of the archives on the executor and populate the index at
+   * the position of each archive with its documents, in archive and entry order. At most
+   * as many documents as there are threads are unmarshalled ahead of the index
+   * population, whatever the size of the archives, to bound the memory usage. An archive
+   * is kept open until all its documents are in the index.
+   */
+  private List<ArchiveLoad> loadArchivesInParallel(
+    List<Path> archives,
+    List<NetexEntitiesIndex> indexes,
+    LoadContext context
+  ) throws IOException {
+    int parallelism = options.getParallelism() > 1
+      ? options.getParallelism()
+      : Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = options.getExecutor();
+    boolean ownsExecutor = executor == null;
+    if (ownsExecutor) {
+      executor = Executors.newFixedThreadPool(parallelism);
+    }
+    List<ArchiveLoad> loads = new ArrayList<>();
+    Deque<ArchiveInProgress> openArchives = new ArrayDeque<>();
+    Deque<PendingDocument> pending = new ArrayDeque<>();
     try {
-      PublicationDeliveryStructure doc;
-      if (xmlStreamReaderFactory != null) {
-        XMLStreamReader xmlReader =
-          xmlStreamReaderFactory.createXmlStreamReader(inputStream);
-        doc = xmlParser.parseXmlDoc(xmlReader);
-      } else {
-        doc = xmlParser.parseXmlDoc(inputStream);
+      for (int i = 0; i < archives.size(); i++) {
+        Path archive = archives.get(i);
+        ArchiveInProgress inProgress = new ArchiveInProgress(
+          archive,
+          new ZipFile(archive.toFile()),
+          indexes.get(i)
+        );
+        openArchives.add(inProgress);
+        Enumeration<? extends ZipEntry> entries = inProgress.zipFile.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          inProgress.submitted++;
+          pending.add(
+            new PendingDocument(
+              inProgress,
+              executor.submit(() -> inProgress.unmarshal(entry, context))
+            )
+          );
+          if (pending.size() >= parallelism) {
+            populateIndexWithDocument(pending.poll(), context);
+            completeArchives(openArchives, loads, false);
+          }
+        }
+        inProgress.allSubmitted = true;
+        completeArchives(openArchives, loads, false);
+      }
+      while (!pending.isEmpty()) {
+        populateIndexWithDocument(pending.poll(), context);
+        completeArchives(openArchives, loads, false);
       }
+      return loads;
+    } finally {
+      pending.forEach(document -> document.document().cancel(true));
+      if (ownsExecutor) {
+        executor.shutdownNow();
+      }
+      completeArchives(openArchives, loads, true);
+    }
+  }
 
-      NetexDocumentParser.parseAndPopulateIndex(index, doc);
+  private void populateIndexWithDocument(
+    PendingDocument pending,
+    LoadContext context
+  ) throws IOException {
+    PublicationDeliveryStructure document = getResult(pending.document());
+    long start = System.nanoTime();
+    populateIndex(pending.archive().index, document, context);
+    pending.archive().indexNanos += System.nanoTime() - start;
+    pending.archive().populated++;
+  }
+
+  /**
+   * Close the archives, in archive order, whose documents are all in the index, and
+   * report their load. On failure, close all the archives without reporting them.
+   */
+  private void completeArchives(
+    Deque<ArchiveInProgress> openArchives,
+    List<ArchiveLoad> loads,
+    boolean failed
+  ) throws IOException {
+    while (
+      !openArchives.isEmpty() &&
+      (failed || openArchives.peek().isComplete())
+    ) {
+      ArchiveInProgress archive = openArchives.poll();
+      archive.zipFile.close();
+      if (!failed) {
+        loads.add(
+          new ArchiveLoad(
+            archive.archive,
+            archive.submitted,
+            Duration.ofNanos(archive.readNanos.sum()),
+            Duration.ofNanos(archive.indexNanos)
+          )
+        );
+      }
+    }
+  }
+
+  /**
+   * Unmarshal the zip entries on the executor and populate the index with the
+   * documents in entry order. At most {@link NetexParserOptions#getParallelism()}
+   * documents are unmarshalled ahead of the index population, to bound the memory usage.
+   */
+  private void loadInParallel(
+    NetexEntitiesIndex index,
+    ZipFile zipFile,
+    LoadContext context
+  ) throws IOException {
+    ExecutorService executor = options.getExecutor();
+    boolean ownsExecutor = executor == null;
+    if (ownsExecutor) {
+      executor = Executors.newFixedThreadPool(options.getParallelism());
+    }
+    Deque<Future<PublicationDeliveryStructure>> pending = new ArrayDeque<>();
+    try {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        pending.add(
+          executor.submit(() -> unmarshal(zipFile, entry, context))
+        );
+        if (pending.size() >= options.getParallelism()) {
+          populateIndex(index, getResult(pending.poll()), context);
+        }
+      }
+      while (!pending.isEmpty()) {
+        populateIndex(index, getResult(pending.poll()), context);
+      }
+    } finally {
+      pending.forEach(future -> future.cancel(true));
+      if (ownsExecutor) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Unmarshal the entry, or read it from the entry cache if enabled. This is called on
+   * worker threads.
+   */
+  private PublicationDeliveryStructure unmarshal(
+    ZipFile zipFile,
+    ZipEntry entry,
+    LoadContext context
+  ) throws IOException {
+    ZipEntryCache entryCache = options.isEntryCaching()
+      ? options.getEntryCache()
+      : null;
+    if (entryCache != null) {
+      PublicationDeliveryStructure document = entryCache.get(
+        entry,
+        context.xmlParser().getStringDeduplicator()
+      );
+      if (document != null) {
+        return document;
+      }
+    }
+    PublicationDeliveryStructure document;
+    try (InputStream stream = zipFile.getInputStream(entry)) {
+      document = parseXmlDoc(stream, context);
+    }
+    if (entryCache != null) {
+      try {
+        entryCache.put(entry, document);
+      } catch (IOException | RuntimeException e) {
+        LOG.warn(
+          "Netex import - Failed to cache zip entry {}",
+          entry.getName(),
+          e
+        );
+      }
+    }
+    return document;
+  }
+
+  /** Wait for the task, and rethrow its failure on the calling thread. */
+  private static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing NeTEx files");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  private void populateIndex(
+    NetexEntitiesIndex index,
+    PublicationDeliveryStructure document,
+    LoadContext context
+  ) {
+    NetexDocumentParser.parseAndPopulateIndex(
+      index,
+      document,
+      options.getEntityTypeSelection(),
+      options.getFrameRetention(),
+      context.skippedElements(),
+      options.isLatestVersionsOnly()
+    );
+  }
+
+  private void load(
+    NetexEntitiesIndex index,
+    InputStream inputStream,
+    LoadContext context
+  ) {
+    if (options.isJourneyChunking()) {
+      loadWithJourneyChunks(index, inputStream, context);
+    } else if (options.isEntityStreaming()) {
+      NetexStreamingDocumentParser.parseAndPopulateIndex(
+        index,
+        createXmlStreamReader(inputStream),
+        context.xmlParser(),
+        null,
+        context.skippedElements(),
+        options.isLatestVersionsOnly()
+      );
+    } else {
+      populateIndex(index, parseXmlDoc(inputStream, context), context);
+    }
+  }
+
+  /** Load a source into an index of its own, and replace the source in the index. */
+  private void load(
+    String source,
+    InputStream inputStream,
+    NetexEntitiesIndex index,
+    IndexProvenance provenance,
+    LoadContext context
+  ) {
+    NetexEntitiesIndex sourceIndex = new NetexEntitiesIndexImpl(
+      options.isLatestVersionsOnly()
+    );
+    load(sourceIndex, inputStream, context);
+    provenance.replace(source, sourceIndex, index);
+  }
+
+  /**
+   * Stream through the document, and unmarshal its vehicle journeys in chunks on the
+   * executor. The index is populated on the calling thread, in document order.
+   */
+  private void loadWithJourneyChunks(
+    NetexEntitiesIndex index,
+    InputStream inputStream,
+    LoadContext context
+  ) {
+    int parallelism = options.getParallelism() > 1
+      ? options.getParallelism()
+      : Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = options.getExecutor();
+    boolean ownsExecutor = executor == null;
+    if (ownsExecutor) {
+      executor = Executors.newFixedThreadPool(parallelism);
+    }
+    try {
+      NetexStreamingDocumentParser.parseAndPopulateIndex(
+        index,
+        createXmlStreamReader(inputStream),
+        context.xmlParser(),
+        new ChunkedContainerParser(
+          context.xmlParser(),
+          executor,
+          options.getJourneyChunkSize(),
+          parallelism
+        ),
+        context.skippedElements(),
+        options.isLatestVersionsOnly()
+      );
+    } finally {
+      if (ownsExecutor) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private PublicationDeliveryStructure parseXmlDoc(
+    InputStream inputStream,
+    LoadContext context
+  ) {
+    try {
+      if (
+        options.getXmlStreamReaderFactory() != null ||
+        !options.getEntityTypeSelection().isAll()
+      ) {
+        return context
+          .xmlParser()
+          .parseXmlDoc(createXmlStreamReader(inputStream));
+      } else {
+        return context.xmlParser().parseXmlDoc(inputStream);
+      }
     } catch (JAXBException e) {
       throw new RuntimeException(e.getMessage(), e);
     }
   }
+
+  private static Duration elapsedSince(long startNanos) {
+    return Duration.ofNanos(System.nanoTime() - startNanos);
+  }
+
+  /** A document of an archive, unmarshalled on a worker thread. */
+  private record PendingDocument(
+    ArchiveInProgress archive,
+    Future<PublicationDeliveryStructure> document
+  ) {}
+
+  /**
+   * An archive whose documents are being unmarshalled or added to the index. Only the
+   * read time is updated by the worker threads.
+   */
+  private final class ArchiveInProgress {
+
+    private final Path archive;
+    private final ZipFile zipFile;
+    private final NetexEntitiesIndex index;
+    private final LongAdder readNanos = new LongAdder();
+    private long indexNanos;
+    private int submitted;
+    private int populated;
+    private boolean allSubmitted;
+
+    private ArchiveInProgress(
+      Path archive,
+      ZipFile zipFile,
+      NetexEntitiesIndex index
+    ) {
+      this.archive = archive;
+      this.zipFile = zipFile;
+      this.index = index;
+    }
+
+    private PublicationDeliveryStructure unmarshal(
+      ZipEntry entry,
+      LoadContext context
+    ) throws IOException {
+      long start = System.nanoTime();
+      try {
+        return NetexParser.this.unmarshal(zipFile, entry, context);
+      } finally {
+        readNanos.add(System.nanoTime() - start);
+      }
+    }
+
+    private boolean isComplete() {
+      return allSubmitted && populated == submitted;
+    }
+  }
+
+  /** The state of a load: its XML parser, and the elements skipped by the parsers. */
+  private record LoadContext(
+    NetexXmlParser xmlParser,
+    SkippedElements skippedElements
+  ) {}
+
+  private XMLStreamReader createXmlStreamReader(InputStream inputStream) {
+    XmlStreamReaderFactory xmlStreamReaderFactory =
+      options.getXmlStreamReaderFactory();
+    XMLStreamReader reader = xmlStreamReaderFactory != null
+      ? xmlStreamReaderFactory.createXmlStreamReader(inputStream)
+      : NetexXmlParser.createXmlStreamReader(inputStream);
+    return options.getEntityTypeSelection().filter(reader);
+  }
 }
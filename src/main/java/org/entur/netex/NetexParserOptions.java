@@ -0,0 +1,317 @@
+package org.entur.netex;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.snapshot.ZipEntryCache;
+import org.entur.netex.loader.PropertyTrimmer;
+import org.entur.netex.loader.parser.EntityTypeSelection;
+import org.entur.netex.loader.parser.FrameRetention;
+
+/**
+ * Options controlling how a {@link NetexParser} reads NeTEx documents.
+ * The default options parse documents one at a time on the calling thread.
+ */
+public class NetexParserOptions {
+
+  private XmlStreamReaderFactory xmlStreamReaderFactory;
+
+  private int parallelism = 1;
+
+  private ExecutorService executor;
+
+  private boolean entityStreaming;
+
+  private boolean pipelined;
+
+  private int journeyChunkSize;
+
+  private boolean latestVersionsOnly;
+
+  private boolean stringDeduplication;
+
+  private FrameRetention frameRetention = FrameRetention.FULL;
+
+  private Set<String> trimmedProperties = Set.of();
+
+  private boolean skippedElementsSummary = true;
+
+  private boolean flexibleStopPlaceResolution = true;
+
+  private ZipEntryCache entryCache;
+
+  private EntityTypeSelection entityTypeSelection = EntityTypeSelection.all();
+
+  /**
+   * Parse the NeTEx documents through an XML stream reader (StAX) created by the given factory.
+   */
+  public NetexParserOptions withXmlStreamReaderFactory(
+    XmlStreamReaderFactory xmlStreamReaderFactory
+  ) {
+    this.xmlStreamReaderFactory = xmlStreamReaderFactory;
+    return this;
+  }
+
+  /**
+   * Unmarshal up to {@code parallelism} zip entries concurrently.
+   * The index is still populated on the calling thread, in the order of the entries in the archive.
+   * The {@link XmlStreamReaderFactory}, if any, must then be thread-safe.
+   */
+  public NetexParserOptions withParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+        "Parallelism must be a positive number: " + parallelism
+      );
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Unmarshal zip entries concurrently on the given executor. The executor is not shut down
+   * by the parser. If no parallelism is set, the number of available processors
+   * limits how many entries are unmarshalled ahead of the index population.
+   */
+  public NetexParserOptions withExecutor(ExecutorService executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Stream through the documents and unmarshal the entities one at a time, instead of
+   * unmarshalling whole documents. This bounds the memory needed to parse a document by
+   * the size of its largest entity, but the NeTEx frames are then not added to the index.
+   * Zip entries are streamed one at a time, the parallelism does not apply.
+   */
+  public NetexParserOptions withEntityStreaming(boolean entityStreaming) {
+    this.entityStreaming = entityStreaming;
+    return this;
+  }
+
+  /**
+   * Run the decompression of the zip entries, the unmarshalling of the documents and the
+   * population of the index concurrently, on three threads connected by bounded queues.
+   * This is an alternative to the parallelism, and takes precedence over it: it does not
+   * add threads as the number of entries grows, and at most one document is unmarshalled
+   * ahead of the index population. It does not apply to entity streaming.
+   */
+  public NetexParserOptions withPipelining(boolean pipelined) {
+    this.pipelined = pipelined;
+    return this;
+  }
+
+  /**
+   * Unmarshal the vehicle journeys of each TimetableFrame concurrently, in chunks of the
+   * given number of journeys. This speeds up the loading of documents with a very large
+   * number of journeys. The document is read with entity streaming, so the NeTEx frames
+   * are not added to the index. The chunks are unmarshalled on the executor, if any, and
+   * at most {@link #getParallelism()} chunks are unmarshalled ahead of the index
+   * population.
+   */
+  public NetexParserOptions withJourneyChunkSize(int journeyChunkSize) {
+    if (journeyChunkSize < 1) {
+      throw new IllegalArgumentException(
+        "Journey chunk size must be a positive number: " + journeyChunkSize
+      );
+    }
+    this.journeyChunkSize = journeyChunkSize;
+    return this;
+  }
+
+  /**
+   * Keep only the latest version of the versioned entities, such as stop places, quays and
+   * scheduled stop points. An older version is dropped as soon as a later version of the
+   * same entity is parsed, and the indexes created by the parser replace a version only
+   * by a version with the same or a higher number, whatever the order of the files. This
+   * reduces the memory used by datasets with a long version history. An index given to
+   * the parser keeps the versions it is created for, see
+   * {@link NetexEntitiesIndexImpl#NetexEntitiesIndexImpl(boolean)}.
+   */
+  public NetexParserOptions withLatestVersionsOnly(boolean latestVersionsOnly) {
+    this.latestVersionsOnly = latestVersionsOnly;
+    return this;
+  }
+
+  /**
+   * Replace the equal strings of the unmarshalled entities by a single instance: the ids
+   * and versions of the entities and of the references, and the texts of names and
+   * private codes. This reduces the memory used by the loaded entities, at the cost of a
+   * lookup in an intern table for each of these strings. The intern table is scoped to a
+   * load, and the memory saved by each load is logged and reported in the
+   * {@link NetexLoadReport}. The documents read from the entry cache are deduplicated
+   * as well.
+   */
+  public NetexParserOptions withStringDeduplication(
+    boolean stringDeduplication
+  ) {
+    this.stringDeduplication = stringDeduplication;
+    return this;
+  }
+
+  /**
+   * Choose what is kept of the NeTEx frames in the index. By default the frames are kept
+   * as unmarshalled, which keeps the whole documents reachable, including the elements
+   * that are not indexed. With {@link FrameRetention#METADATA} or
+   * {@link FrameRetention#NONE}, only the indexed entities are retained once a document is
+   * loaded. This does not apply to entity streaming, which never keeps the frames.
+   */
+  public NetexParserOptions withFrameRetention(FrameRetention frameRetention) {
+    this.frameRetention = Objects.requireNonNull(frameRetention);
+    return this;
+  }
+
+  /**
+   * Set the given properties of the unmarshalled entities to null, to release the subtrees
+   * that are not used, such as {@link PropertyTrimmer#UNUSED_PROPERTIES}. The properties
+   * are given by their name in the NeTEx model, and are trimmed in every class that
+   * declares them, including in the frames. The number of trimmed properties is logged for
+   * each load.
+   */
+  public NetexParserOptions withTrimmedProperties(
+    Set<String> trimmedProperties
+  ) {
+    this.trimmedProperties = Set.copyOf(trimmedProperties);
+    return this;
+  }
+
+  /**
+   * Log a summary of the elements skipped by the parsers at the end of each load, by
+   * element type. This is enabled by default. The skipped elements are also logged one by
+   * one at debug level, and reported in the {@link NetexLoadReport}.
+   */
+  public NetexParserOptions withSkippedElementsSummary(
+    boolean skippedElementsSummary
+  ) {
+    this.skippedElementsSummary = skippedElementsSummary;
+    return this;
+  }
+
+  /**
+   * Remove, at the end of each parse call, the FlexibleStopPlace references of the stop
+   * points that do not match a FlexibleStopPlace in the index. This is enabled by default,
+   * and makes the result independent of the order of the documents loaded by a single
+   * call. When a dataset is loaded into an index with several calls, disable it and call
+   * {@link NetexParser#resolveFlexibleStopPlaces(org.entur.netex.index.api.NetexEntitiesIndex)}
+   * once all the documents are loaded: otherwise a line file loaded before the stop place
+   * file loses its references.
+   */
+  public NetexParserOptions withFlexibleStopPlaceResolution(
+    boolean flexibleStopPlaceResolution
+  ) {
+    this.flexibleStopPlaceResolution = flexibleStopPlaceResolution;
+    return this;
+  }
+
+  /**
+   * Read the unchanged zip entries from the given cache instead of unmarshalling them, and
+   * add the other entries to the cache once unmarshalled. The entries are identified by
+   * their CRC and size. The cache is not used with entity streaming, and takes precedence
+   * over pipelining, which unmarshals the entries without identifying them.
+   */
+  public NetexParserOptions withEntryCache(ZipEntryCache entryCache) {
+    this.entryCache = entryCache;
+    return this;
+  }
+
+  /**
+   * Load only the given entity types, for instance StopPlace, Quay and TariffZone. The
+   * frames and frame elements that do not contain any of these types are skipped before
+   * they are unmarshalled. Entities nested in a selected entity are loaded with it, and
+   * entities referred to by a selected entity are not loaded unless they are selected too.
+   *
+   * @throws IllegalArgumentException if one of the types is not loaded by the parser
+   */
+  public NetexParserOptions withEntityTypes(Class<?>... entityTypes) {
+    this.entityTypeSelection = EntityTypeSelection.of(List.of(entityTypes));
+    return this;
+  }
+
+  public XmlStreamReaderFactory getXmlStreamReaderFactory() {
+    return xmlStreamReaderFactory;
+  }
+
+  public int getParallelism() {
+    if (parallelism == 1 && executor != null) {
+      return Runtime.getRuntime().availableProcessors();
+    }
+    return parallelism;
+  }
+
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  public boolean isEntityStreaming() {
+    return entityStreaming || isJourneyChunking();
+  }
+
+  public int getJourneyChunkSize() {
+    return journeyChunkSize;
+  }
+
+  /**
+   * Return true if vehicle journeys should be unmarshalled concurrently in chunks.
+   */
+  public boolean isJourneyChunking() {
+    return journeyChunkSize > 0;
+  }
+
+  public boolean isLatestVersionsOnly() {
+    return latestVersionsOnly;
+  }
+
+  public boolean isStringDeduplication() {
+    return stringDeduplication;
+  }
+
+  public Set<String> getTrimmedProperties() {
+    return trimmedProperties;
+  }
+
+  public boolean isSkippedElementsSummary() {
+    return skippedElementsSummary;
+  }
+
+  public boolean isFlexibleStopPlaceResolution() {
+    return flexibleStopPlaceResolution;
+  }
+
+  public ZipEntryCache getEntryCache() {
+    return entryCache;
+  }
+
+  /**
+   * Return true if zip entries should be read from the entry cache.
+   */
+  public boolean isEntryCaching() {
+    return !isEntityStreaming() && entryCache != null;
+  }
+
+  public FrameRetention getFrameRetention() {
+    return frameRetention;
+  }
+
+  public EntityTypeSelection getEntityTypeSelection() {
+    return entityTypeSelection;
+  }
+
+  /**
+   * Return true if zip entries should be loaded in a pipeline.
+   */
+  public boolean isPipelined() {
+    return !isEntityStreaming() && !isEntryCaching() && pipelined;
+  }
+
+  /**
+   * Return true if zip entries should be unmarshalled concurrently.
+   */
+  public boolean isParallel() {
+    return (
+      !isEntityStreaming() &&
+      !isPipelined() &&
+      (executor != null || parallelism > 1)
+    );
+  }
+}
@@ -5,6 +5,7 @@ import javax.xml.stream.XMLStreamReader;
 
 /**
  * Factory for XMLStreamReader. Concrete implementations can be used to ignore elements within the XML document
+ * @see FilteringXmlStreamReaderFactory
  */
 public interface XmlStreamReaderFactory {
   XMLStreamReader createXmlStreamReader(InputStream inputStream);
@@ -1,8 +1,16 @@
 package org.entur.netex.index.api;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import org.entur.netex.support.NetexVersionHelper;
+import org.rutebanken.netex.model.EntityInVersionStructure;
 import org.rutebanken.netex.model.EntityStructure;
+import org.rutebanken.netex.model.ValidBetween;
 
 /**
  * An index of versioned NeTEx entities
@@ -30,6 +38,41 @@ public interface VersionedNetexEntityIndex<V extends EntityStructure> {
    */
   Collection<V> getLatestVersions();
 
+  /**
+   * Return the element with the latest version with the given {@code id} that is valid at
+   * the given time according to its ValidBetween periods. An element without ValidBetween
+   * is always valid. Returns {@code null} if no version is valid at that time.
+   * <p>
+   * The default implementation scans the versions of the entity.
+   */
+  default V getVersionValidAt(String id, LocalDateTime time) {
+    return latestVersionValidBetween(getAllVersions(id), time, time);
+  }
+
+  /**
+   * Return, for each entity valid at the given time, the latest version valid at that time.
+   * <p>
+   * The default implementation scans all the versions of all the entities.
+   * @see #getVersionValidAt(String, LocalDateTime)
+   */
+  default Collection<V> getLatestVersionsValidAt(LocalDateTime time) {
+    return latestVersionsValidBetween(time, time);
+  }
+
+  /**
+   * Return, for each entity valid at some time on the given date, the latest version valid
+   * on that date.
+   * <p>
+   * The default implementation scans all the versions of all the entities.
+   * @see #getVersionValidAt(String, LocalDateTime)
+   */
+  default Collection<V> getLatestVersionsValidOn(LocalDate date) {
+    return latestVersionsValidBetween(
+      date.atStartOfDay(),
+      date.atTime(LocalTime.MAX)
+    );
+  }
+
   /**
    * Lookup all versions of element with the given {@code id}.
    *
@@ -65,4 +108,65 @@ public interface VersionedNetexEntityIndex<V extends EntityStructure> {
    * Remove all versions of an entity from the index given its id
    */
   void remove(String id);
+
+  private Collection<V> latestVersionsValidBetween(
+    LocalDateTime start,
+    LocalDateTime end
+  ) {
+    List<V> result = new ArrayList<>();
+    for (Collection<V> versions : getAllVersions().values()) {
+      V entity = latestVersionValidBetween(versions, start, end);
+      if (entity != null) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the version with the highest number that is valid at some time between start
+   * and end, or null if there is none.
+   */
+  private static <V extends EntityStructure> V latestVersionValidBetween(
+    Collection<V> versions,
+    LocalDateTime start,
+    LocalDateTime end
+  ) {
+    V latest = null;
+    long latestVersion = Long.MIN_VALUE;
+    for (V entity : versions) {
+      if (!(entity instanceof EntityInVersionStructure versioned)) {
+        return entity;
+      }
+      long version = NetexVersionHelper.versionNumber(versioned.getVersion());
+      if (
+        isValidBetween(versioned, start, end) &&
+        (latest == null || version > latestVersion)
+      ) {
+        latest = entity;
+        latestVersion = version;
+      }
+    }
+    return latest;
+  }
+
+  private static boolean isValidBetween(
+    EntityInVersionStructure entity,
+    LocalDateTime start,
+    LocalDateTime end
+  ) {
+    List<ValidBetween> periods = entity.getValidBetween();
+    if (periods == null || periods.isEmpty()) {
+      return true;
+    }
+    for (ValidBetween period : periods) {
+      if (
+        (period.getFromDate() == null || !period.getFromDate().isAfter(end)) &&
+        (period.getToDate() == null || !period.getToDate().isBefore(start))
+      ) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
@@ -0,0 +1,181 @@
+package org.entur.netex.index.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map held in two arrays of keys and values, in insertion order, and an open
+ * addressing hash table of the positions of the keys, with linear probing. There is no
+ * entry object per mapping, unlike in {@link java.util.HashMap} or Guava's ImmutableMap,
+ * which both chain entries. The table is at most half full.
+ * <p>
+ * Null keys and values are not supported. Any attempt to modify the map throws an
+ * {@link UnsupportedOperationException}.
+ */
+final class CompactImmutableMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int EMPTY = -1;
+
+  private final Object[] keys;
+  private final Object[] values;
+
+  /** The positions of the keys in {@link #keys}, or {@link #EMPTY}. */
+  private final int[] table;
+
+  private CompactImmutableMap(Map<? extends K, ? extends V> map) {
+    int size = map.size();
+    this.keys = new Object[size];
+    this.values = new Object[size];
+    this.table = new int[Math.max(2, Integer.highestOneBit(size) << 2)];
+    Arrays.fill(table, EMPTY);
+    int mask = table.length - 1;
+    int index = 0;
+    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      Object key = Objects.requireNonNull(entry.getKey(), "key");
+      int slot = hash(key) & mask;
+      while (table[slot] != EMPTY) {
+        if (keys[table[slot]].equals(key)) {
+          throw new IllegalArgumentException("Duplicate key: " + key);
+        }
+        slot = (slot + 1) & mask;
+      }
+      keys[index] = key;
+      values[index] = Objects.requireNonNull(entry.getValue(), "value");
+      table[slot] = index;
+      index++;
+    }
+  }
+
+  /** Copy the given map, keeping its iteration order. */
+  static <K, V> CompactImmutableMap<K, V> copyOf(
+    Map<? extends K, ? extends V> map
+  ) {
+    return new CompactImmutableMap<>(map);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    int index = indexOf(key);
+    return index == EMPTY ? null : (V) values[index];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) != EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<K> keySet() {
+    return (Set<K>) new ArraySet(keys);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Collection<V> values() {
+    return (List<V>) Collections.unmodifiableList(Arrays.asList(values));
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < keys.length;
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public Entry<K, V> next() {
+            if (index >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<>(
+              (K) keys[index],
+              (V) values[index]
+            );
+            index++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (int index = 0; index < keys.length; index++) {
+      action.accept((K) keys[index], (V) values[index]);
+    }
+  }
+
+  private int indexOf(Object key) {
+    if (key == null) {
+      return EMPTY;
+    }
+    int mask = table.length - 1;
+    for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+      int index = table[slot];
+      if (index == EMPTY || keys[index].equals(key)) {
+        return index;
+      }
+    }
+  }
+
+  private static int hash(Object key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  /** The keys of the map, as a set backed by the array of keys. */
+  private final class ArraySet extends AbstractSet<Object> {
+
+    private final List<Object> elements;
+
+    private ArraySet(Object[] elements) {
+      this.elements = Collections.unmodifiableList(Arrays.asList(elements));
+    }
+
+    @Override
+    public boolean contains(Object element) {
+      return containsKey(element);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+      return elements.iterator();
+    }
+
+    @Override
+    public int size() {
+      return elements.size();
+    }
+  }
+}
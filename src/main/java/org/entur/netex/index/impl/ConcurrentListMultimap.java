@@ -0,0 +1,520 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe {@link ListMultimap} without a global lock.
+ * <p>
+ * The values of each key are kept in an array, and the arrays are held in a
+ * {@link ConcurrentHashMap}. As in an {@link java.util.ArrayList}, the arrays have spare
+ * capacity and grow by half their size, so that appending is amortized constant time.
+ * Values are appended in place past the values readers may already see, and the other
+ * modifications copy the array. Modifications of a key are atomic and do not block the
+ * other keys, and reads never block. This suits indexes that are populated once, possibly
+ * from several threads, and then read by many threads.
+ * <p>
+ * As with {@link java.util.concurrent.CopyOnWriteArrayList}, iterators work on a snapshot
+ * of the values and never throw {@link java.util.ConcurrentModificationException}.
+ * Removing through an iterator removes the first occurrence of the value from its key, as
+ * {@link #remove(Object, Object)} does. {@link #size()} sums the number of values of each
+ * key. Null keys are not supported.
+ */
+public class ConcurrentListMultimap<K, V> implements ListMultimap<K, V> {
+
+  private static final Values EMPTY = new Values(new Object[0], 0);
+
+  private final ConcurrentMap<K, Values> map = new ConcurrentHashMap<>();
+
+  public static <K, V> ConcurrentListMultimap<K, V> create() {
+    return new ConcurrentListMultimap<>();
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Values values : map.values()) {
+      size += values.size;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && map.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return map.values().stream().anyMatch(values -> values.indexOf(value) >= 0);
+  }
+
+  @Override
+  public boolean containsEntry(Object key, Object value) {
+    return valuesOf(key).indexOf(value) >= 0;
+  }
+
+  @Override
+  public boolean put(K key, V value) {
+    return append(key, new Object[] { value });
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (key == null) {
+      return false;
+    }
+    boolean[] removed = new boolean[1];
+    map.computeIfPresent(
+      castKey(key),
+      (k, values) -> {
+        int index = values.indexOf(value);
+        if (index < 0) {
+          return values;
+        }
+        removed[0] = true;
+        return values.removeAt(index);
+      }
+    );
+    return removed[0];
+  }
+
+  /**
+   * Remove the first occurrence of each of the given values from the key, atomically. This
+   * is equivalent to calling {@link #remove(Object, Object)} for each value, but the values
+   * of the key are copied once, whatever the number of values removed.
+   *
+   * @return true if any value was removed
+   */
+  public boolean removeEach(Object key, Collection<?> values) {
+    if (key == null || values.isEmpty()) {
+      return false;
+    }
+    Map<Object, Integer> counts = new HashMap<>();
+    for (Object value : values) {
+      counts.merge(value, 1, Integer::sum);
+    }
+    boolean[] removed = new boolean[1];
+    map.computeIfPresent(
+      castKey(key),
+      (k, current) -> {
+        Values result = current.without(counts);
+        removed[0] = result != current;
+        return result;
+      }
+    );
+    return removed[0];
+  }
+
+  @Override
+  public boolean putAll(K key, Iterable<? extends V> values) {
+    return append(key, Iterables.toArray(values, Object.class));
+  }
+
+  @Override
+  public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+    boolean changed = false;
+    for (var entry : multimap.asMap().entrySet()) {
+      changed |= append(entry.getKey(), entry.getValue().toArray());
+    }
+    return changed;
+  }
+
+  @Override
+  public List<V> replaceValues(K key, Iterable<? extends V> values) {
+    Object[] array = Iterables.toArray(values, Object.class);
+    Values previous = array.length == 0
+      ? map.remove(key)
+      : map.put(key, new Values(array, array.length));
+    return asList(previous);
+  }
+
+  @Override
+  public List<V> removeAll(Object key) {
+    return key == null ? List.of() : asList(map.remove(key));
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Return a view of the values of the key. The view is backed by the multimap, so that
+   * values added to the key are visible through the view and the other way round.
+   */
+  @Override
+  public List<V> get(K key) {
+    return new ValuesOfKey(key);
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return map.keySet();
+  }
+
+  /** Return a snapshot of the keys, each key occurring once per value. */
+  @Override
+  public Multiset<K> keys() {
+    ImmutableMultiset.Builder<K> keys = ImmutableMultiset.builder();
+    map.forEach((key, values) -> keys.addCopies(key, values.size));
+    return keys.build();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new AbstractCollection<>() {
+      @Override
+      public Iterator<V> iterator() {
+        return Iterators.concat(
+          Iterators.transform(
+            map.entrySet().iterator(),
+            entry -> new ValueIterator(entry.getKey(), entry.getValue())
+          )
+        );
+      }
+
+      @Override
+      public int size() {
+        return ConcurrentListMultimap.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Collection<Map.Entry<K, V>> entries() {
+    return new AbstractCollection<>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return Iterators.concat(
+          Iterators.transform(
+            map.entrySet().iterator(),
+            entry ->
+              Iterators.transform(
+                new ValueIterator(entry.getKey(), entry.getValue()),
+                value -> Maps.immutableEntry(entry.getKey(), value)
+              )
+          )
+        );
+      }
+
+      @Override
+      public int size() {
+        return ConcurrentListMultimap.this.size();
+      }
+    };
+  }
+
+  /** Return a view of the keys, with a live view of the values of each key. */
+  @Override
+  public Map<K, Collection<V>> asMap() {
+    return Maps.<K, Values, Collection<V>>transformEntries(
+      map,
+      (key, values) -> new ValuesOfKey(key)
+    );
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    return (
+      object == this ||
+      (object instanceof Multimap<?, ?> multimap &&
+        asMap().equals(multimap.asMap()))
+    );
+  }
+
+  @Override
+  public int hashCode() {
+    return asMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+
+  /** Append the values to the key, atomically. */
+  private boolean append(K key, Object[] values) {
+    Objects.requireNonNull(key, "key");
+    if (values.length == 0) {
+      return false;
+    }
+    map.compute(
+      key,
+      (k, current) -> (current == null ? EMPTY : current).append(values)
+    );
+    return true;
+  }
+
+  private Values valuesOf(Object key) {
+    Values values = key == null ? null : map.get(key);
+    return values == null ? EMPTY : values;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K castKey(Object key) {
+    return (K) key;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> List<V> asList(Values values) {
+    return values == null
+      ? List.of()
+      : (List<V>) Collections.unmodifiableList(
+        Arrays.asList(values.array).subList(0, values.size)
+      );
+  }
+
+  /**
+   * The values of a key: the first {@code size} elements of the array. An instance is
+   * never modified once published, but the slots of the array past its size may be
+   * filled by the instance that replaces it.
+   */
+  private static final class Values {
+
+    private final Object[] array;
+    private final int size;
+
+    private Values(Object[] array, int size) {
+      this.array = array;
+      this.size = size;
+    }
+
+    /**
+     * Return the values followed by the given ones. Only the current values of a key are
+     * appended to, so the slots past their size are not visible to any reader yet.
+     */
+    private Values append(Object[] values) {
+      int newSize = size + values.length;
+      Object[] result = array;
+      if (newSize > array.length) {
+        result = Arrays.copyOf(array, Math.max(newSize, size + (size >> 1)));
+      }
+      System.arraycopy(values, 0, result, size, values.length);
+      return new Values(result, newSize);
+    }
+
+    /** Return the values without the one at the index, or null if no value is left. */
+    private Values removeAt(int index) {
+      if (size == 1) {
+        return null;
+      }
+      Object[] result = new Object[size - 1];
+      System.arraycopy(array, 0, result, 0, index);
+      System.arraycopy(array, index + 1, result, index, size - index - 1);
+      return new Values(result, result.length);
+    }
+
+    /**
+     * Return the values without the first occurrences of the counted values, this
+     * instance if none of them is found, or null if no value is left.
+     */
+    private Values without(Map<Object, Integer> counts) {
+      Object[] result = null;
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        Object value = array[i];
+        Integer count = counts.get(value);
+        if (count == null) {
+          if (result != null) {
+            result[newSize] = value;
+          }
+          newSize++;
+          continue;
+        }
+        if (count == 1) {
+          counts.remove(value);
+        } else {
+          counts.put(value, count - 1);
+        }
+        if (result == null) {
+          result = Arrays.copyOf(array, size - 1);
+        }
+      }
+      if (result == null) {
+        return this;
+      }
+      if (newSize == 0) {
+        return null;
+      }
+      return new Values(
+        newSize == result.length ? result : Arrays.copyOf(result, newSize),
+        newSize
+      );
+    }
+
+    private int indexOf(Object value) {
+      for (int i = 0; i < size; i++) {
+        if (Objects.equals(array[i], value)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /** Iterator over a snapshot of the values of a key, removing from the multimap. */
+  private final class ValueIterator implements Iterator<V> {
+
+    private final K key;
+    private final Values values;
+    private int index;
+    private boolean removable;
+
+    private ValueIterator(K key, Values values) {
+      this.key = key;
+      this.values = values;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < values.size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V next() {
+      if (index >= values.size) {
+        throw new NoSuchElementException();
+      }
+      removable = true;
+      return (V) values.array[index++];
+    }
+
+    @Override
+    public void remove() {
+      if (!removable) {
+        throw new IllegalStateException();
+      }
+      removable = false;
+      ConcurrentListMultimap.this.remove(key, values.array[index - 1]);
+    }
+  }
+
+  /** Live view of the values of a key. */
+  private final class ValuesOfKey
+    extends AbstractList<V>
+    implements RandomAccess {
+
+    private final K key;
+
+    private ValuesOfKey(K key) {
+      this.key = key;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+      Values values = valuesOf(key);
+      Objects.checkIndex(index, values.size);
+      return (V) values.array[index];
+    }
+
+    @Override
+    public int size() {
+      return valuesOf(key).size;
+    }
+
+    @Override
+    public boolean add(V value) {
+      return put(key, value);
+    }
+
+    @Override
+    public void add(int index, V value) {
+      Objects.requireNonNull(key, "key");
+      map.compute(
+        key,
+        (k, values) -> {
+          Values current = values == null ? EMPTY : values;
+          Objects.checkIndex(index, current.size + 1);
+          Object[] result = new Object[current.size + 1];
+          System.arraycopy(current.array, 0, result, 0, index);
+          result[index] = value;
+          System.arraycopy(
+            current.array,
+            index,
+            result,
+            index + 1,
+            current.size - index
+          );
+          return new Values(result, result.length);
+        }
+      );
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V set(int index, V value) {
+      Object[] previous = new Object[1];
+      map.compute(
+        key,
+        (k, values) -> {
+          Values current = values == null ? EMPTY : values;
+          Objects.checkIndex(index, current.size);
+          Object[] result = Arrays.copyOf(current.array, current.size);
+          previous[0] = result[index];
+          result[index] = value;
+          return new Values(result, result.length);
+        }
+      );
+      return (V) previous[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(int index) {
+      Object[] previous = new Object[1];
+      map.compute(
+        key,
+        (k, values) -> {
+          Values current = values == null ? EMPTY : values;
+          Objects.checkIndex(index, current.size);
+          previous[0] = current.array[index];
+          return current.removeAt(index);
+        }
+      );
+      return (V) previous[0];
+    }
+
+    @Override
+    public boolean remove(Object value) {
+      return ConcurrentListMultimap.this.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+      ConcurrentListMultimap.this.removeAll(key);
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return new ValueIterator(key, valuesOf(key));
+    }
+  }
+}
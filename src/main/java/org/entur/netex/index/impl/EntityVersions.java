@@ -0,0 +1,250 @@
+package org.entur.netex.index.impl;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.entur.netex.support.NetexVersionHelper;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+import org.rutebanken.netex.model.ValidBetween;
+
+/**
+ * The versions of an entity, sorted by version number. The version numbers are parsed
+ * once, when the versions are created, so that the lookup of a version is a binary search
+ * and the lookup of the latest version is constant time. Instances are immutable.
+ * <p>
+ * According to the Norwegian NeTEx profile, versions are positive increasing numbers.
+ * Versions that are not numbers are sorted first, and looked up by their text.
+ * <p>
+ * The ValidBetween periods of the versions are converted to pairs of numbers on the first
+ * lookup by time, so that the following lookups do not access the entities.
+ */
+final class EntityVersions<V extends EntityInVersionStructure> {
+
+  private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+  private final long[] versions;
+
+  private final Object[] entities;
+
+  /**
+   * The validity periods of each version, as pairs of start and end times in seconds, or
+   * null if the version has no ValidBetween and is always valid. Computed on first use.
+   */
+  private volatile long[][] periods;
+
+  private EntityVersions(long[] versions, Object[] entities) {
+    this.versions = versions;
+    this.entities = entities;
+  }
+
+  /**
+   * Sort the given versions. Versions with the same number keep their order, and the
+   * first one is returned by the lookups.
+   *
+   * @return null if there is no entity
+   */
+  static <V extends EntityInVersionStructure> EntityVersions<V> of(
+    Collection<? extends V> entities
+  ) {
+    int size = entities.size();
+    if (size == 0) {
+      return null;
+    }
+    Object[] unsorted = entities.toArray();
+    long[] unsortedVersions = new long[size];
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      unsortedVersions[i] =
+        parseVersion(((EntityInVersionStructure) unsorted[i]).getVersion());
+      order[i] = i;
+    }
+    if (size > 1) {
+      Arrays.sort(order, Comparator.comparingLong(i -> unsortedVersions[i]));
+    }
+    long[] versions = new long[size];
+    Object[] sorted = new Object[size];
+    for (int i = 0; i < size; i++) {
+      versions[i] = unsortedVersions[order[i]];
+      sorted[i] = unsorted[order[i]];
+    }
+    return new EntityVersions<>(versions, sorted);
+  }
+
+  /**
+   * Keep only the version with the highest number, without sorting the others.
+   *
+   * @return null if there is no entity
+   */
+  static <V extends EntityInVersionStructure> EntityVersions<V> latestOf(
+    Collection<? extends V> entities
+  ) {
+    V latest = null;
+    long latestVersion = NOT_A_NUMBER;
+    for (V entity : entities) {
+      long version = parseVersion(entity.getVersion());
+      if (latest == null || version > latestVersion) {
+        latest = entity;
+        latestVersion = version;
+      }
+    }
+    return latest == null
+      ? null
+      : new EntityVersions<>(
+        new long[] { latestVersion },
+        new Object[] { latest }
+      );
+  }
+
+  /**
+   * Return the versions whose latest version has the higher number, the incoming ones if
+   * both have the same number.
+   */
+  static <V extends EntityInVersionStructure> EntityVersions<V> later(
+    EntityVersions<V> existing,
+    EntityVersions<V> incoming
+  ) {
+    return incoming.latestNumber() >= existing.latestNumber()
+      ? incoming
+      : existing;
+  }
+
+  /** Return the version with the highest number. */
+  V latest() {
+    return entity(lowerBound(versions[versions.length - 1]));
+  }
+
+  /** Return the given version, or null if it does not exist. */
+  V get(String version) {
+    if (version == null) {
+      return null;
+    }
+    long number = parseVersion(version);
+    for (
+      int i = lowerBound(number);
+      i < versions.length && versions[i] == number;
+      i++
+    ) {
+      if (version.equals(entity(i).getVersion())) {
+        return entity(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the version with the highest number that is valid at the given time, or null
+   * if no version is valid.
+   */
+  V validAt(LocalDateTime time) {
+    long seconds = toSeconds(time);
+    for (int i = entities.length - 1; i >= 0; i--) {
+      if (isValidAt(i, seconds)) {
+        return entity(i);
+      }
+    }
+    return null;
+  }
+
+  /** Return all the versions, in version order. */
+  @SuppressWarnings("unchecked")
+  List<V> asList() {
+    List<?> list = Arrays.asList(entities);
+    return Collections.unmodifiableList((List<V>) list);
+  }
+
+  private long latestNumber() {
+    return versions[versions.length - 1];
+  }
+
+  int size() {
+    return entities.length;
+  }
+
+  long version(int index) {
+    return versions[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  V entity(int index) {
+    return (V) entities[index];
+  }
+
+  /** Return the validity periods of a version, null if it is always valid. */
+  long[] periods(int index) {
+    long[][] allPeriods = periods;
+    if (allPeriods == null) {
+      // Computing the periods twice on concurrent calls is harmless
+      allPeriods = new long[entities.length][];
+      for (int i = 0; i < entities.length; i++) {
+        allPeriods[i] = periodsOf(entity(i));
+      }
+      periods = allPeriods;
+    }
+    return allPeriods[index];
+  }
+
+  private boolean isValidAt(int index, long seconds) {
+    long[] versionPeriods = periods(index);
+    if (versionPeriods == null) {
+      return true;
+    }
+    for (int i = 0; i < versionPeriods.length; i += 2) {
+      if (versionPeriods[i] <= seconds && seconds <= versionPeriods[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Convert a time to seconds, for comparison with the validity periods. */
+  static long toSeconds(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /**
+   * Return the ValidBetween periods of the entity as pairs of start and end times, null if
+   * it has none. Open periods start or end at the minimum or maximum value.
+   */
+  private static long[] periodsOf(EntityInVersionStructure entity) {
+    List<ValidBetween> validBetween = entity.getValidBetween();
+    if (validBetween == null || validBetween.isEmpty()) {
+      return null;
+    }
+    long[] periods = new long[validBetween.size() * 2];
+    for (int i = 0; i < validBetween.size(); i++) {
+      ValidBetween period = validBetween.get(i);
+      periods[2 * i] =
+        period.getFromDate() == null
+          ? Long.MIN_VALUE
+          : toSeconds(period.getFromDate());
+      periods[2 * i + 1] =
+        period.getToDate() == null
+          ? Long.MAX_VALUE
+          : toSeconds(period.getToDate());
+    }
+    return periods;
+  }
+
+  /** Return the index of the first version with the given number or a higher one. */
+  private int lowerBound(long number) {
+    int low = 0;
+    int high = versions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (versions[middle] < number) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static long parseVersion(String version) {
+    return NetexVersionHelper.versionNumber(version);
+  }
+}
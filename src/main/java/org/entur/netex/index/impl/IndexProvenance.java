@@ -0,0 +1,406 @@
+package org.entur.netex.index.impl;
+
+import static org.entur.netex.index.impl.NetexIndexParts.ENTITY_INDEXES;
+import static org.entur.netex.index.impl.NetexIndexParts.FRAMES;
+import static org.entur.netex.index.impl.NetexIndexParts.MULTIMAP_INDEXES;
+import static org.entur.netex.index.impl.NetexIndexParts.REFERENCE_INDEXES;
+import static org.entur.netex.index.impl.NetexIndexParts.VERSIONED_INDEXES;
+import static org.entur.netex.index.impl.NetexIndexParts.cast;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimap;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * The source of the content of an index: the zip entry or input stream each entity, each
+ * reference and each frame was loaded from. This allows replacing the content of one
+ * source, when a file of a dataset changes, without loading the whole dataset again.
+ * <p>
+ * A source is loaded into an index of its own, and then merged into the index with
+ * {@link #replace(String, NetexEntitiesIndex, NetexEntitiesIndex)}. The sources take
+ * precedence in the order they are first merged, and keep their precedence when they are
+ * replaced: the index has the same content as if the sources were loaded one after the
+ * other in that order. An entity or a reference defined in several sources is taken from
+ * the source of highest precedence, and the one of the next source is put back when that
+ * source is removed or no longer defines it. The methods are synchronized, but the index
+ * is modified in place: a reader of the index may see it between the removal of the
+ * previous content of a source and the addition of the new content.
+ */
+public class IndexProvenance {
+
+  private static final int KEYED_PARTS =
+    ENTITY_INDEXES.size() + VERSIONED_INDEXES.size() + REFERENCE_INDEXES.size();
+
+  /**
+   * The contributions defining each id of the entity indexes, the versioned indexes and
+   * the reference maps, in this order, from the lowest to the highest precedence.
+   */
+  private final List<Map<String, List<Contribution>>> definitions =
+    new ArrayList<>();
+
+  private final Map<String, Contribution> contributions = new HashMap<>();
+
+  private int nextRank;
+
+  public IndexProvenance() {
+    for (int part = 0; part < KEYED_PARTS; part++) {
+      definitions.add(new HashMap<>());
+    }
+  }
+
+  /**
+   * Remove the content of the source from the index, if any, and add the content of the
+   * source index in its place. A new source takes precedence over the sources merged
+   * before, a replaced source keeps its precedence.
+   *
+   * @param source the name of the source, for instance the name of a zip entry
+   * @param sourceIndex the index the source was loaded into
+   * @param index the index to update
+   */
+  public synchronized void replace(
+    String source,
+    NetexEntitiesIndex sourceIndex,
+    NetexEntitiesIndex index
+  ) {
+    Contribution previous = contributions.get(source);
+    int rank = previous == null ? nextRank++ : previous.rank;
+    remove(source, index);
+    Contribution contribution = new Contribution(source, rank);
+    contributions.put(source, contribution);
+    int part = 0;
+    for (var entityIndex : ENTITY_INDEXES) {
+      for (EntityStructure entity : entityIndex.apply(sourceIndex).getAll()) {
+        define(part, entity.getId(), entity, contribution, index);
+      }
+      part++;
+    }
+    for (var versionedIndex : VERSIONED_INDEXES) {
+      Map<String, ? extends Collection<?>> versionsById = versionedIndex
+        .apply(sourceIndex)
+        .getAllVersions();
+      for (var versions : versionsById.entrySet()) {
+        List<?> value = List.copyOf(versions.getValue());
+        define(part, versions.getKey(), value, contribution, index);
+      }
+      part++;
+    }
+    for (var referenceIndex : REFERENCE_INDEXES) {
+      var references = referenceIndex.apply(sourceIndex).entrySet();
+      for (Map.Entry<String, String> reference : references) {
+        String key = reference.getKey();
+        define(part, key, reference.getValue(), contribution, index);
+      }
+      part++;
+    }
+    for (int i = 0; i < MULTIMAP_INDEXES.size(); i++) {
+      Multimap<String, ?> added = MULTIMAP_INDEXES.get(i).apply(sourceIndex);
+      Multimap<String, Object> multimap = cast(
+        MULTIMAP_INDEXES.get(i).apply(index)
+      );
+      multimap.putAll(added);
+      contribution.entries.get(i).putAll(added);
+    }
+    for (int i = 0; i < FRAMES.size(); i++) {
+      Collection<?> added = FRAMES.get(i).apply(sourceIndex);
+      Collection<Object> frames = cast(FRAMES.get(i).apply(index));
+      frames.addAll(added);
+      contribution.frames.get(i).addAll(added);
+    }
+    contribution.publicationTimestamp = sourceIndex.getPublicationTimestamp();
+    moveSourcesOfHigherPrecedence(contribution, index);
+    updatePublicationTimestamp(index);
+  }
+
+  /**
+   * Remove the content of the source from the index: the entities and references it
+   * defines, its multimap entries and its frames. An entity or a reference that another
+   * source defines too is replaced by the one of the source of highest precedence.
+   *
+   * @return false if the source is not in the index
+   */
+  public synchronized boolean remove(String source, NetexEntitiesIndex index) {
+    Contribution contribution = contributions.remove(source);
+    if (contribution == null) {
+      return false;
+    }
+    for (int part = 0; part < KEYED_PARTS; part++) {
+      Map<String, List<Contribution>> definitionsOfPart = definitions.get(part);
+      for (String key : contribution.values.get(part).keySet()) {
+        List<Contribution> definers = definitionsOfPart.get(key);
+        boolean highest = definers.get(definers.size() - 1) == contribution;
+        definers.remove(contribution);
+        if (definers.isEmpty()) {
+          definitionsOfPart.remove(key);
+        }
+        if (highest || isVersioned(part)) {
+          update(part, key, definers, index);
+        }
+      }
+    }
+    for (int i = 0; i < MULTIMAP_INDEXES.size(); i++) {
+      Multimap<String, ?> multimap = MULTIMAP_INDEXES.get(i).apply(index);
+      contribution.entries
+        .get(i)
+        .asMap()
+        .forEach((key, values) -> removeEach(multimap, key, values));
+    }
+    for (int i = 0; i < FRAMES.size(); i++) {
+      Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+      removed.addAll(contribution.frames.get(i));
+      FRAMES.get(i).apply(index).removeIf(removed::contains);
+    }
+    updatePublicationTimestamp(index);
+    return true;
+  }
+
+  /**
+   * Return the source of the entity with the given id, or null if the entity was not
+   * loaded through this provenance. If several sources define the entity, the source of
+   * highest precedence is returned.
+   */
+  public synchronized String getSource(String id) {
+    for (int part = 0; part < KEYED_PARTS - REFERENCE_INDEXES.size(); part++) {
+      List<Contribution> definers = definitions.get(part).get(id);
+      if (definers != null) {
+        return definers.get(definers.size() - 1).source;
+      }
+    }
+    return null;
+  }
+
+  /** Return the sources merged into the index, and not removed since. */
+  public synchronized Set<String> getSources() {
+    return Set.copyOf(contributions.keySet());
+  }
+
+  /**
+   * Record that the contribution defines the key of the given part, and update the index
+   * if the contribution has the highest precedence.
+   */
+  private void define(
+    int part,
+    String key,
+    Object value,
+    Contribution contribution,
+    NetexEntitiesIndex index
+  ) {
+    contribution.values.get(part).put(key, value);
+    List<Contribution> definers = definitions
+      .get(part)
+      .computeIfAbsent(key, k -> new ArrayList<>(1));
+    int position = definers.size();
+    while (
+      position > 0 && definers.get(position - 1).rank > contribution.rank
+    ) {
+      position--;
+    }
+    definers.add(position, contribution);
+    if (position == definers.size() - 1 || isVersioned(part)) {
+      update(part, key, definers, index);
+    }
+  }
+
+  /**
+   * Set the key of the given part of the index to the value of the definers, as if they
+   * were loaded in order of precedence.
+   */
+  private static void update(
+    int part,
+    String key,
+    List<Contribution> definers,
+    NetexEntitiesIndex index
+  ) {
+    if (definers.isEmpty()) {
+      erase(part, key, index);
+    } else if (isVersioned(part) && definers.size() > 1) {
+      // Put in order, an index of the latest versions keeps the highest one
+      erase(part, key, index);
+      for (Contribution definer : definers) {
+        write(part, key, definer.values.get(part).get(key), index);
+      }
+    } else {
+      Contribution highest = definers.get(definers.size() - 1);
+      write(part, key, highest.values.get(part).get(key), index);
+    }
+  }
+
+  private static void write(
+    int part,
+    String key,
+    Object value,
+    NetexEntitiesIndex index
+  ) {
+    if (part < ENTITY_INDEXES.size()) {
+      NetexEntityIndex<EntityStructure> entities = cast(
+        ENTITY_INDEXES.get(part).apply(index)
+      );
+      entities.put(key, (EntityStructure) value);
+    } else if (isVersioned(part)) {
+      VersionedNetexEntityIndex<EntityStructure> entities = cast(
+        VERSIONED_INDEXES.get(part - ENTITY_INDEXES.size()).apply(index)
+      );
+      entities.put(key, cast(value));
+    } else {
+      referencesOf(part, index).put(key, (String) value);
+    }
+  }
+
+  private static void erase(int part, String key, NetexEntitiesIndex index) {
+    if (part < ENTITY_INDEXES.size()) {
+      ENTITY_INDEXES.get(part).apply(index).remove(key);
+    } else if (isVersioned(part)) {
+      VERSIONED_INDEXES
+        .get(part - ENTITY_INDEXES.size())
+        .apply(index)
+        .remove(key);
+    } else {
+      referencesOf(part, index).remove(key);
+    }
+  }
+
+  private static Map<String, String> referencesOf(
+    int part,
+    NetexEntitiesIndex index
+  ) {
+    return REFERENCE_INDEXES
+      .get(part - ENTITY_INDEXES.size() - VERSIONED_INDEXES.size())
+      .apply(index);
+  }
+
+  private static boolean isVersioned(int part) {
+    return (
+      part >= ENTITY_INDEXES.size() &&
+      part < ENTITY_INDEXES.size() + VERSIONED_INDEXES.size()
+    );
+  }
+
+  /**
+   * Move the multimap values and the frames of the sources of higher precedence after
+   * those of the contribution, which were added last, so that they are in the order of a
+   * full load.
+   */
+  private void moveSourcesOfHigherPrecedence(
+    Contribution contribution,
+    NetexEntitiesIndex index
+  ) {
+    List<Contribution> higher = contributions
+      .values()
+      .stream()
+      .filter(other -> other.rank > contribution.rank)
+      .sorted(Comparator.comparingInt(other -> other.rank))
+      .toList();
+    if (higher.isEmpty()) {
+      return;
+    }
+    for (int i = 0; i < MULTIMAP_INDEXES.size(); i++) {
+      Multimap<String, Object> multimap = cast(
+        MULTIMAP_INDEXES.get(i).apply(index)
+      );
+      for (String key : contribution.entries.get(i).keySet()) {
+        for (Contribution other : higher) {
+          List<Object> values = other.entries.get(i).get(key);
+          if (!values.isEmpty()) {
+            removeEach(multimap, key, values);
+            multimap.putAll(key, values);
+          }
+        }
+      }
+    }
+    for (int i = 0; i < FRAMES.size(); i++) {
+      if (contribution.frames.get(i).isEmpty()) {
+        continue;
+      }
+      Set<Object> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Contribution other : higher) {
+        moved.addAll(other.frames.get(i));
+      }
+      if (!moved.isEmpty()) {
+        Collection<Object> frames = cast(FRAMES.get(i).apply(index));
+        frames.removeIf(moved::contains);
+        for (Contribution other : higher) {
+          frames.addAll(other.frames.get(i));
+        }
+      }
+    }
+  }
+
+  /** Set the publication timestamp of the source of highest precedence that has one. */
+  private void updatePublicationTimestamp(NetexEntitiesIndex index) {
+    Contribution latest = null;
+    for (Contribution contribution : contributions.values()) {
+      if (
+        contribution.publicationTimestamp != null &&
+        (latest == null || contribution.rank > latest.rank)
+      ) {
+        latest = contribution;
+      }
+    }
+    if (latest != null) {
+      index.setPublicationTimestamp(latest.publicationTimestamp);
+    }
+  }
+
+  /** Remove the first occurrence of each value from the key of the multimap. */
+  private static void removeEach(
+    Multimap<String, ?> multimap,
+    String key,
+    Collection<Object> values
+  ) {
+    if (multimap instanceof ConcurrentListMultimap<String, ?> concurrent) {
+      concurrent.removeEach(key, values);
+      return;
+    }
+    for (Object value : values) {
+      multimap.remove(key, value);
+    }
+  }
+
+  /** The content of the index that belongs to a source. */
+  private static final class Contribution {
+
+    private final String source;
+
+    /** The precedence of the source, the higher the later it is loaded. */
+    private final int rank;
+
+    /** The entities, versions and references, by keyed part and id. */
+    private final List<Map<String, Object>> values = new ArrayList<>();
+
+    /** The multimap entries, by multimap. */
+    private final List<ListMultimap<String, Object>> entries =
+      new ArrayList<>();
+
+    /** The frames, by frame collection. */
+    private final List<List<Object>> frames = new ArrayList<>();
+
+    private LocalDateTime publicationTimestamp;
+
+    private Contribution(String source, int rank) {
+      this.source = source;
+      this.rank = rank;
+      for (int part = 0; part < KEYED_PARTS; part++) {
+        values.add(new HashMap<>());
+      }
+      for (int i = 0; i < MULTIMAP_INDEXES.size(); i++) {
+        entries.add(ArrayListMultimap.create());
+      }
+      for (int i = 0; i < FRAMES.size(); i++) {
+        frames.add(new ArrayList<>());
+      }
+    }
+  }
+}
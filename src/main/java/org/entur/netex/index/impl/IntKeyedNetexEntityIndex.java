@@ -0,0 +1,31 @@
+package org.entur.netex.index.impl;
+
+import java.util.Collection;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * Entities by the int of their id in a {@link NetexIdDictionary}, held in an array.
+ */
+public final class IntKeyedNetexEntityIndex<V extends EntityStructure> {
+
+  private final Object[] entities;
+
+  IntKeyedNetexEntityIndex(
+    NetexIdDictionary dictionary,
+    Collection<V> entities
+  ) {
+    this.entities = new Object[dictionary.size()];
+    for (V entity : entities) {
+      int index = dictionary.indexOf(entity.getId());
+      if (index != NetexIdDictionary.NO_ID) {
+        this.entities[index] = entity;
+      }
+    }
+  }
+
+  /** Return the entity with the given int id, or null if there is none. */
+  @SuppressWarnings("unchecked")
+  public V get(int index) {
+    return index >= 0 && index < entities.length ? (V) entities[index] : null;
+  }
+}
@@ -0,0 +1,34 @@
+package org.entur.netex.index.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * References from one id to another, such as the stop place id of each quay id, with
+ * both ids encoded by a {@link NetexIdDictionary} and held in an array.
+ */
+public final class IntReferenceIndex {
+
+  private final int[] targets;
+
+  IntReferenceIndex(
+    NetexIdDictionary dictionary,
+    Map<String, String> references
+  ) {
+    this.targets = new int[dictionary.size()];
+    Arrays.fill(targets, NetexIdDictionary.NO_ID);
+    references.forEach((source, target) ->
+      targets[dictionary.indexOf(source)] = dictionary.indexOf(target)
+    );
+  }
+
+  /**
+   * Return the int id referenced by the given int id, or {@link NetexIdDictionary#NO_ID}
+   * if there is none.
+   */
+  public int get(int index) {
+    return index >= 0 && index < targets.length
+      ? targets[index]
+      : NetexIdDictionary.NO_ID;
+  }
+}
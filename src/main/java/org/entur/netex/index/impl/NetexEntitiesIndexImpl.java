@@ -1,8 +1,6 @@
 package org.entur.netex.index.impl;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashSet;
@@ -124,15 +122,24 @@ public class NetexEntitiesIndexImpl implements NetexEntitiesIndex {
    * Create a root node.
    */
   public NetexEntitiesIndexImpl() {
+    this(false);
+  }
+
+  /**
+   * Create a root node.
+   *
+   * @param latestVersionsOnly keep only the latest version of the versioned entities,
+   *                           such as stop places and quays
+   */
+  public NetexEntitiesIndexImpl(boolean latestVersionsOnly) {
     this.authoritiesById = new NetexEntityMapByIdImpl<>();
     this.dayTypeById = new NetexEntityMapByIdImpl<>();
-    this.dayTypeAssignmentByDayTypeId =
-      Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+    this.dayTypeAssignmentByDayTypeId = ConcurrentListMultimap.create();
     this.passengerStopAssignmentByStopPointRef =
-      Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+      ConcurrentListMultimap.create();
     this.datedServiceJourneys = new NetexEntityMapByIdImpl<>();
     this.datedServiceJourneyByServiceJourneyRefIndex =
-      Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+      ConcurrentListMultimap.create();
     this.deadRuns = new NetexEntityMapByIdImpl<>();
     this.destinationDisplayById = new NetexEntityMapByIdImpl<>();
     this.flexibleStopPlaceById = new NetexEntityMapByIdImpl<>();
@@ -150,7 +157,7 @@ public class NetexEntitiesIndexImpl implements NetexEntitiesIndex {
     this.operatingPeriodById = new NetexEntityMapByIdImpl<>();
     this.operatorsById = new NetexEntityMapByIdImpl<>();
     this.brandingsById = new NetexEntityMapByIdImpl<>();
-    this.quayById = new VersionedNetexEntityIndexImpl<>();
+    this.quayById = new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
     this.flexibleStopPlaceByStopPointRef = new ConcurrentHashMap<>();
     this.quayIdByStopPointRef = new ConcurrentHashMap<>();
     this.stopPlaceIdByStopPointRef = new ConcurrentHashMap<>();
@@ -159,17 +166,22 @@ public class NetexEntitiesIndexImpl implements NetexEntitiesIndex {
     this.serviceJourneyById = new NetexEntityMapByIdImpl<>();
     this.serviceJourneyInterchangeById = new NetexEntityMapByIdImpl<>();
     this.serviceJourneyInterchangeByServiceJourneyRef =
-      Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+      ConcurrentListMultimap.create();
     this.serviceLinkById = new NetexEntityMapByIdImpl<>();
-    this.stopPlaceById = new VersionedNetexEntityIndexImpl<>();
-    this.tariffZonesById = new VersionedNetexEntityIndexImpl<>();
-    this.topographicPlaceById = new VersionedNetexEntityIndexImpl<>();
-    this.parkingById = new VersionedNetexEntityIndexImpl<>();
-    this.scheduledStopPointById = new VersionedNetexEntityIndexImpl<>();
+    this.stopPlaceById =
+      new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
+    this.tariffZonesById =
+      new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
+    this.topographicPlaceById =
+      new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
+    this.parkingById = new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
+    this.scheduledStopPointById =
+      new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
     this.routePointById = new NetexEntityMapByIdImpl<>();
     this.blockById = new NetexEntityMapByIdImpl<>();
-    this.fareZoneById = new VersionedNetexEntityIndexImpl<>();
-    this.groupOfTariffZonesById = new VersionedNetexEntityIndexImpl<>();
+    this.fareZoneById = new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
+    this.groupOfTariffZonesById =
+      new VersionedNetexEntityIndexImpl<>(latestVersionsOnly);
     this.compositeFrames = new HashSet<>();
     this.siteFrames = new HashSet<>();
     this.resourceFrames = new HashSet<>();
@@ -177,8 +189,7 @@ public class NetexEntitiesIndexImpl implements NetexEntitiesIndex {
     this.serviceCalendarFrames = new HashSet<>();
     this.vehicleScheduleFrames = new HashSet<>();
     this.timetableFrames = new HashSet<>();
-    this.parkingsByParentSiteRef =
-      Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+    this.parkingsByParentSiteRef = ConcurrentListMultimap.create();
   }
 
   @Override
@@ -440,4 +451,12 @@ public class NetexEntitiesIndexImpl implements NetexEntitiesIndex {
   public Multimap<String, Parking> getParkingsByParentSiteRefIndex() {
     return parkingsByParentSiteRef;
   }
+
+  /**
+   * Return a read-only copy of this index, with a smaller memory footprint and lock-free
+   * reads. This index must not be modified while it is copied.
+   */
+  public ReadOnlyNetexEntitiesIndexImpl toReadOnly() {
+    return new ReadOnlyNetexEntitiesIndexImpl(this);
+  }
 }
@@ -39,4 +39,8 @@ public class NetexEntityMapByIdImpl<V extends EntityStructure>
   public void add(V entity) {
     map.put(entity.getId(), entity);
   }
+
+  Map<String, V> asMap() {
+    return map;
+  }
 }
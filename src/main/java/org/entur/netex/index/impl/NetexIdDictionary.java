@@ -0,0 +1,105 @@
+package org.entur.netex.index.impl;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Dictionary of NeTEx ids, mapping each distinct id to a dense int from 0 to
+ * {@link #size()} - 1. Indexes keyed by these ints are plain arrays, so that joins between
+ * entities are array lookups instead of hash lookups on long string ids.
+ * <p>
+ * Each id is held once, and the indexes built with the dictionary share the same string
+ * instances. The dictionary is filled when a {@link ReadOnlyNetexEntitiesIndexImpl} is
+ * created, and is not modified afterwards.
+ */
+public final class NetexIdDictionary {
+
+  /** Returned for ids that are not in the dictionary. */
+  public static final int NO_ID = -1;
+
+  private String[] ids = new String[16];
+
+  /** Open addressing hash table of the indexes of the ids, with linear probing. */
+  private int[] table = newTable(32);
+
+  private int size;
+
+  /** Return the int of the given id, or {@link #NO_ID} if it is not in the dictionary. */
+  public int indexOf(String id) {
+    if (id == null) {
+      return NO_ID;
+    }
+    int mask = table.length - 1;
+    for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+      int index = table[slot];
+      if (index == NO_ID || ids[index].equals(id)) {
+        return index;
+      }
+    }
+  }
+
+  /** Return the id of the given int. */
+  public String idOf(int index) {
+    Objects.checkIndex(index, size);
+    return ids[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Add the id if it is not in the dictionary yet, and return its int. */
+  int add(String id) {
+    Objects.requireNonNull(id, "id");
+    int mask = table.length - 1;
+    int slot = hash(id) & mask;
+    for (; table[slot] != NO_ID; slot = (slot + 1) & mask) {
+      if (ids[table[slot]].equals(id)) {
+        return table[slot];
+      }
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    ids[size] = id;
+    table[slot] = size;
+    size++;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return size - 1;
+  }
+
+  /** Return the instance held by the dictionary for the given id, adding it if needed. */
+  String canonical(String id) {
+    return id == null ? null : ids[add(id)];
+  }
+
+  /** Release the unused capacity, once all the ids are added. */
+  void trimToSize() {
+    ids = Arrays.copyOf(ids, size);
+  }
+
+  private void rehash(int capacity) {
+    table = newTable(capacity);
+    int mask = capacity - 1;
+    for (int index = 0; index < size; index++) {
+      int slot = hash(ids[index]) & mask;
+      while (table[slot] != NO_ID) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = index;
+    }
+  }
+
+  private static int hash(String id) {
+    int hash = id.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int[] newTable(int capacity) {
+    int[] table = new int[capacity];
+    Arrays.fill(table, NO_ID);
+    return table;
+  }
+}
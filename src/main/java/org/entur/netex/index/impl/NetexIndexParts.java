@@ -0,0 +1,140 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.Multimap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * The indexes, maps and collections a {@link NetexEntitiesIndex} is made of, for the
+ * operations that apply to all of them, such as snapshots and provenance tracking.
+ */
+public final class NetexIndexParts {
+
+  /** The indexes of the entities, by id. */
+  public static final List<Function<NetexEntitiesIndex, NetexEntityIndex<?>>> ENTITY_INDEXES =
+    List.of(
+      NetexEntitiesIndex::getGroupOfLinesIndex,
+      NetexEntitiesIndex::getNetworkIndex,
+      NetexEntitiesIndex::getAuthorityIndex,
+      NetexEntitiesIndex::getDayTypeIndex,
+      NetexEntitiesIndex::getDatedServiceJourneyIndex,
+      NetexEntitiesIndex::getDeadRunIndex,
+      NetexEntitiesIndex::getDestinationDisplayIndex,
+      NetexEntitiesIndex::getFlexibleStopPlaceIndex,
+      NetexEntitiesIndex::getGroupOfStopPlacesIndex,
+      NetexEntitiesIndex::getJourneyPatternIndex,
+      NetexEntitiesIndex::getServiceJourneyPatternIndex,
+      NetexEntitiesIndex::getFlexibleLineIndex,
+      NetexEntitiesIndex::getLineIndex,
+      NetexEntitiesIndex::getNoticeIndex,
+      NetexEntitiesIndex::getNoticeAssignmentIndex,
+      NetexEntitiesIndex::getOperatingDayIndex,
+      NetexEntitiesIndex::getOperatingPeriodIndex,
+      NetexEntitiesIndex::getOperatorIndex,
+      NetexEntitiesIndex::getBrandingIndex,
+      NetexEntitiesIndex::getRouteIndex,
+      NetexEntitiesIndex::getServiceJourneyIndex,
+      NetexEntitiesIndex::getServiceJourneyInterchangeIndex,
+      NetexEntitiesIndex::getServiceLinkIndex,
+      NetexEntitiesIndex::getRoutePointIndex,
+      NetexEntitiesIndex::getBlockIndex
+    );
+
+  /** The indexes of the versioned entities, by id. */
+  public static final List<Function<NetexEntitiesIndex, VersionedNetexEntityIndex<?>>> VERSIONED_INDEXES =
+    List.of(
+      NetexEntitiesIndex::getQuayIndex,
+      NetexEntitiesIndex::getStopPlaceIndex,
+      NetexEntitiesIndex::getTariffZoneIndex,
+      NetexEntitiesIndex::getTopographicPlaceIndex,
+      NetexEntitiesIndex::getParkingIndex,
+      NetexEntitiesIndex::getScheduledStopPointIndex,
+      NetexEntitiesIndex::getFareZoneIndex,
+      NetexEntitiesIndex::getGroupOfTariffZonesIndex
+    );
+
+  /** The maps from the id of an entity to the id of the entity it refers to. */
+  public static final List<Function<NetexEntitiesIndex, Map<String, String>>> REFERENCE_INDEXES =
+    List.of(
+      NetexEntitiesIndex::getNetworkIdByGroupOfLineIdIndex,
+      NetexEntitiesIndex::getQuayIdByStopPointRefIndex,
+      NetexEntitiesIndex::getStopPlaceIdByStopPointRefIndex,
+      NetexEntitiesIndex::getStopPlaceIdByQuayIdIndex,
+      NetexEntitiesIndex::getFlexibleStopPlaceIdByStopPointRefIndex
+    );
+
+  /** The entities grouped by the id of the entity they refer to. */
+  public static final List<Function<NetexEntitiesIndex, Multimap<String, ?>>> MULTIMAP_INDEXES =
+    List.of(
+      NetexEntitiesIndex::getDayTypeAssignmentsByDayTypeIdIndex,
+      NetexEntitiesIndex::getPassengerStopAssignmentsByStopPointRefIndex,
+      NetexEntitiesIndex::getDatedServiceJourneyByServiceJourneyRefIndex,
+      NetexEntitiesIndex::getServiceJourneyInterchangeByServiceJourneyRefIndex,
+      NetexEntitiesIndex::getParkingsByParentSiteRefIndex
+    );
+
+  /** The frames retained by the index. */
+  public static final List<Function<NetexEntitiesIndex, Collection<?>>> FRAMES =
+    List.of(
+      NetexEntitiesIndex::getCompositeFrames,
+      NetexEntitiesIndex::getResourceFrames,
+      NetexEntitiesIndex::getSiteFrames,
+      NetexEntitiesIndex::getServiceFrames,
+      NetexEntitiesIndex::getServiceCalendarFrames,
+      NetexEntitiesIndex::getVehicleScheduleFrames,
+      NetexEntitiesIndex::getTimetableFrames
+    );
+
+  private NetexIndexParts() {}
+
+  /**
+   * Add the content of the source index to the target index, as if the documents of the
+   * source were loaded after the documents of the target. The entities are shared by the
+   * two indexes, not copied.
+   */
+  public static void putAll(
+    NetexEntitiesIndex source,
+    NetexEntitiesIndex target
+  ) {
+    for (var entityIndex : ENTITY_INDEXES) {
+      NetexEntityIndex<EntityStructure> entities = cast(
+        entityIndex.apply(target)
+      );
+      entities.putAll(cast(entityIndex.apply(source).getAll()));
+    }
+    for (var versionedIndex : VERSIONED_INDEXES) {
+      VersionedNetexEntityIndex<EntityStructure> entities = cast(
+        versionedIndex.apply(target)
+      );
+      Map<String, Collection<EntityStructure>> added = cast(
+        versionedIndex.apply(source).getAllVersions()
+      );
+      added.forEach(entities::put);
+    }
+    for (var referenceIndex : REFERENCE_INDEXES) {
+      referenceIndex.apply(target).putAll(referenceIndex.apply(source));
+    }
+    for (var multimapIndex : MULTIMAP_INDEXES) {
+      Multimap<String, Object> multimap = cast(multimapIndex.apply(target));
+      multimap.putAll(multimapIndex.apply(source));
+    }
+    for (var frames : FRAMES) {
+      Collection<Object> targetFrames = cast(frames.apply(target));
+      targetFrames.addAll(frames.apply(source));
+    }
+    if (source.getPublicationTimestamp() != null) {
+      target.setPublicationTimestamp(source.getPublicationTimestamp());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T cast(Object value) {
+    return (T) value;
+  }
+}
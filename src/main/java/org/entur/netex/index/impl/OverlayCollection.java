@@ -0,0 +1,98 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.Iterators;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * View of the elements of a base collection followed by the elements of an overlay
+ * collection, see {@link OverlayNetexEntitiesIndexImpl}. Elements are added to the overlay,
+ * and only the elements of the overlay can be removed through the iterator.
+ * <p>
+ * {@link #size()} and {@link #isEmpty()} iterate over the base when some of its elements
+ * may be hidden.
+ */
+class OverlayCollection<E> extends AbstractCollection<E> {
+
+  private final Collection<? extends E> base;
+  private final Collection<E> overlay;
+
+  /** Whether an element of the base is visible, or replaced by the overlay. */
+  private final Predicate<? super E> visibleInBase;
+
+  /**
+   * Whether an element of the base is only hidden by an element of the overlay
+   * collection, so that none is hidden while the overlay collection is empty.
+   */
+  private final boolean hiddenByOverlayElements;
+
+  OverlayCollection(Collection<? extends E> base, Collection<E> overlay) {
+    this(base, overlay, null, true);
+  }
+
+  OverlayCollection(
+    Collection<? extends E> base,
+    Collection<E> overlay,
+    Predicate<? super E> visibleInBase
+  ) {
+    this(base, overlay, visibleInBase, false);
+  }
+
+  OverlayCollection(
+    Collection<? extends E> base,
+    Collection<E> overlay,
+    Predicate<? super E> visibleInBase,
+    boolean hiddenByOverlayElements
+  ) {
+    this.base = base;
+    this.overlay = overlay;
+    this.visibleInBase = visibleInBase;
+    this.hiddenByOverlayElements = hiddenByOverlayElements;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    Iterator<? extends E> baseElements = visibleInBase == null
+      ? base.iterator()
+      : Iterators.filter(base.iterator(), visibleInBase::test);
+    return Iterators.concat(
+      Iterators.unmodifiableIterator(baseElements),
+      overlay.iterator()
+    );
+  }
+
+  @Override
+  public int size() {
+    if (!mayHideBaseElements()) {
+      return base.size() + overlay.size();
+    }
+    int size = overlay.size();
+    for (E element : base) {
+      if (visibleInBase.test(element)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    if (!overlay.isEmpty()) {
+      return false;
+    }
+    return mayHideBaseElements() ? !iterator().hasNext() : base.isEmpty();
+  }
+
+  @Override
+  public boolean add(E element) {
+    return overlay.add(element);
+  }
+
+  private boolean mayHideBaseElements() {
+    return (
+      visibleInBase != null && !(hiddenByOverlayElements && overlay.isEmpty())
+    );
+  }
+}
@@ -0,0 +1,80 @@
+package org.entur.netex.index.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Map} layered over a base map, see {@link OverlayNetexEntitiesIndexImpl}. The
+ * entries of the overlay replace the entries of the base with the same key. Entries are
+ * put into the overlay, and only the entries of the overlay can be removed.
+ */
+class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+  private final Map<K, V> base;
+  private final Map<K, V> overlay;
+
+  /** The entries of the base that are not replaced, and the entries of the overlay. */
+  private final OverlayCollection<Entry<K, V>> entries;
+
+  OverlayMap(Map<K, V> base, Map<K, V> overlay) {
+    this.base = base;
+    this.overlay = overlay;
+    this.entries =
+      new OverlayCollection<>(
+        base.entrySet(),
+        overlay.entrySet(),
+        entry -> !overlay.containsKey(entry.getKey()),
+        true
+      );
+  }
+
+  @Override
+  public V get(Object key) {
+    V value = overlay.get(key);
+    return value == null ? base.get(key) : value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return overlay.containsKey(key) || base.containsKey(key);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    V previous = get(key);
+    overlay.put(key, value);
+    return previous;
+  }
+
+  /**
+   * Remove the entry from the overlay. If the entry replaces an entry of the base, the
+   * entry of the base is visible again.
+   *
+   * @throws UnsupportedOperationException if the key is only in the base
+   */
+  @Override
+  public V remove(Object key) {
+    if (!overlay.containsKey(key) && base.containsKey(key)) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+    return overlay.remove(key);
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return entries.iterator();
+      }
+
+      @Override
+      public int size() {
+        return entries.size();
+      }
+    };
+  }
+}
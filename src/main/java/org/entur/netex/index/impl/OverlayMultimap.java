@@ -0,0 +1,180 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Multimap} layered over a base multimap, see {@link OverlayNetexEntitiesIndexImpl}.
+ * The values of a key are the values of the base followed by the values of the overlay,
+ * as when the documents of the overlay are loaded after the documents of the base. Values
+ * are added to the overlay, and only the values of the overlay can be removed.
+ */
+class OverlayMultimap<K, V> implements Multimap<K, V> {
+
+  private final Multimap<K, V> base;
+  private final Multimap<K, V> overlay;
+
+  OverlayMultimap(Multimap<K, V> base, Multimap<K, V> overlay) {
+    this.base = base;
+    this.overlay = overlay;
+  }
+
+  @Override
+  public int size() {
+    return base.size() + overlay.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return base.isEmpty() && overlay.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return overlay.containsKey(key) || base.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return overlay.containsValue(value) || base.containsValue(value);
+  }
+
+  @Override
+  public boolean containsEntry(Object key, Object value) {
+    return (
+      overlay.containsEntry(key, value) || base.containsEntry(key, value)
+    );
+  }
+
+  @Override
+  public boolean put(K key, V value) {
+    return overlay.put(key, value);
+  }
+
+  /**
+   * Remove the value from the overlay.
+   *
+   * @throws UnsupportedOperationException if the value is only in the base
+   */
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (overlay.remove(key, value)) {
+      return true;
+    }
+    if (base.containsEntry(key, value)) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+    return false;
+  }
+
+  @Override
+  public boolean putAll(K key, Iterable<? extends V> values) {
+    return overlay.putAll(key, values);
+  }
+
+  @Override
+  public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+    return overlay.putAll(multimap);
+  }
+
+  /**
+   * @throws UnsupportedOperationException if the key is in the base
+   */
+  @Override
+  public Collection<V> replaceValues(K key, Iterable<? extends V> values) {
+    checkNotInBase(key);
+    return overlay.replaceValues(key, values);
+  }
+
+  /**
+   * @throws UnsupportedOperationException if the key is in the base
+   */
+  @Override
+  public Collection<V> removeAll(Object key) {
+    checkNotInBase(key);
+    return overlay.removeAll(key);
+  }
+
+  /**
+   * @throws UnsupportedOperationException if the base is not empty
+   */
+  @Override
+  public void clear() {
+    if (!base.isEmpty()) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+    overlay.clear();
+  }
+
+  /**
+   * Return a view of the values of the key. Values added to the view are added to the
+   * overlay.
+   */
+  @Override
+  public Collection<V> get(K key) {
+    return new OverlayCollection<>(base.get(key), overlay.get(key));
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return Sets.union(base.keySet(), overlay.keySet());
+  }
+
+  /** Return a snapshot of the keys, each key occurring once per value. */
+  @Override
+  public Multiset<K> keys() {
+    return ImmutableMultiset
+      .<K>builder()
+      .addAll(base.keys())
+      .addAll(overlay.keys())
+      .build();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new OverlayCollection<>(base.values(), overlay.values());
+  }
+
+  @Override
+  public Collection<Map.Entry<K, V>> entries() {
+    return new OverlayCollection<>(base.entries(), overlay.entries());
+  }
+
+  /** Return a view of the keys, with a copy of the values of each key. */
+  @Override
+  public Map<K, Collection<V>> asMap() {
+    return Maps.asMap(keySet(), key -> ImmutableList.copyOf(get(key)));
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    return (
+      object == this ||
+      (object instanceof Multimap<?, ?> multimap &&
+        asMap().equals(multimap.asMap()))
+    );
+  }
+
+  @Override
+  public int hashCode() {
+    return asMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+
+  private void checkNotInBase(Object key) {
+    if (base.containsKey(key)) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+  }
+}
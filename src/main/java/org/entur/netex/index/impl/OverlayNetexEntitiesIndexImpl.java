@@ -0,0 +1,556 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.Multimap;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.Authority;
+import org.rutebanken.netex.model.Block;
+import org.rutebanken.netex.model.Branding;
+import org.rutebanken.netex.model.CompositeFrame;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DeadRun;
+import org.rutebanken.netex.model.DestinationDisplay;
+import org.rutebanken.netex.model.EntityStructure;
+import org.rutebanken.netex.model.FareZone;
+import org.rutebanken.netex.model.FlexibleLine;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupOfStopPlaces;
+import org.rutebanken.netex.model.GroupOfTariffZones;
+import org.rutebanken.netex.model.JourneyPattern;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
+import org.rutebanken.netex.model.OperatingDay;
+import org.rutebanken.netex.model.OperatingPeriod;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.Parking;
+import org.rutebanken.netex.model.PassengerStopAssignment;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.ResourceFrame;
+import org.rutebanken.netex.model.Route;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ScheduledStopPoint;
+import org.rutebanken.netex.model.ServiceCalendarFrame;
+import org.rutebanken.netex.model.ServiceFrame;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ServiceJourneyPattern;
+import org.rutebanken.netex.model.ServiceLink;
+import org.rutebanken.netex.model.SiteFrame;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TimetableFrame;
+import org.rutebanken.netex.model.TopographicPlace;
+import org.rutebanken.netex.model.VehicleScheduleFrame;
+
+/**
+ * {@link NetexEntitiesIndex} made of a small mutable index layered over a shared base
+ * index, for instance the data of an operator over the national stop place register.
+ * <p>
+ * Lookups fall through to the base when an entity is not in the overlay, without copying
+ * the base: several overlays can share the same base in memory. An entity of the overlay
+ * replaces the entity of the base with the same id, and the multimaps and frames of the
+ * overlay are added to those of the base, as when the documents of the overlay are loaded
+ * after the documents of the base. Documents are loaded into the overlay with
+ * {@link org.entur.netex.NetexParser#parse(String, NetexEntitiesIndex)}, which resolves
+ * the FlexibleStopPlace references of the overlay only.
+ * <p>
+ * The base is never modified through the overlay: removing an entity, a reference or a
+ * value that is only in the base throws an {@link UnsupportedOperationException}. The
+ * base must not be modified while it is shared, it is typically a
+ * {@link ReadOnlyNetexEntitiesIndexImpl}. Collections that hide some entities of the base
+ * iterate over the base to compute their size.
+ */
+public class OverlayNetexEntitiesIndexImpl implements NetexEntitiesIndex {
+
+  private final NetexEntitiesIndex base;
+  private final NetexEntitiesIndex overlay;
+
+  private final NetexEntityIndex<GroupOfLines> groupOfLinesIndex;
+  private final NetexEntityIndex<Network> networkIndex;
+  private final Map<String, String> networkIdByGroupOfLineIdIndex;
+  private final NetexEntityIndex<Authority> authorityIndex;
+  private final NetexEntityIndex<DayType> dayTypeIndex;
+  private final Multimap<String, DayTypeAssignment> dayTypeAssignmentsByDayTypeIdIndex;
+  private final Multimap<String, PassengerStopAssignment> passengerStopAssignmentsByStopPointRefIndex;
+  private final NetexEntityIndex<DatedServiceJourney> datedServiceJourneyIndex;
+  private final NetexEntityIndex<DeadRun> deadRunIndex;
+  private final Multimap<String, DatedServiceJourney> datedServiceJourneyByServiceJourneyRefIndex;
+  private final NetexEntityIndex<DestinationDisplay> destinationDisplayIndex;
+  private final NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceIndex;
+  private final NetexEntityIndex<GroupOfStopPlaces> groupOfStopPlacesIndex;
+  private final NetexEntityIndex<JourneyPattern> journeyPatternIndex;
+  private final NetexEntityIndex<ServiceJourneyPattern> serviceJourneyPatternIndex;
+  private final NetexEntityIndex<FlexibleLine> flexibleLineIndex;
+  private final NetexEntityIndex<Line> lineIndex;
+  private final NetexEntityIndex<Notice> noticeIndex;
+  private final NetexEntityIndex<NoticeAssignment> noticeAssignmentIndex;
+  private final NetexEntityIndex<OperatingDay> operatingDayIndex;
+  private final NetexEntityIndex<OperatingPeriod> operatingPeriodIndex;
+  private final NetexEntityIndex<Operator> operatorIndex;
+  private final NetexEntityIndex<Branding> brandingIndex;
+  private final VersionedNetexEntityIndex<Quay> quayIndex;
+  private final Map<String, String> quayIdByStopPointRefIndex;
+  private final Map<String, String> stopPlaceIdByStopPointRefIndex;
+  private final Map<String, String> stopPlaceIdByQuayIdIndex;
+  private final Map<String, String> flexibleStopPlaceIdByStopPointRefIndex;
+  private final NetexEntityIndex<Route> routeIndex;
+  private final NetexEntityIndex<ServiceJourney> serviceJourneyIndex;
+  private final NetexEntityIndex<ServiceJourneyInterchange> serviceJourneyInterchangeIndex;
+  private final Multimap<String, ServiceJourneyInterchange> serviceJourneyInterchangeByServiceJourneyRefIndex;
+  private final NetexEntityIndex<ServiceLink> serviceLinkIndex;
+  private final VersionedNetexEntityIndex<StopPlace> stopPlaceIndex;
+  private final VersionedNetexEntityIndex<TariffZone> tariffZoneIndex;
+  private final VersionedNetexEntityIndex<TopographicPlace> topographicPlaceIndex;
+  private final VersionedNetexEntityIndex<Parking> parkingIndex;
+  private final VersionedNetexEntityIndex<ScheduledStopPoint> scheduledStopPointIndex;
+  private final NetexEntityIndex<RoutePoint> routePointIndex;
+  private final NetexEntityIndex<Block> blockIndex;
+  private final Multimap<String, Parking> parkingsByParentSiteRefIndex;
+  private final VersionedNetexEntityIndex<FareZone> fareZoneIndex;
+  private final VersionedNetexEntityIndex<GroupOfTariffZones> groupOfTariffZonesIndex;
+  private final Collection<CompositeFrame> compositeFrames;
+  private final Collection<ResourceFrame> resourceFrames;
+  private final Collection<SiteFrame> siteFrames;
+  private final Collection<ServiceFrame> serviceFrames;
+  private final Collection<ServiceCalendarFrame> serviceCalendarFrames;
+  private final Collection<VehicleScheduleFrame> vehicleScheduleFrames;
+  private final Collection<TimetableFrame> timetableFrames;
+
+  /**
+   * Create an overlay over the given base, with a new empty index as overlay.
+   */
+  public OverlayNetexEntitiesIndexImpl(NetexEntitiesIndex base) {
+    this(base, new NetexEntitiesIndexImpl());
+  }
+
+  /**
+   * Layer the given overlay index over the given base index.
+   */
+  public OverlayNetexEntitiesIndexImpl(
+    NetexEntitiesIndex base,
+    NetexEntitiesIndex overlay
+  ) {
+    this.base = base;
+    this.overlay = overlay;
+    this.groupOfLinesIndex =
+      overlayOfIndex(NetexEntitiesIndex::getGroupOfLinesIndex);
+    this.networkIndex = overlayOfIndex(NetexEntitiesIndex::getNetworkIndex);
+    this.networkIdByGroupOfLineIdIndex =
+      overlayOfReferences(NetexEntitiesIndex::getNetworkIdByGroupOfLineIdIndex);
+    this.authorityIndex = overlayOfIndex(NetexEntitiesIndex::getAuthorityIndex);
+    this.dayTypeIndex = overlayOfIndex(NetexEntitiesIndex::getDayTypeIndex);
+    this.dayTypeAssignmentsByDayTypeIdIndex =
+      overlayOfMultimap(
+        NetexEntitiesIndex::getDayTypeAssignmentsByDayTypeIdIndex
+      );
+    this.passengerStopAssignmentsByStopPointRefIndex =
+      overlayOfMultimap(
+        NetexEntitiesIndex::getPassengerStopAssignmentsByStopPointRefIndex
+      );
+    this.datedServiceJourneyIndex =
+      overlayOfIndex(NetexEntitiesIndex::getDatedServiceJourneyIndex);
+    this.deadRunIndex = overlayOfIndex(NetexEntitiesIndex::getDeadRunIndex);
+    this.datedServiceJourneyByServiceJourneyRefIndex =
+      overlayOfMultimap(
+        NetexEntitiesIndex::getDatedServiceJourneyByServiceJourneyRefIndex
+      );
+    this.destinationDisplayIndex =
+      overlayOfIndex(NetexEntitiesIndex::getDestinationDisplayIndex);
+    this.flexibleStopPlaceIndex =
+      overlayOfIndex(NetexEntitiesIndex::getFlexibleStopPlaceIndex);
+    this.groupOfStopPlacesIndex =
+      overlayOfIndex(NetexEntitiesIndex::getGroupOfStopPlacesIndex);
+    this.journeyPatternIndex =
+      overlayOfIndex(NetexEntitiesIndex::getJourneyPatternIndex);
+    this.serviceJourneyPatternIndex =
+      overlayOfIndex(NetexEntitiesIndex::getServiceJourneyPatternIndex);
+    this.flexibleLineIndex =
+      overlayOfIndex(NetexEntitiesIndex::getFlexibleLineIndex);
+    this.lineIndex = overlayOfIndex(NetexEntitiesIndex::getLineIndex);
+    this.noticeIndex = overlayOfIndex(NetexEntitiesIndex::getNoticeIndex);
+    this.noticeAssignmentIndex =
+      overlayOfIndex(NetexEntitiesIndex::getNoticeAssignmentIndex);
+    this.operatingDayIndex =
+      overlayOfIndex(NetexEntitiesIndex::getOperatingDayIndex);
+    this.operatingPeriodIndex =
+      overlayOfIndex(NetexEntitiesIndex::getOperatingPeriodIndex);
+    this.operatorIndex = overlayOfIndex(NetexEntitiesIndex::getOperatorIndex);
+    this.brandingIndex = overlayOfIndex(NetexEntitiesIndex::getBrandingIndex);
+    this.quayIndex = overlayOfVersionedIndex(NetexEntitiesIndex::getQuayIndex);
+    this.quayIdByStopPointRefIndex =
+      overlayOfReferences(NetexEntitiesIndex::getQuayIdByStopPointRefIndex);
+    this.stopPlaceIdByStopPointRefIndex =
+      overlayOfReferences(
+        NetexEntitiesIndex::getStopPlaceIdByStopPointRefIndex
+      );
+    this.stopPlaceIdByQuayIdIndex =
+      overlayOfReferences(NetexEntitiesIndex::getStopPlaceIdByQuayIdIndex);
+    this.flexibleStopPlaceIdByStopPointRefIndex =
+      overlayOfReferences(
+        NetexEntitiesIndex::getFlexibleStopPlaceIdByStopPointRefIndex
+      );
+    this.routeIndex = overlayOfIndex(NetexEntitiesIndex::getRouteIndex);
+    this.serviceJourneyIndex =
+      overlayOfIndex(NetexEntitiesIndex::getServiceJourneyIndex);
+    this.serviceJourneyInterchangeIndex =
+      overlayOfIndex(NetexEntitiesIndex::getServiceJourneyInterchangeIndex);
+    this.serviceJourneyInterchangeByServiceJourneyRefIndex =
+      overlayOfMultimap(
+        NetexEntitiesIndex::getServiceJourneyInterchangeByServiceJourneyRefIndex
+      );
+    this.serviceLinkIndex =
+      overlayOfIndex(NetexEntitiesIndex::getServiceLinkIndex);
+    this.stopPlaceIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getStopPlaceIndex);
+    this.tariffZoneIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getTariffZoneIndex);
+    this.topographicPlaceIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getTopographicPlaceIndex);
+    this.parkingIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getParkingIndex);
+    this.scheduledStopPointIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getScheduledStopPointIndex);
+    this.routePointIndex =
+      overlayOfIndex(NetexEntitiesIndex::getRoutePointIndex);
+    this.blockIndex = overlayOfIndex(NetexEntitiesIndex::getBlockIndex);
+    this.parkingsByParentSiteRefIndex =
+      overlayOfMultimap(NetexEntitiesIndex::getParkingsByParentSiteRefIndex);
+    this.fareZoneIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getFareZoneIndex);
+    this.groupOfTariffZonesIndex =
+      overlayOfVersionedIndex(NetexEntitiesIndex::getGroupOfTariffZonesIndex);
+    this.compositeFrames =
+      overlayOfFrames(NetexEntitiesIndex::getCompositeFrames);
+    this.resourceFrames =
+      overlayOfFrames(NetexEntitiesIndex::getResourceFrames);
+    this.siteFrames = overlayOfFrames(NetexEntitiesIndex::getSiteFrames);
+    this.serviceFrames = overlayOfFrames(NetexEntitiesIndex::getServiceFrames);
+    this.serviceCalendarFrames =
+      overlayOfFrames(NetexEntitiesIndex::getServiceCalendarFrames);
+    this.vehicleScheduleFrames =
+      overlayOfFrames(NetexEntitiesIndex::getVehicleScheduleFrames);
+    this.timetableFrames =
+      overlayOfFrames(NetexEntitiesIndex::getTimetableFrames);
+  }
+
+  /** Return the shared base index. */
+  public NetexEntitiesIndex getBase() {
+    return base;
+  }
+
+  /** Return the index holding the entities added to this index. */
+  public NetexEntitiesIndex getOverlay() {
+    return overlay;
+  }
+
+  @Override
+  public NetexEntityIndex<GroupOfLines> getGroupOfLinesIndex() {
+    return groupOfLinesIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Network> getNetworkIndex() {
+    return networkIndex;
+  }
+
+  @Override
+  public Map<String, String> getNetworkIdByGroupOfLineIdIndex() {
+    return networkIdByGroupOfLineIdIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Authority> getAuthorityIndex() {
+    return authorityIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DayType> getDayTypeIndex() {
+    return dayTypeIndex;
+  }
+
+  @Override
+  public Multimap<String, DayTypeAssignment> getDayTypeAssignmentsByDayTypeIdIndex() {
+    return dayTypeAssignmentsByDayTypeIdIndex;
+  }
+
+  @Override
+  public Multimap<String, PassengerStopAssignment> getPassengerStopAssignmentsByStopPointRefIndex() {
+    return passengerStopAssignmentsByStopPointRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DatedServiceJourney> getDatedServiceJourneyIndex() {
+    return datedServiceJourneyIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DeadRun> getDeadRunIndex() {
+    return deadRunIndex;
+  }
+
+  @Override
+  public Multimap<String, DatedServiceJourney> getDatedServiceJourneyByServiceJourneyRefIndex() {
+    return datedServiceJourneyByServiceJourneyRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DestinationDisplay> getDestinationDisplayIndex() {
+    return destinationDisplayIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<FlexibleStopPlace> getFlexibleStopPlaceIndex() {
+    return flexibleStopPlaceIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<GroupOfStopPlaces> getGroupOfStopPlacesIndex() {
+    return groupOfStopPlacesIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<JourneyPattern> getJourneyPatternIndex() {
+    return journeyPatternIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourneyPattern> getServiceJourneyPatternIndex() {
+    return serviceJourneyPatternIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<FlexibleLine> getFlexibleLineIndex() {
+    return flexibleLineIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Line> getLineIndex() {
+    return lineIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Notice> getNoticeIndex() {
+    return noticeIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<NoticeAssignment> getNoticeAssignmentIndex() {
+    return noticeAssignmentIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<OperatingDay> getOperatingDayIndex() {
+    return operatingDayIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<OperatingPeriod> getOperatingPeriodIndex() {
+    return operatingPeriodIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Operator> getOperatorIndex() {
+    return operatorIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Branding> getBrandingIndex() {
+    return brandingIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<Quay> getQuayIndex() {
+    return quayIndex;
+  }
+
+  @Override
+  public Map<String, String> getQuayIdByStopPointRefIndex() {
+    return quayIdByStopPointRefIndex;
+  }
+
+  @Override
+  public Map<String, String> getStopPlaceIdByStopPointRefIndex() {
+    return stopPlaceIdByStopPointRefIndex;
+  }
+
+  @Override
+  public Map<String, String> getStopPlaceIdByQuayIdIndex() {
+    return stopPlaceIdByQuayIdIndex;
+  }
+
+  @Override
+  public Map<String, String> getFlexibleStopPlaceIdByStopPointRefIndex() {
+    return flexibleStopPlaceIdByStopPointRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Route> getRouteIndex() {
+    return routeIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourney> getServiceJourneyIndex() {
+    return serviceJourneyIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourneyInterchange> getServiceJourneyInterchangeIndex() {
+    return serviceJourneyInterchangeIndex;
+  }
+
+  @Override
+  public Multimap<String, ServiceJourneyInterchange> getServiceJourneyInterchangeByServiceJourneyRefIndex() {
+    return serviceJourneyInterchangeByServiceJourneyRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceLink> getServiceLinkIndex() {
+    return serviceLinkIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<StopPlace> getStopPlaceIndex() {
+    return stopPlaceIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<TariffZone> getTariffZoneIndex() {
+    return tariffZoneIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<TopographicPlace> getTopographicPlaceIndex() {
+    return topographicPlaceIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<Parking> getParkingIndex() {
+    return parkingIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<ScheduledStopPoint> getScheduledStopPointIndex() {
+    return scheduledStopPointIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<RoutePoint> getRoutePointIndex() {
+    return routePointIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Block> getBlockIndex() {
+    return blockIndex;
+  }
+
+  @Override
+  public Multimap<String, Parking> getParkingsByParentSiteRefIndex() {
+    return parkingsByParentSiteRefIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<FareZone> getFareZoneIndex() {
+    return fareZoneIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<GroupOfTariffZones> getGroupOfTariffZonesIndex() {
+    return groupOfTariffZonesIndex;
+  }
+
+  @Override
+  public Collection<CompositeFrame> getCompositeFrames() {
+    return compositeFrames;
+  }
+
+  @Override
+  public Collection<ResourceFrame> getResourceFrames() {
+    return resourceFrames;
+  }
+
+  @Override
+  public Collection<SiteFrame> getSiteFrames() {
+    return siteFrames;
+  }
+
+  @Override
+  public Collection<ServiceFrame> getServiceFrames() {
+    return serviceFrames;
+  }
+
+  @Override
+  public Collection<ServiceCalendarFrame> getServiceCalendarFrames() {
+    return serviceCalendarFrames;
+  }
+
+  @Override
+  public Collection<VehicleScheduleFrame> getVehicleScheduleFrames() {
+    return vehicleScheduleFrames;
+  }
+
+  @Override
+  public Collection<TimetableFrame> getTimetableFrames() {
+    return timetableFrames;
+  }
+
+  @Override
+  public LocalDateTime getPublicationTimestamp() {
+    LocalDateTime publicationTimestamp = overlay.getPublicationTimestamp();
+    return publicationTimestamp == null
+      ? base.getPublicationTimestamp()
+      : publicationTimestamp;
+  }
+
+  @Override
+  public void setPublicationTimestamp(LocalDateTime publicationTimestamp) {
+    overlay.setPublicationTimestamp(publicationTimestamp);
+  }
+
+  private <V extends EntityStructure> NetexEntityIndex<V> overlayOfIndex(
+    Function<NetexEntitiesIndex, NetexEntityIndex<V>> part
+  ) {
+    return new OverlayNetexEntityIndexImpl<>(
+      part.apply(base),
+      part.apply(overlay)
+    );
+  }
+
+  private <
+    V extends EntityStructure
+  > VersionedNetexEntityIndex<V> overlayOfVersionedIndex(
+    Function<NetexEntitiesIndex, VersionedNetexEntityIndex<V>> part
+  ) {
+    return new OverlayVersionedNetexEntityIndexImpl<>(
+      part.apply(base),
+      part.apply(overlay)
+    );
+  }
+
+  private Map<String, String> overlayOfReferences(
+    Function<NetexEntitiesIndex, Map<String, String>> part
+  ) {
+    return new OverlayMap<>(part.apply(base), part.apply(overlay));
+  }
+
+  private <V> Multimap<String, V> overlayOfMultimap(
+    Function<NetexEntitiesIndex, Multimap<String, V>> part
+  ) {
+    return new OverlayMultimap<>(part.apply(base), part.apply(overlay));
+  }
+
+  private <V> Collection<V> overlayOfFrames(
+    Function<NetexEntitiesIndex, Collection<V>> part
+  ) {
+    return new OverlayCollection<>(part.apply(base), part.apply(overlay));
+  }
+}
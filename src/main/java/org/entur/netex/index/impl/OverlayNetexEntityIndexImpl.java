@@ -0,0 +1,72 @@
+package org.entur.netex.index.impl;
+
+import java.util.Collection;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * {@link NetexEntityIndex} layered over a base index, see
+ * {@link OverlayNetexEntitiesIndexImpl}.
+ */
+class OverlayNetexEntityIndexImpl<V extends EntityStructure>
+  implements NetexEntityIndex<V> {
+
+  private final NetexEntityIndex<V> base;
+  private final NetexEntityIndex<V> overlay;
+
+  private final Collection<V> all;
+
+  OverlayNetexEntityIndexImpl(
+    NetexEntityIndex<V> base,
+    NetexEntityIndex<V> overlay
+  ) {
+    this.base = base;
+    this.overlay = overlay;
+    this.all =
+      new OverlayCollection<>(
+        base.getAll(),
+        overlay.getAll(),
+        entity -> overlay.get(entity.getId()) == null,
+        true
+      );
+  }
+
+  @Override
+  public V get(String id) {
+    V entity = overlay.get(id);
+    return entity == null ? base.get(id) : entity;
+  }
+
+  /**
+   * Return a view of the entities of the base that are not replaced by the overlay,
+   * followed by the entities of the overlay.
+   */
+  @Override
+  public Collection<V> getAll() {
+    return all;
+  }
+
+  @Override
+  public void put(String id, V entity) {
+    overlay.put(id, entity);
+  }
+
+  @Override
+  public void putAll(Collection<V> entities) {
+    overlay.putAll(entities);
+  }
+
+  /**
+   * Remove the entity from the overlay. If the entity replaces an entity of the base, the
+   * entity of the base is visible again.
+   *
+   * @throws UnsupportedOperationException if the entity is only defined in the base
+   */
+  @Override
+  public void remove(String id) {
+    if (overlay.get(id) == null && base.get(id) != null) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+    overlay.remove(id);
+  }
+}
@@ -0,0 +1,123 @@
+package org.entur.netex.index.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * {@link VersionedNetexEntityIndex} layered over a base index, see
+ * {@link OverlayNetexEntitiesIndexImpl}. The versions of an entity are taken either from
+ * the overlay or from the base, they are not merged.
+ */
+class OverlayVersionedNetexEntityIndexImpl<V extends EntityStructure>
+  implements VersionedNetexEntityIndex<V> {
+
+  private final VersionedNetexEntityIndex<V> base;
+  private final VersionedNetexEntityIndex<V> overlay;
+
+  OverlayVersionedNetexEntityIndexImpl(
+    VersionedNetexEntityIndex<V> base,
+    VersionedNetexEntityIndex<V> overlay
+  ) {
+    this.base = base;
+    this.overlay = overlay;
+  }
+
+  @Override
+  public V getLatestVersion(String id) {
+    V entity = overlay.getLatestVersion(id);
+    return entity == null ? base.getLatestVersion(id) : entity;
+  }
+
+  @Override
+  public V getVersion(String id, String version) {
+    return indexOf(id).getVersion(id, version);
+  }
+
+  @Override
+  public Collection<V> getLatestVersions() {
+    return new OverlayCollection<>(
+      base.getLatestVersions(),
+      overlay.getLatestVersions(),
+      this::visibleInBase,
+      true
+    );
+  }
+
+  @Override
+  public V getVersionValidAt(String id, LocalDateTime time) {
+    return indexOf(id).getVersionValidAt(id, time);
+  }
+
+  /**
+   * Return the latest versions valid at the given time. An entity of the overlay hides
+   * its versions in the base, even if none of its versions in the overlay is valid.
+   */
+  @Override
+  public Collection<V> getLatestVersionsValidAt(LocalDateTime time) {
+    return new OverlayCollection<>(
+      base.getLatestVersionsValidAt(time),
+      overlay.getLatestVersionsValidAt(time),
+      this::visibleInBase
+    );
+  }
+
+  @Override
+  public Collection<V> getLatestVersionsValidOn(LocalDate date) {
+    return new OverlayCollection<>(
+      base.getLatestVersionsValidOn(date),
+      overlay.getLatestVersionsValidOn(date),
+      this::visibleInBase
+    );
+  }
+
+  @Override
+  public Collection<V> getAllVersions(String id) {
+    return indexOf(id).getAllVersions(id);
+  }
+
+  @Override
+  public Map<String, Collection<V>> getAllVersions() {
+    return new OverlayMap<>(base.getAllVersions(), overlay.getAllVersions());
+  }
+
+  @Override
+  public void put(String id, Collection<V> entities) {
+    overlay.put(id, entities);
+  }
+
+  @Override
+  public void putAll(Collection<V> entities) {
+    overlay.putAll(entities);
+  }
+
+  /**
+   * Remove all versions of the entity from the overlay. If the entity replaces an entity
+   * of the base, the versions of the base are visible again.
+   *
+   * @throws UnsupportedOperationException if the entity is only defined in the base
+   */
+  @Override
+  public void remove(String id) {
+    if (!inOverlay(id) && base.getLatestVersion(id) != null) {
+      throw new UnsupportedOperationException("The base index is read-only");
+    }
+    overlay.remove(id);
+  }
+
+  /** Return the index that holds the versions of the entity. */
+  private VersionedNetexEntityIndex<V> indexOf(String id) {
+    return inOverlay(id) ? overlay : base;
+  }
+
+  private boolean inOverlay(String id) {
+    return overlay.getLatestVersion(id) != null;
+  }
+
+  private boolean visibleInBase(V entity) {
+    return !inOverlay(entity.getId());
+  }
+}
@@ -0,0 +1,595 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimap;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.Authority;
+import org.rutebanken.netex.model.Block;
+import org.rutebanken.netex.model.Branding;
+import org.rutebanken.netex.model.CompositeFrame;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DeadRun;
+import org.rutebanken.netex.model.DestinationDisplay;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+import org.rutebanken.netex.model.EntityStructure;
+import org.rutebanken.netex.model.FareZone;
+import org.rutebanken.netex.model.FlexibleLine;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupOfStopPlaces;
+import org.rutebanken.netex.model.GroupOfTariffZones;
+import org.rutebanken.netex.model.JourneyPattern;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
+import org.rutebanken.netex.model.OperatingDay;
+import org.rutebanken.netex.model.OperatingPeriod;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.Parking;
+import org.rutebanken.netex.model.PassengerStopAssignment;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.ResourceFrame;
+import org.rutebanken.netex.model.Route;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ScheduledStopPoint;
+import org.rutebanken.netex.model.ServiceCalendarFrame;
+import org.rutebanken.netex.model.ServiceFrame;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ServiceJourneyPattern;
+import org.rutebanken.netex.model.ServiceLink;
+import org.rutebanken.netex.model.SiteFrame;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TimetableFrame;
+import org.rutebanken.netex.model.TopographicPlace;
+import org.rutebanken.netex.model.VehicleScheduleFrame;
+
+/**
+ * Read-only copy of a {@link NetexEntitiesIndex}, for use once the loading is done.
+ * <p>
+ * The entities are held in {@link CompactImmutableMap}s, without an entry object per
+ * mapping, lists are trimmed to their size, and reads do not take any lock. This reduces
+ * both the memory footprint and the cost of lookups from many threads. Any attempt to
+ * modify the index throws an {@link UnsupportedOperationException}.
+ * <p>
+ * The ids of quays, stop places, flexible stop places and networks, and of the references
+ * between them, are also encoded in a {@link NetexIdDictionary}, with int-keyed variants
+ * of the corresponding indexes. The reference maps share the string instances of the
+ * dictionary.
+ */
+public class ReadOnlyNetexEntitiesIndexImpl implements NetexEntitiesIndex {
+
+  private final NetexEntityIndex<GroupOfLines> groupOfLinesIndex;
+  private final NetexEntityIndex<Network> networkIndex;
+  private final Map<String, String> networkIdByGroupOfLineIdIndex;
+  private final NetexEntityIndex<Authority> authorityIndex;
+  private final NetexEntityIndex<DayType> dayTypeIndex;
+  private final Multimap<String, DayTypeAssignment> dayTypeAssignmentsByDayTypeIdIndex;
+  private final Multimap<String, PassengerStopAssignment> passengerStopAssignmentsByStopPointRefIndex;
+  private final NetexEntityIndex<DatedServiceJourney> datedServiceJourneyIndex;
+  private final NetexEntityIndex<DeadRun> deadRunIndex;
+  private final Multimap<String, DatedServiceJourney> datedServiceJourneyByServiceJourneyRefIndex;
+  private final NetexEntityIndex<DestinationDisplay> destinationDisplayIndex;
+  private final NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceIndex;
+  private final NetexEntityIndex<GroupOfStopPlaces> groupOfStopPlacesIndex;
+  private final NetexEntityIndex<JourneyPattern> journeyPatternIndex;
+  private final NetexEntityIndex<ServiceJourneyPattern> serviceJourneyPatternIndex;
+  private final NetexEntityIndex<FlexibleLine> flexibleLineIndex;
+  private final NetexEntityIndex<Line> lineIndex;
+  private final NetexEntityIndex<Notice> noticeIndex;
+  private final NetexEntityIndex<NoticeAssignment> noticeAssignmentIndex;
+  private final NetexEntityIndex<OperatingDay> operatingDayIndex;
+  private final NetexEntityIndex<OperatingPeriod> operatingPeriodIndex;
+  private final NetexEntityIndex<Operator> operatorIndex;
+  private final NetexEntityIndex<Branding> brandingIndex;
+  private final VersionedNetexEntityIndex<Quay> quayIndex;
+  private final Map<String, String> quayIdByStopPointRefIndex;
+  private final Map<String, String> stopPlaceIdByStopPointRefIndex;
+  private final Map<String, String> stopPlaceIdByQuayIdIndex;
+  private final Map<String, String> flexibleStopPlaceIdByStopPointRefIndex;
+  private final NetexEntityIndex<Route> routeIndex;
+  private final NetexEntityIndex<ServiceJourney> serviceJourneyIndex;
+  private final NetexEntityIndex<ServiceJourneyInterchange> serviceJourneyInterchangeIndex;
+  private final Multimap<String, ServiceJourneyInterchange> serviceJourneyInterchangeByServiceJourneyRefIndex;
+  private final NetexEntityIndex<ServiceLink> serviceLinkIndex;
+  private final VersionedNetexEntityIndex<StopPlace> stopPlaceIndex;
+  private final VersionedNetexEntityIndex<TariffZone> tariffZoneIndex;
+  private final VersionedNetexEntityIndex<TopographicPlace> topographicPlaceIndex;
+  private final VersionedNetexEntityIndex<Parking> parkingIndex;
+  private final VersionedNetexEntityIndex<ScheduledStopPoint> scheduledStopPointIndex;
+  private final NetexEntityIndex<RoutePoint> routePointIndex;
+  private final NetexEntityIndex<Block> blockIndex;
+  private final Multimap<String, Parking> parkingsByParentSiteRefIndex;
+  private final VersionedNetexEntityIndex<FareZone> fareZoneIndex;
+  private final VersionedNetexEntityIndex<GroupOfTariffZones> groupOfTariffZonesIndex;
+  private final Collection<CompositeFrame> compositeFrames;
+  private final Collection<ResourceFrame> resourceFrames;
+  private final Collection<SiteFrame> siteFrames;
+  private final Collection<ServiceFrame> serviceFrames;
+  private final Collection<ServiceCalendarFrame> serviceCalendarFrames;
+  private final Collection<VehicleScheduleFrame> vehicleScheduleFrames;
+  private final Collection<TimetableFrame> timetableFrames;
+
+  private final LocalDateTime publicationTimestamp;
+
+  private final NetexIdDictionary idDictionary;
+  private final IntKeyedNetexEntityIndex<Quay> quayByIntIdIndex;
+  private final IntKeyedNetexEntityIndex<StopPlace> stopPlaceByIntIdIndex;
+  private final IntKeyedNetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceByIntIdIndex;
+  private final IntKeyedNetexEntityIndex<Network> networkByIntIdIndex;
+  private final IntReferenceIndex networkIdByGroupOfLineIdIntIndex;
+  private final IntReferenceIndex quayIdByStopPointRefIntIndex;
+  private final IntReferenceIndex stopPlaceIdByStopPointRefIntIndex;
+  private final IntReferenceIndex stopPlaceIdByQuayIdIntIndex;
+  private final IntReferenceIndex flexibleStopPlaceIdByStopPointRefIntIndex;
+
+  /**
+   * Copy the content of the given index. The source index must not be modified while it
+   * is copied.
+   */
+  public ReadOnlyNetexEntitiesIndexImpl(NetexEntitiesIndex source) {
+    NetexIdDictionary dictionary = new NetexIdDictionary();
+    addIds(dictionary, source.getQuayIndex().getLatestVersions());
+    addIds(dictionary, source.getStopPlaceIndex().getLatestVersions());
+    addIds(dictionary, source.getFlexibleStopPlaceIndex().getAll());
+    addIds(dictionary, source.getNetworkIndex().getAll());
+
+    this.groupOfLinesIndex = copyOfIndex(source.getGroupOfLinesIndex());
+    this.networkIndex = copyOfIndex(source.getNetworkIndex());
+    this.networkIdByGroupOfLineIdIndex =
+      copyOfReferences(source.getNetworkIdByGroupOfLineIdIndex(), dictionary);
+    this.authorityIndex = copyOfIndex(source.getAuthorityIndex());
+    this.dayTypeIndex = copyOfIndex(source.getDayTypeIndex());
+    this.dayTypeAssignmentsByDayTypeIdIndex =
+      copyOfMultimap(source.getDayTypeAssignmentsByDayTypeIdIndex());
+    this.passengerStopAssignmentsByStopPointRefIndex =
+      copyOfMultimap(source.getPassengerStopAssignmentsByStopPointRefIndex());
+    this.datedServiceJourneyIndex =
+      copyOfIndex(source.getDatedServiceJourneyIndex());
+    this.deadRunIndex = copyOfIndex(source.getDeadRunIndex());
+    this.datedServiceJourneyByServiceJourneyRefIndex =
+      copyOfMultimap(source.getDatedServiceJourneyByServiceJourneyRefIndex());
+    this.destinationDisplayIndex =
+      copyOfIndex(source.getDestinationDisplayIndex());
+    this.flexibleStopPlaceIndex =
+      copyOfIndex(source.getFlexibleStopPlaceIndex());
+    this.groupOfStopPlacesIndex =
+      copyOfIndex(source.getGroupOfStopPlacesIndex());
+    this.journeyPatternIndex = copyOfIndex(source.getJourneyPatternIndex());
+    this.serviceJourneyPatternIndex =
+      copyOfIndex(source.getServiceJourneyPatternIndex());
+    this.flexibleLineIndex = copyOfIndex(source.getFlexibleLineIndex());
+    this.lineIndex = copyOfIndex(source.getLineIndex());
+    this.noticeIndex = copyOfIndex(source.getNoticeIndex());
+    this.noticeAssignmentIndex = copyOfIndex(source.getNoticeAssignmentIndex());
+    this.operatingDayIndex = copyOfIndex(source.getOperatingDayIndex());
+    this.operatingPeriodIndex = copyOfIndex(source.getOperatingPeriodIndex());
+    this.operatorIndex = copyOfIndex(source.getOperatorIndex());
+    this.brandingIndex = copyOfIndex(source.getBrandingIndex());
+    this.quayIndex = copyOfVersionedIndex(source.getQuayIndex());
+    this.quayIdByStopPointRefIndex =
+      copyOfReferences(source.getQuayIdByStopPointRefIndex(), dictionary);
+    this.stopPlaceIdByStopPointRefIndex =
+      copyOfReferences(source.getStopPlaceIdByStopPointRefIndex(), dictionary);
+    this.stopPlaceIdByQuayIdIndex =
+      copyOfReferences(source.getStopPlaceIdByQuayIdIndex(), dictionary);
+    this.flexibleStopPlaceIdByStopPointRefIndex =
+      copyOfReferences(
+        source.getFlexibleStopPlaceIdByStopPointRefIndex(),
+        dictionary
+      );
+    this.routeIndex = copyOfIndex(source.getRouteIndex());
+    this.serviceJourneyIndex = copyOfIndex(source.getServiceJourneyIndex());
+    this.serviceJourneyInterchangeIndex =
+      copyOfIndex(source.getServiceJourneyInterchangeIndex());
+    this.serviceJourneyInterchangeByServiceJourneyRefIndex =
+      copyOfMultimap(
+        source.getServiceJourneyInterchangeByServiceJourneyRefIndex()
+      );
+    this.serviceLinkIndex = copyOfIndex(source.getServiceLinkIndex());
+    this.stopPlaceIndex = copyOfVersionedIndex(source.getStopPlaceIndex());
+    this.tariffZoneIndex = copyOfVersionedIndex(source.getTariffZoneIndex());
+    this.topographicPlaceIndex =
+      copyOfVersionedIndex(source.getTopographicPlaceIndex());
+    this.parkingIndex = copyOfVersionedIndex(source.getParkingIndex());
+    this.scheduledStopPointIndex =
+      copyOfVersionedIndex(source.getScheduledStopPointIndex());
+    this.routePointIndex = copyOfIndex(source.getRoutePointIndex());
+    this.blockIndex = copyOfIndex(source.getBlockIndex());
+    this.parkingsByParentSiteRefIndex =
+      copyOfMultimap(source.getParkingsByParentSiteRefIndex());
+    this.fareZoneIndex = copyOfVersionedIndex(source.getFareZoneIndex());
+    this.groupOfTariffZonesIndex =
+      copyOfVersionedIndex(source.getGroupOfTariffZonesIndex());
+    this.compositeFrames = ImmutableList.copyOf(source.getCompositeFrames());
+    this.resourceFrames = ImmutableList.copyOf(source.getResourceFrames());
+    this.siteFrames = ImmutableList.copyOf(source.getSiteFrames());
+    this.serviceFrames = ImmutableList.copyOf(source.getServiceFrames());
+    this.serviceCalendarFrames =
+      ImmutableList.copyOf(source.getServiceCalendarFrames());
+    this.vehicleScheduleFrames =
+      ImmutableList.copyOf(source.getVehicleScheduleFrames());
+    this.timetableFrames = ImmutableList.copyOf(source.getTimetableFrames());
+    this.publicationTimestamp = source.getPublicationTimestamp();
+
+    dictionary.trimToSize();
+    this.idDictionary = dictionary;
+    this.quayByIntIdIndex =
+      new IntKeyedNetexEntityIndex<>(dictionary, quayIndex.getLatestVersions());
+    this.stopPlaceByIntIdIndex =
+      new IntKeyedNetexEntityIndex<>(
+        dictionary,
+        stopPlaceIndex.getLatestVersions()
+      );
+    this.flexibleStopPlaceByIntIdIndex =
+      new IntKeyedNetexEntityIndex<>(
+        dictionary,
+        flexibleStopPlaceIndex.getAll()
+      );
+    this.networkByIntIdIndex =
+      new IntKeyedNetexEntityIndex<>(dictionary, networkIndex.getAll());
+    this.networkIdByGroupOfLineIdIntIndex =
+      new IntReferenceIndex(dictionary, networkIdByGroupOfLineIdIndex);
+    this.quayIdByStopPointRefIntIndex =
+      new IntReferenceIndex(dictionary, quayIdByStopPointRefIndex);
+    this.stopPlaceIdByStopPointRefIntIndex =
+      new IntReferenceIndex(dictionary, stopPlaceIdByStopPointRefIndex);
+    this.stopPlaceIdByQuayIdIntIndex =
+      new IntReferenceIndex(dictionary, stopPlaceIdByQuayIdIndex);
+    this.flexibleStopPlaceIdByStopPointRefIntIndex =
+      new IntReferenceIndex(dictionary, flexibleStopPlaceIdByStopPointRefIndex);
+  }
+
+  /** Return the dictionary of the ids used by the int-keyed indexes. */
+  public NetexIdDictionary getIdDictionary() {
+    return idDictionary;
+  }
+
+  /** Return the latest version of each quay, by int id. */
+  public IntKeyedNetexEntityIndex<Quay> getQuayByIntIdIndex() {
+    return quayByIntIdIndex;
+  }
+
+  /** Return the latest version of each stop place, by int id. */
+  public IntKeyedNetexEntityIndex<StopPlace> getStopPlaceByIntIdIndex() {
+    return stopPlaceByIntIdIndex;
+  }
+
+  public IntKeyedNetexEntityIndex<FlexibleStopPlace> getFlexibleStopPlaceByIntIdIndex() {
+    return flexibleStopPlaceByIntIdIndex;
+  }
+
+  public IntKeyedNetexEntityIndex<Network> getNetworkByIntIdIndex() {
+    return networkByIntIdIndex;
+  }
+
+  public IntReferenceIndex getNetworkIdByGroupOfLineIdIntIndex() {
+    return networkIdByGroupOfLineIdIntIndex;
+  }
+
+  public IntReferenceIndex getQuayIdByStopPointRefIntIndex() {
+    return quayIdByStopPointRefIntIndex;
+  }
+
+  public IntReferenceIndex getStopPlaceIdByStopPointRefIntIndex() {
+    return stopPlaceIdByStopPointRefIntIndex;
+  }
+
+  public IntReferenceIndex getStopPlaceIdByQuayIdIntIndex() {
+    return stopPlaceIdByQuayIdIntIndex;
+  }
+
+  public IntReferenceIndex getFlexibleStopPlaceIdByStopPointRefIntIndex() {
+    return flexibleStopPlaceIdByStopPointRefIntIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<GroupOfLines> getGroupOfLinesIndex() {
+    return groupOfLinesIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Network> getNetworkIndex() {
+    return networkIndex;
+  }
+
+  @Override
+  public Map<String, String> getNetworkIdByGroupOfLineIdIndex() {
+    return networkIdByGroupOfLineIdIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Authority> getAuthorityIndex() {
+    return authorityIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DayType> getDayTypeIndex() {
+    return dayTypeIndex;
+  }
+
+  @Override
+  public Multimap<String, DayTypeAssignment> getDayTypeAssignmentsByDayTypeIdIndex() {
+    return dayTypeAssignmentsByDayTypeIdIndex;
+  }
+
+  @Override
+  public Multimap<String, PassengerStopAssignment> getPassengerStopAssignmentsByStopPointRefIndex() {
+    return passengerStopAssignmentsByStopPointRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DatedServiceJourney> getDatedServiceJourneyIndex() {
+    return datedServiceJourneyIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DeadRun> getDeadRunIndex() {
+    return deadRunIndex;
+  }
+
+  @Override
+  public Multimap<String, DatedServiceJourney> getDatedServiceJourneyByServiceJourneyRefIndex() {
+    return datedServiceJourneyByServiceJourneyRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<DestinationDisplay> getDestinationDisplayIndex() {
+    return destinationDisplayIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<FlexibleStopPlace> getFlexibleStopPlaceIndex() {
+    return flexibleStopPlaceIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<GroupOfStopPlaces> getGroupOfStopPlacesIndex() {
+    return groupOfStopPlacesIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<JourneyPattern> getJourneyPatternIndex() {
+    return journeyPatternIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourneyPattern> getServiceJourneyPatternIndex() {
+    return serviceJourneyPatternIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<FlexibleLine> getFlexibleLineIndex() {
+    return flexibleLineIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Line> getLineIndex() {
+    return lineIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Notice> getNoticeIndex() {
+    return noticeIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<NoticeAssignment> getNoticeAssignmentIndex() {
+    return noticeAssignmentIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<OperatingDay> getOperatingDayIndex() {
+    return operatingDayIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<OperatingPeriod> getOperatingPeriodIndex() {
+    return operatingPeriodIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Operator> getOperatorIndex() {
+    return operatorIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Branding> getBrandingIndex() {
+    return brandingIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<Quay> getQuayIndex() {
+    return quayIndex;
+  }
+
+  @Override
+  public Map<String, String> getQuayIdByStopPointRefIndex() {
+    return quayIdByStopPointRefIndex;
+  }
+
+  @Override
+  public Map<String, String> getStopPlaceIdByStopPointRefIndex() {
+    return stopPlaceIdByStopPointRefIndex;
+  }
+
+  @Override
+  public Map<String, String> getStopPlaceIdByQuayIdIndex() {
+    return stopPlaceIdByQuayIdIndex;
+  }
+
+  @Override
+  public Map<String, String> getFlexibleStopPlaceIdByStopPointRefIndex() {
+    return flexibleStopPlaceIdByStopPointRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Route> getRouteIndex() {
+    return routeIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourney> getServiceJourneyIndex() {
+    return serviceJourneyIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceJourneyInterchange> getServiceJourneyInterchangeIndex() {
+    return serviceJourneyInterchangeIndex;
+  }
+
+  @Override
+  public Multimap<String, ServiceJourneyInterchange> getServiceJourneyInterchangeByServiceJourneyRefIndex() {
+    return serviceJourneyInterchangeByServiceJourneyRefIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<ServiceLink> getServiceLinkIndex() {
+    return serviceLinkIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<StopPlace> getStopPlaceIndex() {
+    return stopPlaceIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<TariffZone> getTariffZoneIndex() {
+    return tariffZoneIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<TopographicPlace> getTopographicPlaceIndex() {
+    return topographicPlaceIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<Parking> getParkingIndex() {
+    return parkingIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<ScheduledStopPoint> getScheduledStopPointIndex() {
+    return scheduledStopPointIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<RoutePoint> getRoutePointIndex() {
+    return routePointIndex;
+  }
+
+  @Override
+  public NetexEntityIndex<Block> getBlockIndex() {
+    return blockIndex;
+  }
+
+  @Override
+  public Multimap<String, Parking> getParkingsByParentSiteRefIndex() {
+    return parkingsByParentSiteRefIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<FareZone> getFareZoneIndex() {
+    return fareZoneIndex;
+  }
+
+  @Override
+  public VersionedNetexEntityIndex<GroupOfTariffZones> getGroupOfTariffZonesIndex() {
+    return groupOfTariffZonesIndex;
+  }
+
+  @Override
+  public Collection<CompositeFrame> getCompositeFrames() {
+    return compositeFrames;
+  }
+
+  @Override
+  public Collection<ResourceFrame> getResourceFrames() {
+    return resourceFrames;
+  }
+
+  @Override
+  public Collection<SiteFrame> getSiteFrames() {
+    return siteFrames;
+  }
+
+  @Override
+  public Collection<ServiceFrame> getServiceFrames() {
+    return serviceFrames;
+  }
+
+  @Override
+  public Collection<ServiceCalendarFrame> getServiceCalendarFrames() {
+    return serviceCalendarFrames;
+  }
+
+  @Override
+  public Collection<VehicleScheduleFrame> getVehicleScheduleFrames() {
+    return vehicleScheduleFrames;
+  }
+
+  @Override
+  public Collection<TimetableFrame> getTimetableFrames() {
+    return timetableFrames;
+  }
+
+  @Override
+  public LocalDateTime getPublicationTimestamp() {
+    return publicationTimestamp;
+  }
+
+  @Override
+  public void setPublicationTimestamp(LocalDateTime publicationTimestamp) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+
+  private static <V extends EntityStructure> NetexEntityIndex<V> copyOfIndex(
+    NetexEntityIndex<V> source
+  ) {
+    return new ReadOnlyNetexEntityIndexImpl<>(source);
+  }
+
+  private static <
+    V extends EntityInVersionStructure
+  > VersionedNetexEntityIndex<V> copyOfVersionedIndex(
+    VersionedNetexEntityIndex<V> source
+  ) {
+    return new ReadOnlyVersionedNetexEntityIndexImpl<>(source);
+  }
+
+  private static void addIds(
+    NetexIdDictionary dictionary,
+    Collection<? extends EntityStructure> entities
+  ) {
+    entities.forEach(entity -> dictionary.add(entity.getId()));
+  }
+
+  /** Copy the references, replacing the ids by the instances held by the dictionary. */
+  private static Map<String, String> copyOfReferences(
+    Map<String, String> source,
+    NetexIdDictionary dictionary
+  ) {
+    Map<String, String> references = new LinkedHashMap<>();
+    source.forEach((from, to) ->
+      references.put(dictionary.canonical(from), dictionary.canonical(to))
+    );
+    return CompactImmutableMap.copyOf(references);
+  }
+
+  private static <V> Multimap<String, V> copyOfMultimap(
+    Multimap<String, V> source
+  ) {
+    return ImmutableListMultimap.copyOf(source);
+  }
+}
@@ -0,0 +1,51 @@
+package org.entur.netex.index.impl;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * Read-only copy of a {@link NetexEntityIndex}, see {@link ReadOnlyNetexEntitiesIndexImpl}.
+ */
+class ReadOnlyNetexEntityIndexImpl<V extends EntityStructure>
+  implements NetexEntityIndex<V> {
+
+  private final Map<String, V> map;
+
+  ReadOnlyNetexEntityIndexImpl(NetexEntityIndex<V> source) {
+    if (source instanceof NetexEntityMapByIdImpl<V> mapById) {
+      this.map = CompactImmutableMap.copyOf(mapById.asMap());
+    } else {
+      Map<String, V> entities = new LinkedHashMap<>();
+      source.getAll().forEach(entity -> entities.put(entity.getId(), entity));
+      this.map = CompactImmutableMap.copyOf(entities);
+    }
+  }
+
+  @Override
+  public V get(String id) {
+    return map.get(id);
+  }
+
+  @Override
+  public Collection<V> getAll() {
+    return map.values();
+  }
+
+  @Override
+  public void put(String id, V entity) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+
+  @Override
+  public void putAll(Collection<V> entities) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+
+  @Override
+  public void remove(String id) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+}
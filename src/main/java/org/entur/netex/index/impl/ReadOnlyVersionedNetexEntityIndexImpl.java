@@ -0,0 +1,117 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Maps;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+
+/**
+ * Read-only copy of a {@link VersionedNetexEntityIndex}, see
+ * {@link ReadOnlyNetexEntitiesIndexImpl}.
+ */
+class ReadOnlyVersionedNetexEntityIndexImpl<V extends EntityInVersionStructure>
+  implements VersionedNetexEntityIndex<V> {
+
+  private final Map<String, EntityVersions<V>> map;
+
+  /** Built on the first lookup by time. */
+  private volatile ValidityIndex<V> validityIndex;
+
+  ReadOnlyVersionedNetexEntityIndexImpl(VersionedNetexEntityIndex<V> source) {
+    if (source instanceof VersionedNetexEntityIndexImpl<V> versionedIndex) {
+      // The versions are immutable and already sorted
+      this.map = CompactImmutableMap.copyOf(versionedIndex.versionsById());
+      return;
+    }
+    Map<String, EntityVersions<V>> versionsById = new LinkedHashMap<>();
+    source
+      .getAllVersions()
+      .forEach((id, entities) -> {
+        EntityVersions<V> versions = EntityVersions.of(entities);
+        if (versions != null) {
+          versionsById.put(id, versions);
+        }
+      });
+    this.map = CompactImmutableMap.copyOf(versionsById);
+  }
+
+  @Override
+  public V getLatestVersion(String id) {
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.latest();
+  }
+
+  @Override
+  public V getVersion(String id, String version) {
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.get(version);
+  }
+
+  @Override
+  public Collection<V> getLatestVersions() {
+    return Collections2.transform(map.values(), EntityVersions::latest);
+  }
+
+  @Override
+  public V getVersionValidAt(String id, LocalDateTime time) {
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.validAt(time);
+  }
+
+  @Override
+  public Collection<V> getLatestVersionsValidAt(LocalDateTime time) {
+    return validityIndex()
+      .latestVersionsValidAt(EntityVersions.toSeconds(time));
+  }
+
+  @Override
+  public Collection<V> getLatestVersionsValidOn(LocalDate date) {
+    return validityIndex()
+      .latestVersionsValidBetween(
+        EntityVersions.toSeconds(date.atStartOfDay()),
+        EntityVersions.toSeconds(date.atTime(LocalTime.MAX))
+      );
+  }
+
+  @Override
+  public Collection<V> getAllVersions(String id) {
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? List.of() : versions.asList();
+  }
+
+  @Override
+  public Map<String, Collection<V>> getAllVersions() {
+    return Maps.transformValues(map, EntityVersions::asList);
+  }
+
+  private ValidityIndex<V> validityIndex() {
+    ValidityIndex<V> index = validityIndex;
+    if (index == null) {
+      index = ValidityIndex.of(map.values());
+      validityIndex = index;
+    }
+    return index;
+  }
+
+  @Override
+  public void put(String id, Collection<V> entities) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+
+  @Override
+  public void putAll(Collection<V> entities) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+
+  @Override
+  public void remove(String id) {
+    throw new UnsupportedOperationException("The index is read-only");
+  }
+}
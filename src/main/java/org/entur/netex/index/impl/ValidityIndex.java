@@ -0,0 +1,168 @@
+package org.entur.netex.index.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+
+/**
+ * Interval index of the validity periods of all the versions of a versioned index, to find
+ * the entities valid at a given time, or during a given interval, without scanning every
+ * version.
+ * <p>
+ * The periods are sorted by start time, and the sorted array is searched as an implicit
+ * balanced binary tree where each node also holds the latest end time of its subtree.
+ * Subtrees that end before the given interval, or start after it, are not visited.
+ * Instances are immutable.
+ */
+final class ValidityIndex<V extends EntityInVersionStructure> {
+
+  private final long[] starts;
+
+  private final long[] ends;
+
+  /** The latest end time of the subtree rooted at each node. */
+  private final long[] maxEnds;
+
+  private final long[] versions;
+
+  private final Object[] entities;
+
+  private ValidityIndex(
+    long[] starts,
+    long[] ends,
+    long[] versions,
+    Object[] entities
+  ) {
+    this.starts = starts;
+    this.ends = ends;
+    this.versions = versions;
+    this.entities = entities;
+    this.maxEnds = new long[starts.length];
+    computeMaxEnds(0, starts.length);
+  }
+
+  static <V extends EntityInVersionStructure> ValidityIndex<V> of(
+    Collection<EntityVersions<V>> allVersions
+  ) {
+    List<Period> periods = new ArrayList<>();
+    for (EntityVersions<V> versions : allVersions) {
+      for (int i = 0; i < versions.size(); i++) {
+        long[] versionPeriods = versions.periods(i);
+        if (versionPeriods == null) {
+          periods.add(
+            new Period(
+              Long.MIN_VALUE,
+              Long.MAX_VALUE,
+              versions.version(i),
+              versions.entity(i)
+            )
+          );
+        } else {
+          for (int j = 0; j < versionPeriods.length; j += 2) {
+            periods.add(
+              new Period(
+                versionPeriods[j],
+                versionPeriods[j + 1],
+                versions.version(i),
+                versions.entity(i)
+              )
+            );
+          }
+        }
+      }
+    }
+    periods.sort(Comparator.comparingLong(Period::start));
+
+    int size = periods.size();
+    long[] starts = new long[size];
+    long[] ends = new long[size];
+    long[] versionNumbers = new long[size];
+    Object[] entities = new Object[size];
+    for (int i = 0; i < size; i++) {
+      Period period = periods.get(i);
+      starts[i] = period.start();
+      ends[i] = period.end();
+      versionNumbers[i] = period.version();
+      entities[i] = period.entity();
+    }
+    return new ValidityIndex<>(starts, ends, versionNumbers, entities);
+  }
+
+  /**
+   * Return, for each entity valid at the given time, the version with the highest number
+   * that is valid at that time.
+   */
+  Collection<V> latestVersionsValidAt(long seconds) {
+    return latestVersionsValidBetween(seconds, seconds);
+  }
+
+  /**
+   * Return, for each entity valid at some time between start and end, the version with
+   * the highest number that is valid in that interval.
+   */
+  Collection<V> latestVersionsValidBetween(long start, long end) {
+    Map<String, Integer> latestById = new HashMap<>();
+    search(0, starts.length, start, end, latestById);
+    List<V> result = new ArrayList<>(latestById.size());
+    for (int index : latestById.values()) {
+      result.add(entity(index));
+    }
+    return result;
+  }
+
+  private void search(
+    int low,
+    int high,
+    long start,
+    long end,
+    Map<String, Integer> latestById
+  ) {
+    if (low >= high) {
+      return;
+    }
+    int middle = (low + high) >>> 1;
+    if (maxEnds[middle] < start) {
+      return;
+    }
+    search(low, middle, start, end, latestById);
+    if (starts[middle] > end) {
+      return;
+    }
+    if (start <= ends[middle]) {
+      latestById.merge(
+        entity(middle).getId(),
+        middle,
+        (current, candidate) ->
+          versions[candidate] > versions[current] ? candidate : current
+      );
+    }
+    search(middle + 1, high, start, end, latestById);
+  }
+
+  private long computeMaxEnds(int low, int high) {
+    if (low >= high) {
+      return Long.MIN_VALUE;
+    }
+    int middle = (low + high) >>> 1;
+    long maxEnd = Math.max(
+      ends[middle],
+      Math.max(
+        computeMaxEnds(low, middle),
+        computeMaxEnds(middle + 1, high)
+      )
+    );
+    maxEnds[middle] = maxEnd;
+    return maxEnd;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V entity(int index) {
+    return (V) entities[index];
+  }
+
+  private record Period(long start, long end, long version, Object entity) {}
+}
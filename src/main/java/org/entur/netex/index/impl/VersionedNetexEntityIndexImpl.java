@@ -1,81 +1,148 @@
 package org.entur.netex.index.impl;
 
-import static org.entur.netex.support.NetexVersionHelper.latestVersionedElementIn;
-import static org.entur.netex.support.NetexVersionHelper.versionOfElementIn;
-
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Maps;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 import org.entur.netex.index.api.VersionedNetexEntityIndex;
 import org.rutebanken.netex.model.EntityInVersionStructure;
-import org.rutebanken.netex.model.EntityStructure;
 
 public class VersionedNetexEntityIndexImpl<V extends EntityInVersionStructure>
   implements VersionedNetexEntityIndex<V> {
 
-  private final Multimap<String, V> map = Multimaps.synchronizedListMultimap(
-    ArrayListMultimap.create()
-  );
-  private final Map<String, V> latestMap = new ConcurrentHashMap<>();
+  private final Map<String, EntityVersions<V>> map = new ConcurrentHashMap<>();
+
+  private final boolean latestVersionOnly;
+
+  /** Incremented on each modification, to detect that the validity index is stale. */
+  private final AtomicLong modifications = new AtomicLong();
+
+  /** Built on the first lookup by time after a modification. */
+  private volatile ValiditySnapshot<V> validity;
+
+  public VersionedNetexEntityIndexImpl() {
+    this(false);
+  }
+
+  /**
+   * @param latestVersionOnly keep only the latest version of each entity. The other
+   *                          versions are dropped when the entity is put in the index,
+   *                          and a version already in the index is replaced only by a
+   *                          version with the same or a higher number.
+   */
+  public VersionedNetexEntityIndexImpl(boolean latestVersionOnly) {
+    this.latestVersionOnly = latestVersionOnly;
+  }
 
   @Override
   public V getLatestVersion(String id) {
-    return latestMap.get(id);
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.latest();
   }
 
   @Override
   public V getVersion(String id, String version) {
-    return versionOfElementIn(map.get(id), version);
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.get(version);
   }
 
   @Override
   public Collection<V> getLatestVersions() {
-    return latestMap.values();
+    return Collections2.transform(map.values(), EntityVersions::latest);
+  }
+
+  @Override
+  public V getVersionValidAt(String id, LocalDateTime time) {
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? null : versions.validAt(time);
+  }
+
+  @Override
+  public Collection<V> getLatestVersionsValidAt(LocalDateTime time) {
+    return validityIndex()
+      .latestVersionsValidAt(EntityVersions.toSeconds(time));
+  }
+
+  @Override
+  public Collection<V> getLatestVersionsValidOn(LocalDate date) {
+    return validityIndex()
+      .latestVersionsValidBetween(
+        EntityVersions.toSeconds(date.atStartOfDay()),
+        EntityVersions.toSeconds(date.atTime(LocalTime.MAX))
+      );
   }
 
+  /**
+   * Lookup all versions of element with the given {@code id}, in version order.
+   */
   @Override
   public Collection<V> getAllVersions(String id) {
-    return map.get(id);
+    EntityVersions<V> versions = map.get(id);
+    return versions == null ? List.of() : versions.asList();
   }
 
   @Override
   public Map<String, Collection<V>> getAllVersions() {
-    synchronized (map) {
-      return map.asMap();
-    }
+    return Maps.transformValues(map, EntityVersions::asList);
   }
 
   @Override
   public void put(String id, Collection<V> entities) {
-    map.replaceValues(id, entities);
-    latestMap.put(id, latestVersionedElementIn(entities));
+    EntityVersions<V> versions = latestVersionOnly
+      ? EntityVersions.latestOf(entities)
+      : EntityVersions.of(entities);
+    if (versions == null) {
+      map.remove(id);
+    } else if (latestVersionOnly) {
+      map.merge(id, versions, EntityVersions::later);
+    } else {
+      map.put(id, versions);
+    }
+    modifications.incrementAndGet();
   }
 
   @Override
   public void putAll(Collection<V> entities) {
-    Map<String, List<V>> entityMap = entities
-      .stream()
-      .collect(Collectors.groupingBy(V::getId));
-
-    entityMap.forEach(map::replaceValues);
-
-    latestMap.putAll(
-      entityMap
-        .keySet()
-        .stream()
-        .map(id -> latestVersionedElementIn(map.get(id)))
-        .collect(Collectors.toMap(EntityStructure::getId, e -> e))
-    );
+    Map<String, List<V>> entitiesById = new LinkedHashMap<>();
+    for (V entity : entities) {
+      entitiesById
+        .computeIfAbsent(entity.getId(), id -> new ArrayList<>())
+        .add(entity);
+    }
+    entitiesById.forEach(this::put);
   }
 
   @Override
   public void remove(String id) {
-    map.removeAll(id);
-    latestMap.remove(id);
+    map.remove(id);
+    modifications.incrementAndGet();
   }
+
+  Map<String, EntityVersions<V>> versionsById() {
+    return map;
+  }
+
+  private ValidityIndex<V> validityIndex() {
+    long modification = modifications.get();
+    ValiditySnapshot<V> snapshot = validity;
+    if (snapshot == null || snapshot.modification() != modification) {
+      snapshot =
+        new ValiditySnapshot<>(modification, ValidityIndex.of(map.values()));
+      validity = snapshot;
+    }
+    return snapshot.index();
+  }
+
+  private record ValiditySnapshot<V extends EntityInVersionStructure>(
+    long modification,
+    ValidityIndex<V> index
+  ) {}
 }
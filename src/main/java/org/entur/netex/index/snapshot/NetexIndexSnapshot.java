@@ -0,0 +1,266 @@
+package org.entur.netex.index.snapshot;
+
+import com.google.common.collect.Multimap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.entur.netex.index.impl.NetexIndexParts;
+import org.rutebanken.netex.model.EntityStructure;
+
+/**
+ * A binary snapshot of a populated {@link NetexEntitiesIndex}, to restart without parsing
+ * the NeTEx archives again.
+ * <p>
+ * The snapshot holds the entities of the index, the versions of the versioned entities,
+ * the reference maps, the frames and the publication timestamp. It records the checksums
+ * of the archives the index was parsed from, computed from the CRCs of their entries, and
+ * is not read if one of the archives has changed since it was written.
+ * <p>
+ * An entity referred to from several indexes or frames is written once, and read as a
+ * single instance. A snapshot holds what the parser loaded with its options, and should be
+ * read by a parser with the same options as the parser that wrote it.
+ */
+public final class NetexIndexSnapshot {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private NetexIndexSnapshot() {}
+
+  /**
+   * Write a snapshot of the index parsed from the given archives. The snapshot file is
+   * replaced atomically, so that a concurrent or interrupted write never leaves a partial
+   * snapshot behind.
+   *
+   * @param index the index, not modified while the snapshot is written
+   * @param archives the archives the index was parsed from
+   * @param snapshot the snapshot file
+   */
+  public static void write(
+    NetexEntitiesIndex index,
+    Collection<Path> archives,
+    Path snapshot
+  ) throws IOException {
+    Path directory = snapshot.toAbsolutePath().getParent();
+    Path file = Files.createTempFile(
+      directory,
+      snapshot.getFileName().toString(),
+      ".tmp"
+    );
+    try {
+      try (
+        DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)
+        )
+      ) {
+        writeHeader(out, archives);
+        writeIndex(new SnapshotWriter(out), index);
+      }
+      Files.move(
+        file,
+        snapshot,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+      );
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Populate the index from the snapshot, if it exists and was written from the given
+   * archives in their current state.
+   *
+   * @param snapshot the snapshot file
+   * @param archives the archives to load, in the same order as when the snapshot was
+   *                 written
+   * @param index the index to populate
+   * @return false, and leave the index unchanged, if there is no snapshot or if it is out
+   *         of date
+   * @throws IOException if the snapshot cannot be read, for instance if it was written
+   *                     with another version of the NeTEx model. The index may then be
+   *                     partially populated.
+   */
+  public static boolean read(
+    Path snapshot,
+    Collection<Path> archives,
+    NetexEntitiesIndex index
+  ) throws IOException {
+    try (
+      DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshot), BUFFER_SIZE)
+      )
+    ) {
+      if (!isUpToDate(in, archives)) {
+        return false;
+      }
+      readIndex(new SnapshotReader(in), index);
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Return the checksum of an archive, computed from the names, the sizes and the CRCs of
+   * its entries. This only reads the central directory of the archive.
+   */
+  public static long checksum(Path archive) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        crc.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+        buffer.clear();
+        buffer.putLong(entry.getCrc()).putLong(entry.getSize()).flip();
+        crc.update(buffer);
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void writeHeader(
+    DataOutputStream out,
+    Collection<Path> archives
+  ) throws IOException {
+    out.writeInt(SnapshotFormat.MAGIC);
+    out.writeInt(SnapshotFormat.VERSION);
+    out.writeInt(archives.size());
+    for (Path archive : archives) {
+      out.writeUTF(archive.getFileName().toString());
+      out.writeLong(checksum(archive));
+    }
+  }
+
+  private static boolean isUpToDate(
+    DataInputStream in,
+    Collection<Path> archives
+  ) throws IOException {
+    if (
+      in.readInt() != SnapshotFormat.MAGIC ||
+      in.readInt() != SnapshotFormat.VERSION ||
+      in.readInt() != archives.size()
+    ) {
+      return false;
+    }
+    for (Path archive : archives) {
+      if (
+        !in.readUTF().equals(archive.getFileName().toString()) ||
+        in.readLong() != checksum(archive)
+      ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeIndex(
+    SnapshotWriter writer,
+    NetexEntitiesIndex index
+  ) throws IOException {
+    writer.writeObject(index.getPublicationTimestamp());
+    for (var entityIndex : NetexIndexParts.ENTITY_INDEXES) {
+      writer.writeCollection(entityIndex.apply(index).getAll());
+    }
+    for (var versionedIndex : NetexIndexParts.VERSIONED_INDEXES) {
+      Map<String, ? extends Collection<?>> versions = versionedIndex
+        .apply(index)
+        .getAllVersions();
+      writer.writeInt(versions.size());
+      for (var entry : versions.entrySet()) {
+        writer.writeObject(entry.getKey());
+        writer.writeCollection(entry.getValue());
+      }
+    }
+    for (var referenceIndex : NetexIndexParts.REFERENCE_INDEXES) {
+      Map<String, String> references = referenceIndex.apply(index);
+      writer.writeInt(references.size());
+      for (Map.Entry<String, String> entry : references.entrySet()) {
+        writer.writeObject(entry.getKey());
+        writer.writeObject(entry.getValue());
+      }
+    }
+    for (var multimapIndex : NetexIndexParts.MULTIMAP_INDEXES) {
+      Collection<? extends Map.Entry<String, ?>> entries = multimapIndex
+        .apply(index)
+        .entries();
+      writer.writeInt(entries.size());
+      for (Map.Entry<String, ?> entry : entries) {
+        writer.writeObject(entry.getKey());
+        writer.writeObject(entry.getValue());
+      }
+    }
+    for (var frames : NetexIndexParts.FRAMES) {
+      writer.writeCollection(frames.apply(index));
+    }
+  }
+
+  private static void readIndex(
+    SnapshotReader reader,
+    NetexEntitiesIndex index
+  ) throws IOException {
+    index.setPublicationTimestamp((LocalDateTime) reader.readObject());
+    for (var entityIndex : NetexIndexParts.ENTITY_INDEXES) {
+      NetexEntityIndex<EntityStructure> entities = cast(
+        entityIndex.apply(index)
+      );
+      entities.putAll(cast(reader.readList()));
+    }
+    for (var versionedIndex : NetexIndexParts.VERSIONED_INDEXES) {
+      VersionedNetexEntityIndex<EntityStructure> entities = cast(
+        versionedIndex.apply(index)
+      );
+      int size = reader.readInt();
+      for (int i = 0; i < size; i++) {
+        String id = (String) reader.readObject();
+        entities.put(id, cast(reader.readList()));
+      }
+    }
+    for (var referenceIndex : NetexIndexParts.REFERENCE_INDEXES) {
+      Map<String, String> references = referenceIndex.apply(index);
+      int size = reader.readInt();
+      for (int i = 0; i < size; i++) {
+        references.put(
+          (String) reader.readObject(),
+          (String) reader.readObject()
+        );
+      }
+    }
+    for (var multimapIndex : NetexIndexParts.MULTIMAP_INDEXES) {
+      Multimap<String, Object> multimap = cast(multimapIndex.apply(index));
+      int size = reader.readInt();
+      for (int i = 0; i < size; i++) {
+        multimap.put((String) reader.readObject(), reader.readObject());
+      }
+    }
+    for (var frames : NetexIndexParts.FRAMES) {
+      Collection<Object> collection = cast(frames.apply(index));
+      collection.addAll(reader.readList());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T cast(Object value) {
+    return (T) value;
+  }
+}
@@ -0,0 +1,102 @@
+package org.entur.netex.index.snapshot;
+
+import jakarta.xml.bind.annotation.XmlType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tags and the field layout of the snapshot format, shared by the writer and the
+ * reader.
+ * <p>
+ * Each value is written as a tag followed by its content. Strings and NeTEx objects are
+ * given a handle the first time they are written, and are written as a reference to the
+ * handle after that, so that equal strings and shared objects are read as a single
+ * instance. A NeTEx object is written as its fields, in the order returned by
+ * {@link #fieldsOf(Class)}.
+ */
+final class SnapshotFormat {
+
+  /** "NTXS" */
+  static final int MAGIC = 0x4e545853;
+
+  /** Incremented when the layout of the snapshot changes. */
+  static final int VERSION = 1;
+
+  /** The handle of a type written for the first time. */
+  static final int NEW_TYPE = -1;
+
+  static final byte NULL = 0;
+  static final byte REFERENCE = 1;
+  static final byte STRING = 2;
+  static final byte OBJECT = 3;
+  static final byte ENUM = 4;
+  static final byte LIST = 5;
+  static final byte MAP = 6;
+  static final byte JAXB_ELEMENT = 7;
+  static final byte BOOLEAN = 8;
+  static final byte BYTE = 9;
+  static final byte SHORT = 10;
+  static final byte INTEGER = 11;
+  static final byte LONG = 12;
+  static final byte FLOAT = 13;
+  static final byte DOUBLE = 14;
+  static final byte CHARACTER = 15;
+  static final byte BIG_INTEGER = 16;
+  static final byte BIG_DECIMAL = 17;
+  static final byte LOCAL_DATE = 18;
+  static final byte LOCAL_TIME = 19;
+  static final byte LOCAL_DATE_TIME = 20;
+  static final byte OFFSET_DATE_TIME = 21;
+  static final byte OFFSET_TIME = 22;
+  static final byte ZONED_DATE_TIME = 23;
+  static final byte INSTANT = 24;
+  static final byte DURATION = 25;
+  static final byte XML_CALENDAR = 26;
+  static final byte XML_DURATION = 27;
+  static final byte QNAME = 28;
+  static final byte BYTES = 29;
+  static final byte ELEMENT = 30;
+
+  private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      List<Field> fields = new ArrayList<>();
+      addFields(type, fields);
+      return fields.toArray(new Field[0]);
+    }
+  };
+
+  private SnapshotFormat() {}
+
+  /**
+   * Return true if the objects of the given type are written field by field: the classes
+   * generated from the NeTEx schema, and the schemas it imports.
+   */
+  static boolean isModelType(Class<?> type) {
+    return type.isAnnotationPresent(XmlType.class) && !type.isEnum();
+  }
+
+  /**
+   * Return the fields written for the given type: the instance fields of the type and of
+   * its superclasses, superclass first.
+   */
+  static Field[] fieldsOf(Class<?> type) {
+    return FIELDS.get(type);
+  }
+
+  private static void addFields(Class<?> type, List<Field> fields) {
+    if (type == null || type == Object.class) {
+      return;
+    }
+    addFields(type.getSuperclass(), fields);
+    for (Field field : type.getDeclaredFields()) {
+      int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+        field.setAccessible(true);
+        fields.add(field);
+      }
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package org.entur.netex.index.snapshot;
+
+import static org.entur.netex.index.snapshot.SnapshotFormat.*;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * Read the values written by a {@link SnapshotWriter}. Only the classes of the NeTEx
+ * model and its enums are instantiated. A reader is used by a single thread.
+ */
+class SnapshotReader {
+
+  private final DataInputStream in;
+
+  /** Notified of each model object once read, as by the unmarshaller, may be null. */
+  private final Unmarshaller.Listener listener;
+
+  private final List<Object> handles = new ArrayList<>();
+
+  private final List<Class<?>> types = new ArrayList<>();
+
+  /** The model types whose fields are already checked against the snapshot. */
+  private final Set<Class<?>> describedTypes = new HashSet<>();
+
+  private final Map<Class<?>, Constructor<?>> constructors = new HashMap<>();
+
+  private DatatypeFactory datatypeFactory;
+
+  private DocumentBuilderFactory documentBuilderFactory;
+
+  SnapshotReader(DataInputStream in) {
+    this(in, null);
+  }
+
+  SnapshotReader(DataInputStream in, Unmarshaller.Listener listener) {
+    this.in = in;
+    this.listener = listener;
+  }
+
+  int readInt() throws IOException {
+    return in.readInt();
+  }
+
+  List<Object> readList() throws IOException {
+    int size = in.readInt();
+    List<Object> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(readObject());
+    }
+    return values;
+  }
+
+  Object readObject() throws IOException {
+    byte tag = in.readByte();
+    return switch (tag) {
+      case NULL -> null;
+      case REFERENCE -> handles.get(in.readInt());
+      case STRING -> {
+        String value = new String(readBytes(), StandardCharsets.UTF_8);
+        handles.add(value);
+        yield value;
+      }
+      case OBJECT -> readModelObject();
+      case ENUM -> readEnum();
+      case LIST -> readList();
+      case MAP -> {
+        int size = in.readInt();
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+          map.put(readObject(), readObject());
+        }
+        yield map;
+      }
+      case JAXB_ELEMENT -> readJaxbElement();
+      case BOOLEAN -> in.readBoolean();
+      case BYTE -> in.readByte();
+      case SHORT -> in.readShort();
+      case INTEGER -> in.readInt();
+      case LONG -> in.readLong();
+      case FLOAT -> in.readFloat();
+      case DOUBLE -> in.readDouble();
+      case CHARACTER -> in.readChar();
+      case BIG_INTEGER -> new BigInteger(readBytes());
+      case BIG_DECIMAL -> new BigDecimal(
+        new BigInteger(readBytes()),
+        in.readInt()
+      );
+      case LOCAL_DATE -> LocalDate.ofEpochDay(in.readLong());
+      case LOCAL_TIME -> LocalTime.ofNanoOfDay(in.readLong());
+      case LOCAL_DATE_TIME -> LocalDateTime.of(
+        LocalDate.ofEpochDay(in.readLong()),
+        LocalTime.ofNanoOfDay(in.readLong())
+      );
+      case OFFSET_DATE_TIME -> OffsetDateTime.parse(in.readUTF());
+      case OFFSET_TIME -> OffsetTime.parse(in.readUTF());
+      case ZONED_DATE_TIME -> ZonedDateTime.parse(in.readUTF());
+      case INSTANT -> Instant.ofEpochSecond(in.readLong(), in.readInt());
+      case DURATION -> Duration.ofSeconds(in.readLong(), in.readInt());
+      case XML_CALENDAR -> datatypeFactory()
+        .newXMLGregorianCalendar(in.readUTF());
+      case XML_DURATION -> datatypeFactory().newDuration(in.readUTF());
+      case QNAME -> readQName();
+      case BYTES -> readBytes();
+      case ELEMENT -> readElement();
+      default -> throw new IOException("Invalid snapshot, unknown tag: " + tag);
+    };
+  }
+
+  private Object readModelObject() throws IOException {
+    Class<?> type = readType();
+    if (!isModelType(type)) {
+      throw new IOException("Invalid snapshot, not a NeTEx type: " + type);
+    }
+    Field[] fields = fieldsOf(type);
+    if (describedTypes.add(type)) {
+      checkFields(type, fields);
+    }
+    try {
+      Object value = constructorOf(type).newInstance();
+      handles.add(value);
+      for (Field field : fields) {
+        field.set(value, readObject());
+      }
+      if (listener != null) {
+        listener.afterUnmarshal(value, null);
+      }
+      return value;
+    } catch (ReflectiveOperationException | IllegalArgumentException e) {
+      throw new IOException("Invalid snapshot: " + e.getMessage(), e);
+    }
+  }
+
+  /** Check that the fields of the type are the ones written in the snapshot. */
+  private void checkFields(Class<?> type, Field[] fields) throws IOException {
+    int size = in.readInt();
+    boolean sameFields = size == fields.length;
+    for (int i = 0; i < size; i++) {
+      String name = in.readUTF();
+      sameFields = sameFields && name.equals(fields[i].getName());
+    }
+    if (!sameFields) {
+      throw new IOException(
+        "The snapshot was written with another version of " + type.getName()
+      );
+    }
+  }
+
+  private Constructor<?> constructorOf(Class<?> type)
+    throws NoSuchMethodException {
+    Constructor<?> constructor = constructors.get(type);
+    if (constructor == null) {
+      constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      constructors.put(type, constructor);
+    }
+    return constructor;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object readEnum() throws IOException {
+    Class<?> type = readType();
+    if (!type.isEnum()) {
+      throw new IOException("Invalid snapshot, not an enum: " + type);
+    }
+    return Enum.valueOf((Class<? extends Enum>) type, in.readUTF());
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object readJaxbElement() throws IOException {
+    QName name = readQName();
+    Class declaredType = readType();
+    Class scope = readType();
+    boolean nil = in.readBoolean();
+    JAXBElement element = new JAXBElement(
+      name,
+      declaredType,
+      scope,
+      readObject()
+    );
+    element.setNil(nil);
+    return element;
+  }
+
+  private Class<?> readType() throws IOException {
+    int handle = in.readInt();
+    if (handle != NEW_TYPE) {
+      return types.get(handle);
+    }
+    String name = in.readUTF();
+    try {
+      Class<?> type = Class.forName(
+        name,
+        false,
+        SnapshotReader.class.getClassLoader()
+      );
+      types.add(type);
+      return type;
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unknown type in snapshot: " + name, e);
+    }
+  }
+
+  private QName readQName() throws IOException {
+    return new QName(
+      (String) readObject(),
+      (String) readObject(),
+      (String) readObject()
+    );
+  }
+
+  private byte[] readBytes() throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private Element readElement() throws IOException {
+    try {
+      return documentBuilderFactory()
+        .newDocumentBuilder()
+        .parse(new ByteArrayInputStream(readBytes()))
+        .getDocumentElement();
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private DatatypeFactory datatypeFactory() throws IOException {
+    if (datatypeFactory == null) {
+      try {
+        datatypeFactory = DatatypeFactory.newInstance();
+      } catch (DatatypeConfigurationException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+    return datatypeFactory;
+  }
+
+  /**
+   * Return a namespace-aware factory that does not resolve DTDs or external entities,
+   * like the XML input factory of the NeTEx parser.
+   */
+  private DocumentBuilderFactory documentBuilderFactory()
+    throws ParserConfigurationException {
+    if (documentBuilderFactory == null) {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setFeature(
+        "http://apache.org/xml/features/disallow-doctype-decl",
+        true
+      );
+      factory.setFeature(
+        "http://xml.org/sax/features/external-general-entities",
+        false
+      );
+      factory.setFeature(
+        "http://xml.org/sax/features/external-parameter-entities",
+        false
+      );
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      documentBuilderFactory = factory;
+    }
+    return documentBuilderFactory;
+  }
+}
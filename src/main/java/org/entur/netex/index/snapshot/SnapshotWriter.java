@@ -0,0 +1,257 @@
+package org.entur.netex.index.snapshot;
+
+import static org.entur.netex.index.snapshot.SnapshotFormat.*;
+
+import jakarta.xml.bind.JAXBElement;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Element;
+
+/**
+ * Write the values of an index in the snapshot format, see {@link SnapshotFormat}. A
+ * writer is used by a single thread.
+ */
+class SnapshotWriter {
+
+  private final DataOutputStream out;
+
+  private final Map<String, Integer> strings = new HashMap<>();
+
+  private final Map<Object, Integer> objects = new IdentityHashMap<>();
+
+  private final Map<Class<?>, Integer> types = new HashMap<>();
+
+  /** The model types whose fields are already written. */
+  private final Set<Class<?>> describedTypes = new HashSet<>();
+
+  private int handles;
+
+  SnapshotWriter(DataOutputStream out) {
+    this.out = out;
+  }
+
+  void writeInt(int value) throws IOException {
+    out.writeInt(value);
+  }
+
+  void writeCollection(Collection<?> values) throws IOException {
+    out.writeInt(values.size());
+    for (Object value : values) {
+      writeObject(value);
+    }
+  }
+
+  void writeObject(Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String string) {
+      writeString(string);
+    } else if (objects.containsKey(value)) {
+      out.writeByte(REFERENCE);
+      out.writeInt(objects.get(value));
+    } else if (isModelType(value.getClass())) {
+      writeModelObject(value);
+    } else if (value instanceof Enum<?> enumValue) {
+      out.writeByte(ENUM);
+      writeType(enumValue.getDeclaringClass());
+      out.writeUTF(enumValue.name());
+    } else if (value instanceof List<?> list) {
+      out.writeByte(LIST);
+      writeCollection(list);
+    } else if (value instanceof Map<?, ?> map) {
+      out.writeByte(MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeObject(entry.getKey());
+        writeObject(entry.getValue());
+      }
+    } else if (value instanceof JAXBElement<?> element) {
+      out.writeByte(JAXB_ELEMENT);
+      writeQName(element.getName());
+      writeType(element.getDeclaredType());
+      writeType(element.getScope());
+      out.writeBoolean(element.isNil());
+      writeObject(element.getValue());
+    } else {
+      writeValue(value);
+    }
+  }
+
+  private void writeValue(Object value) throws IOException {
+    if (value instanceof Boolean v) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean(v);
+    } else if (value instanceof Byte v) {
+      out.writeByte(BYTE);
+      out.writeByte(v);
+    } else if (value instanceof Short v) {
+      out.writeByte(SHORT);
+      out.writeShort(v);
+    } else if (value instanceof Integer v) {
+      out.writeByte(INTEGER);
+      out.writeInt(v);
+    } else if (value instanceof Long v) {
+      out.writeByte(LONG);
+      out.writeLong(v);
+    } else if (value instanceof Float v) {
+      out.writeByte(FLOAT);
+      out.writeFloat(v);
+    } else if (value instanceof Double v) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(v);
+    } else if (value instanceof Character v) {
+      out.writeByte(CHARACTER);
+      out.writeChar(v);
+    } else if (value instanceof BigInteger v) {
+      out.writeByte(BIG_INTEGER);
+      writeBytes(v.toByteArray());
+    } else if (value instanceof BigDecimal v) {
+      out.writeByte(BIG_DECIMAL);
+      writeBytes(v.unscaledValue().toByteArray());
+      out.writeInt(v.scale());
+    } else if (value instanceof LocalDate v) {
+      out.writeByte(LOCAL_DATE);
+      out.writeLong(v.toEpochDay());
+    } else if (value instanceof LocalTime v) {
+      out.writeByte(LOCAL_TIME);
+      out.writeLong(v.toNanoOfDay());
+    } else if (value instanceof LocalDateTime v) {
+      out.writeByte(LOCAL_DATE_TIME);
+      out.writeLong(v.toLocalDate().toEpochDay());
+      out.writeLong(v.toLocalTime().toNanoOfDay());
+    } else if (value instanceof OffsetDateTime v) {
+      out.writeByte(OFFSET_DATE_TIME);
+      out.writeUTF(v.toString());
+    } else if (value instanceof OffsetTime v) {
+      out.writeByte(OFFSET_TIME);
+      out.writeUTF(v.toString());
+    } else if (value instanceof ZonedDateTime v) {
+      out.writeByte(ZONED_DATE_TIME);
+      out.writeUTF(v.toString());
+    } else if (value instanceof Instant v) {
+      out.writeByte(INSTANT);
+      out.writeLong(v.getEpochSecond());
+      out.writeInt(v.getNano());
+    } else if (value instanceof Duration v) {
+      out.writeByte(DURATION);
+      out.writeLong(v.getSeconds());
+      out.writeInt(v.getNano());
+    } else if (value instanceof XMLGregorianCalendar v) {
+      out.writeByte(XML_CALENDAR);
+      out.writeUTF(v.toXMLFormat());
+    } else if (value instanceof javax.xml.datatype.Duration v) {
+      out.writeByte(XML_DURATION);
+      out.writeUTF(v.toString());
+    } else if (value instanceof QName v) {
+      out.writeByte(QNAME);
+      writeQName(v);
+    } else if (value instanceof byte[] v) {
+      out.writeByte(BYTES);
+      writeBytes(v);
+    } else if (value instanceof Element v) {
+      out.writeByte(ELEMENT);
+      writeBytes(toXml(v).getBytes(StandardCharsets.UTF_8));
+    } else {
+      throw new IOException(
+        "Type not supported in snapshots: " + value.getClass().getName()
+      );
+    }
+  }
+
+  private void writeString(String value) throws IOException {
+    Integer handle = strings.get(value);
+    if (handle != null) {
+      out.writeByte(REFERENCE);
+      out.writeInt(handle);
+    } else {
+      strings.put(value, handles++);
+      out.writeByte(STRING);
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private void writeModelObject(Object value) throws IOException {
+    objects.put(value, handles++);
+    Class<?> type = value.getClass();
+    Field[] fields = fieldsOf(type);
+    out.writeByte(OBJECT);
+    writeType(type);
+    if (describedTypes.add(type)) {
+      out.writeInt(fields.length);
+      for (Field field : fields) {
+        out.writeUTF(field.getName());
+      }
+    }
+    for (Field field : fields) {
+      try {
+        writeObject(field.get(value));
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+  }
+
+  private void writeType(Class<?> type) throws IOException {
+    Integer handle = types.get(type);
+    if (handle != null) {
+      out.writeInt(handle);
+    } else {
+      types.put(type, types.size());
+      out.writeInt(NEW_TYPE);
+      out.writeUTF(type.getName());
+    }
+  }
+
+  private void writeQName(QName name) throws IOException {
+    writeString(name.getNamespaceURI());
+    writeString(name.getLocalPart());
+    writeString(name.getPrefix());
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String toXml(Element element) throws IOException {
+    try {
+      Transformer transformer = TransformerFactory
+        .newInstance()
+        .newTransformer();
+      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+      StringWriter xml = new StringWriter();
+      transformer.transform(new DOMSource(element), new StreamResult(xml));
+      return xml.toString();
+    } catch (TransformerException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package org.entur.netex.index.snapshot;
+
+import jakarta.xml.bind.Unmarshaller;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of the unmarshalled documents of zip entries, in the snapshot format. An
+ * entry is identified by the CRC and the size of its content, so that an unchanged entry
+ * is read from the cache whatever the archive it is in, and a modified entry is
+ * unmarshalled again.
+ * <p>
+ * The cached documents are the result of the unmarshalling with the options of the parser,
+ * for instance with trimmed properties, so a cache directory should not be shared by
+ * parsers with different options. The cache is thread-safe.
+ */
+public class ZipEntryCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    ZipEntryCache.class
+  );
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String SUFFIX = ".entry";
+
+  private final Path directory;
+
+  /** The cache files read or written by this instance. */
+  private final Set<Path> usedFiles = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  public ZipEntryCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Return the cached document of the entry, or null if it is not in the cache. A cache
+   * file that cannot be read or deserialized is ignored.
+   */
+  public PublicationDeliveryStructure get(ZipEntry entry) {
+    return get(entry, null);
+  }
+
+  /**
+   * Return the cached document of the entry, as {@link #get(ZipEntry)}, and notify the
+   * listener of each object of the document once read, as the unmarshaller does. This
+   * applies for instance a {@link org.entur.netex.loader.StringDeduplicator} to the
+   * cached documents.
+   */
+  public PublicationDeliveryStructure get(
+    ZipEntry entry,
+    Unmarshaller.Listener listener
+  ) {
+    Path file = fileOf(entry);
+    if (file == null) {
+      return null;
+    }
+    try (
+      DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)
+      )
+    ) {
+      if (
+        in.readInt() == SnapshotFormat.MAGIC &&
+        in.readInt() == SnapshotFormat.VERSION
+      ) {
+        Object document = new SnapshotReader(in, listener).readObject();
+        usedFiles.add(file);
+        hits.increment();
+        return (PublicationDeliveryStructure) document;
+      }
+    } catch (NoSuchFileException e) {
+      // Not cached yet
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Ignoring unreadable cache file {}", file, e);
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Cache the document of the entry. The cache file is replaced atomically, so that
+   * concurrent loads of the same entry never read a partial file. The parser logs the
+   * failures to cache an entry and goes on with the load.
+   */
+  public void put(ZipEntry entry, PublicationDeliveryStructure document)
+    throws IOException {
+    Path file = fileOf(entry);
+    if (file == null) {
+      return;
+    }
+    Files.createDirectories(directory);
+    Path tempFile = Files.createTempFile(
+      directory,
+      file.getFileName().toString(),
+      ".tmp"
+    );
+    try {
+      try (
+        DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(
+            Files.newOutputStream(tempFile),
+            BUFFER_SIZE
+          )
+        )
+      ) {
+        out.writeInt(SnapshotFormat.MAGIC);
+        out.writeInt(SnapshotFormat.VERSION);
+        new SnapshotWriter(out).writeObject(document);
+      }
+      Files.move(
+        tempFile,
+        file,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+      );
+      usedFiles.add(file);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * Delete the cache files that were neither read nor written through this instance, for
+   * instance the files of the entries that were modified since the previous load.
+   *
+   * @return the number of deleted files
+   */
+  public int removeUnusedEntries() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+    int removed = 0;
+    try (
+      DirectoryStream<Path> files = Files.newDirectoryStream(
+        directory,
+        "*" + SUFFIX
+      )
+    ) {
+      for (Path file : files) {
+        if (!usedFiles.contains(file) && Files.deleteIfExists(file)) {
+          removed++;
+        }
+      }
+    }
+    return removed;
+  }
+
+  /** Return the number of entries read from the cache. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** Return the number of entries that were not in the cache. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** Return the cache file of the entry, or null if the CRC of the entry is not known. */
+  private Path fileOf(ZipEntry entry) {
+    if (entry.getCrc() == -1 || entry.getSize() == -1) {
+      return null;
+    }
+    return directory.resolve(
+      String.format("%08x-%d%s", entry.getCrc(), entry.getSize(), SUFFIX)
+    );
+  }
+}
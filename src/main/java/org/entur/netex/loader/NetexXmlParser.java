@@ -5,17 +5,61 @@ import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
 import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
 
-/** Simple wrapper to perform typesafe xml parsing and simple error handling. */
+/**
+ * Simple wrapper to perform typesafe xml parsing and simple error handling.
+ * <p>
+ * The JAXB context is created once per JVM and shared by all parsers. Unmarshallers are
+ * not thread-safe, each parser keeps a pool of them so that it can be used by many
+ * threads at the same time.
+ */
 public class NetexXmlParser {
 
-  /** used to parse the XML. */
-  private final Unmarshaller unmarshaller;
+  private static final XMLInputFactory XML_INPUT_FACTORY =
+    createXmlInputFactory();
+
+  /** Unmarshallers that are not currently in use. */
+  private final Queue<Unmarshaller> unmarshallers =
+    new ConcurrentLinkedQueue<>();
+
+  private final StringDeduplicator stringDeduplicator;
+
+  private final PropertyTrimmer propertyTrimmer;
 
   public NetexXmlParser() {
-    this.unmarshaller = createUnmarshaller();
+    this(null, null);
+  }
+
+  /**
+   * Create a parser that trims the properties of the unmarshalled entities with the given
+   * trimmer, then deduplicates their strings with the given deduplicator. Both are
+   * optional.
+   */
+  public NetexXmlParser(
+    StringDeduplicator stringDeduplicator,
+    PropertyTrimmer propertyTrimmer
+  ) {
+    this.stringDeduplicator = stringDeduplicator;
+    this.propertyTrimmer = propertyTrimmer;
+  }
+
+  /**
+   * Create the shared JAXB context, if not already done. Creating the context for the
+   * NeTEx model is expensive, services can call this method at startup instead of paying
+   * the cost when parsing the first document.
+   */
+  public static void warmUp() {
+    try {
+      JaxbContextHolder.JAXB_CONTEXT.createUnmarshaller();
+    } catch (JAXBException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   /**
@@ -23,13 +67,17 @@ public class NetexXmlParser {
    */
   public PublicationDeliveryStructure parseXmlDoc(InputStream stream)
     throws JAXBException {
-    @SuppressWarnings("unchecked")
-    JAXBElement<PublicationDeliveryStructure> root =
-      (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(
-        stream
-      );
-
-    return root.getValue();
+    Unmarshaller unmarshaller = borrowUnmarshaller();
+    try {
+      @SuppressWarnings("unchecked")
+      JAXBElement<PublicationDeliveryStructure> root =
+        (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(
+          stream
+        );
+      return root.getValue();
+    } finally {
+      releaseUnmarshaller(unmarshaller);
+    }
   }
 
   /**
@@ -37,26 +85,110 @@ public class NetexXmlParser {
    */
   public PublicationDeliveryStructure parseXmlDoc(XMLStreamReader reader)
     throws JAXBException {
-    @SuppressWarnings("unchecked")
-    JAXBElement<PublicationDeliveryStructure> root =
-      (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(
-        reader
-      );
+    Unmarshaller unmarshaller = borrowUnmarshaller();
+    try {
+      @SuppressWarnings("unchecked")
+      JAXBElement<PublicationDeliveryStructure> root =
+        (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(
+          reader
+        );
+      return root.getValue();
+    } finally {
+      releaseUnmarshaller(unmarshaller);
+    }
+  }
+
+  /**
+   * Unmarshal the element the reader is positioned on, including its children, as the given
+   * type. On return the reader is positioned on the event following the end of the element.
+   */
+  public <T> T parseXmlElement(XMLStreamReader reader, Class<T> type)
+    throws JAXBException {
+    Unmarshaller unmarshaller = borrowUnmarshaller();
+    try {
+      return unmarshaller.unmarshal(reader, type).getValue();
+    } finally {
+      releaseUnmarshaller(unmarshaller);
+    }
+  }
+
+  /** Return the string deduplicator of this parser, or null if there is none. */
+  public StringDeduplicator getStringDeduplicator() {
+    return stringDeduplicator;
+  }
 
-    return root.getValue();
+  /** Return the property trimmer of this parser, or null if there is none. */
+  public PropertyTrimmer getPropertyTrimmer() {
+    return propertyTrimmer;
   }
 
-  /** factory method for unmarshaller */
-  private static Unmarshaller createUnmarshaller() {
+  /**
+   * Create a default XML stream reader (StAX) for the given input stream.
+   */
+  public static XMLStreamReader createXmlStreamReader(InputStream stream) {
     try {
-      return JAXBContext
-        .newInstance(PublicationDeliveryStructure.class)
-        .createUnmarshaller();
-    } catch (JAXBException e) {
-      // This is a programming error - not expected!
-      // We abort early and also allow for this to happen in the constructor;
-      // Which in other cases would be considered bad practice.
-      throw new RuntimeException(e);
+      // XMLInputFactory is not guaranteed to be thread-safe
+      synchronized (XML_INPUT_FACTORY) {
+        return XML_INPUT_FACTORY.createXMLStreamReader(stream);
+      }
+    } catch (XMLStreamException e) {
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Take an unmarshaller from the pool, or create a new one if all unmarshallers are in use.
+   * The unmarshaller must be given back with {@link #releaseUnmarshaller(Unmarshaller)}.
+   */
+  private Unmarshaller borrowUnmarshaller() throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.poll();
+    if (unmarshaller == null) {
+      unmarshaller = JaxbContextHolder.JAXB_CONTEXT.createUnmarshaller();
+      if (propertyTrimmer != null && stringDeduplicator != null) {
+        unmarshaller.setListener(
+          new Unmarshaller.Listener() {
+            @Override
+            public void afterUnmarshal(Object target, Object parent) {
+              propertyTrimmer.afterUnmarshal(target, parent);
+              stringDeduplicator.afterUnmarshal(target, parent);
+            }
+          }
+        );
+      } else if (propertyTrimmer != null) {
+        unmarshaller.setListener(propertyTrimmer);
+      } else if (stringDeduplicator != null) {
+        unmarshaller.setListener(stringDeduplicator);
+      }
+    }
+    return unmarshaller;
+  }
+
+  private void releaseUnmarshaller(Unmarshaller unmarshaller) {
+    unmarshallers.offer(unmarshaller);
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /** Lazy holder of the JAXB context, initialized on first use. */
+  private static final class JaxbContextHolder {
+
+    private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
+
+    /** factory method for JAXB context */
+    private static JAXBContext createJaxbContext() {
+      try {
+        return JAXBContext.newInstance(PublicationDeliveryStructure.class);
+      } catch (JAXBException e) {
+        // This is a programming error - not expected!
+        // We abort early and also allow for this to happen in the class initializer;
+        // Which in other cases would be considered bad practice.
+        throw new RuntimeException(e);
+      }
     }
   }
 }
@@ -0,0 +1,256 @@
+package org.entur.netex.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Enumeration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.rutebanken.netex.model.PublicationDeliveryStructure;
+
+/**
+ * Load the entries of a zip archive in three stages running concurrently:
+ * <ol>
+ *     <li>an inflater thread decompresses the entries into buffers,</li>
+ *     <li>an unmarshaller thread parses the buffered entries into documents,</li>
+ *     <li>the calling thread passes the documents to the consumer, in entry order.</li>
+ * </ol>
+ * The stages are connected by bounded queues. A stage that is ahead waits for the next
+ * one, so the memory used by the pipeline does not depend on the size of the archive.
+ */
+public class PipelinedZipLoader {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  /** The number of chunks buffered ahead of the unmarshaller. */
+  private static final int CHUNK_CAPACITY = 16;
+
+  /** The number of documents unmarshalled ahead of the consumer. */
+  private static final int DOCUMENT_CAPACITY = 1;
+
+  private static final ChunkedInputStream NO_MORE_ENTRIES =
+    new ChunkedInputStream();
+
+  private static final Object NO_MORE_DOCUMENTS = new Object();
+
+  private static final Object FAILED = new Object();
+
+  private final Function<InputStream, PublicationDeliveryStructure> unmarshaller;
+
+  /**
+   * @param unmarshaller parse a NeTEx document, called on the unmarshaller thread
+   */
+  public PipelinedZipLoader(
+    Function<InputStream, PublicationDeliveryStructure> unmarshaller
+  ) {
+    this.unmarshaller = unmarshaller;
+  }
+
+  /**
+   * Load the entries of the archive and pass the documents to the consumer, on the calling
+   * thread and in the order of the entries.
+   */
+  public void load(
+    ZipFile zipFile,
+    Consumer<PublicationDeliveryStructure> consumer
+  ) throws IOException {
+    BlockingQueue<ChunkedInputStream> entries = new ArrayBlockingQueue<>(1);
+    BlockingQueue<Object> documents = new ArrayBlockingQueue<>(
+      DOCUMENT_CAPACITY
+    );
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread inflater = startStage(
+      "netex-inflater",
+      () -> inflate(zipFile, entries),
+      failure,
+      documents
+    );
+    Thread unmarshaller = startStage(
+      "netex-unmarshaller",
+      () -> unmarshal(entries, documents),
+      failure,
+      documents
+    );
+    try {
+      while (true) {
+        throwIfFailed(failure);
+        Object document = documents.take();
+        if (document == NO_MORE_DOCUMENTS) {
+          return;
+        }
+        if (document != FAILED) {
+          consumer.accept((PublicationDeliveryStructure) document);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing NeTEx files");
+    } finally {
+      inflater.interrupt();
+      unmarshaller.interrupt();
+    }
+  }
+
+  private void inflate(
+    ZipFile zipFile,
+    BlockingQueue<ChunkedInputStream> entries
+  ) throws IOException, InterruptedException {
+    Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+    while (zipEntries.hasMoreElements()) {
+      ChunkedInputStream entry = new ChunkedInputStream();
+      entries.put(entry);
+      try (
+        InputStream stream = zipFile.getInputStream(zipEntries.nextElement())
+      ) {
+        byte[] chunk = stream.readNBytes(CHUNK_SIZE);
+        while (chunk.length > 0) {
+          entry.put(chunk);
+          chunk = stream.readNBytes(CHUNK_SIZE);
+        }
+      }
+      entry.putEndOfEntry();
+    }
+    entries.put(NO_MORE_ENTRIES);
+  }
+
+  private void unmarshal(
+    BlockingQueue<ChunkedInputStream> entries,
+    BlockingQueue<Object> documents
+  ) throws IOException, InterruptedException {
+    ChunkedInputStream entry = entries.take();
+    while (entry != NO_MORE_ENTRIES) {
+      PublicationDeliveryStructure document = unmarshaller.apply(entry);
+      // The unmarshaller may stop reading before the end of the entry
+      entry.skipToEnd();
+      documents.put(document);
+      entry = entries.take();
+    }
+    documents.put(NO_MORE_DOCUMENTS);
+  }
+
+  /**
+   * Run a stage on a new daemon thread. If the stage fails, the failure is recorded before
+   * the consumer is woken up, and the consumer rethrows it. The failed stage never blocks,
+   * if the document queue is full the consumer sees the failure before its next wait.
+   */
+  private static Thread startStage(
+    String name,
+    Stage stage,
+    AtomicReference<Throwable> failure,
+    BlockingQueue<Object> documents
+  ) {
+    Thread thread = new Thread(
+      () -> {
+        try {
+          stage.run();
+        } catch (InterruptedException e) {
+          // The load is over, the consumer has stopped
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+          documents.offer(FAILED);
+        }
+      },
+      name
+    );
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static void throwIfFailed(AtomicReference<Throwable> failure)
+    throws IOException {
+    Throwable e = failure.get();
+    if (e == null) {
+      return;
+    }
+    if (e instanceof IOException ioException) {
+      throw ioException;
+    }
+    if (e instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (e instanceof Error error) {
+      throw error;
+    }
+    throw new RuntimeException(e.getMessage(), e);
+  }
+
+  @FunctionalInterface
+  private interface Stage {
+    void run() throws IOException, InterruptedException;
+  }
+
+  /** Input stream reading the chunks of an entry as they are inflated. */
+  private static final class ChunkedInputStream extends InputStream {
+
+    private static final byte[] END_OF_ENTRY = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(
+      CHUNK_CAPACITY
+    );
+
+    private byte[] chunk = new byte[0];
+
+    private int position;
+
+    private boolean endOfEntry;
+
+    void put(byte[] chunk) throws InterruptedException {
+      chunks.put(chunk);
+    }
+
+    void putEndOfEntry() throws InterruptedException {
+      chunks.put(END_OF_ENTRY);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!fill()) {
+        return -1;
+      }
+      return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int n = Math.min(length, chunk.length - position);
+      System.arraycopy(chunk, position, buffer, offset, n);
+      position += n;
+      return n;
+    }
+
+    /** Discard the remaining chunks, so that the inflater can move to the next entry. */
+    void skipToEnd() throws IOException {
+      while (fill()) {
+        position = chunk.length;
+      }
+    }
+
+    /** Take the next chunk if the current one is consumed. Return false at the end. */
+    private boolean fill() throws IOException {
+      while (!endOfEntry && position == chunk.length) {
+        try {
+          chunk = chunks.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading entry");
+        }
+        position = 0;
+        endOfEntry = chunk == END_OF_ENTRY;
+      }
+      return !endOfEntry;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org.entur.netex.loader;
+
+import jakarta.xml.bind.Unmarshaller;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unmarshaller listener that sets the given properties of the unmarshalled objects to null,
+ * so that the subtrees the library does not read are not retained by the indexed entities.
+ * <p>
+ * The properties are given by their name in the NeTEx model, for instance {@code keyList}
+ * for the KeyList element, and apply to every class that declares them. The listener is
+ * thread-safe, and can be set on the unmarshallers of several threads.
+ */
+public class PropertyTrimmer extends Unmarshaller.Listener {
+
+  /**
+   * Properties that the parser never reads: the KeyList, the Extensions and the alternative
+   * texts of the entities. The GML projections are not included since they hold the
+   * geometry of service links, see {@link #PROJECTIONS}.
+   */
+  public static final Set<String> UNUSED_PROPERTIES = Set.of(
+    "keyList",
+    "extensions",
+    "alternativeTexts"
+  );
+
+  /** The projections of points, links and zones, such as the GML lines of service links. */
+  public static final String PROJECTIONS = "projections";
+
+  private final Set<String> properties;
+
+  /** The fields to trim, by class. */
+  private final ClassValue<Field[]> fields = new ClassValue<>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      return fieldsToTrim(type);
+    }
+  };
+
+  private final LongAdder trimmed = new LongAdder();
+
+  public PropertyTrimmer(Set<String> properties) {
+    this.properties = Set.copyOf(properties);
+  }
+
+  @Override
+  public void afterUnmarshal(Object target, Object parent) {
+    for (Field field : fields.get(target.getClass())) {
+      try {
+        if (field.get(target) != null) {
+          field.set(target, null);
+          trimmed.increment();
+        }
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+  }
+
+  /** Return the number of properties set to null so far. */
+  public long getTrimmedCount() {
+    return trimmed.sum();
+  }
+
+  private Field[] fieldsToTrim(Class<?> type) {
+    List<Field> result = new ArrayList<>();
+    for (
+      Class<?> c = type;
+      c != null && c != Object.class;
+      c = c.getSuperclass()
+    ) {
+      for (Field field : c.getDeclaredFields()) {
+        if (
+          properties.contains(field.getName()) &&
+          !field.getType().isPrimitive() &&
+          !Modifier.isStatic(field.getModifiers()) &&
+          !Modifier.isFinal(field.getModifiers())
+        ) {
+          field.setAccessible(true);
+          result.add(field);
+        }
+      }
+    }
+    return result.toArray(new Field[0]);
+  }
+}
@@ -0,0 +1,83 @@
+package org.entur.netex.loader;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * XML stream reader that skips whole elements, including their children, as the document
+ * is read. Subclasses decide which elements to skip, the skipped elements are never seen
+ * by the consumer of the reader, for instance the JAXB unmarshaller.
+ */
+public abstract class SkippingXmlStreamReader extends StreamReaderDelegate {
+
+  protected SkippingXmlStreamReader(XMLStreamReader reader) {
+    super(reader);
+  }
+
+  /**
+   * Called for each start tag, with the reader positioned on it. Return false to skip the
+   * element, including its children.
+   */
+  protected abstract boolean acceptElement();
+
+  /** Called for each end tag of an element that is not skipped. */
+  protected void onEndElement() {}
+
+  @Override
+  public int next() throws XMLStreamException {
+    int event = super.next();
+    while (event == XMLStreamConstants.START_ELEMENT && !acceptElement()) {
+      skipElement();
+      event = super.next();
+    }
+    if (event == XMLStreamConstants.END_ELEMENT) {
+      onEndElement();
+    }
+    return event;
+  }
+
+  /**
+   * The delegate implementation reads directly from the underlying reader, which would
+   * bypass the filter.
+   */
+  @Override
+  public int nextTag() throws XMLStreamException {
+    int event = next();
+    while (isIgnorable(event)) {
+      event = next();
+    }
+    if (
+      event != XMLStreamConstants.START_ELEMENT &&
+      event != XMLStreamConstants.END_ELEMENT
+    ) {
+      throw new XMLStreamException("Expected start or end tag", getLocation());
+    }
+    return event;
+  }
+
+  private boolean isIgnorable(int event) {
+    return switch (event) {
+      case XMLStreamConstants.CHARACTERS,
+        XMLStreamConstants.CDATA -> isWhiteSpace();
+      case XMLStreamConstants.SPACE,
+        XMLStreamConstants.PROCESSING_INSTRUCTION,
+        XMLStreamConstants.COMMENT -> true;
+      default -> false;
+    };
+  }
+
+  /** Skip the current element, up to and including its end tag. */
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = super.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package org.entur.netex.loader;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import jakarta.xml.bind.Unmarshaller;
+import java.util.concurrent.atomic.LongAdder;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+import org.rutebanken.netex.model.EntityStructure;
+import org.rutebanken.netex.model.MultilingualString;
+import org.rutebanken.netex.model.PrivateCodeStructure;
+import org.rutebanken.netex.model.VersionOfObjectRefStructure;
+
+/**
+ * Unmarshaller listener that replaces the strings that occur many times in a NeTEx
+ * dataset by a single instance: the ids and versions of the entities, the ids and versions
+ * of the references, and the texts of names and private codes.
+ * <p>
+ * An instance is meant to be used for one load. The strings are held in a weak intern
+ * table, so that they are released with the entities that use them. The listener is
+ * thread-safe, and can be set on the unmarshallers of several threads.
+ */
+public class StringDeduplicator extends Unmarshaller.Listener {
+
+  /**
+   * The size of a string besides its characters: the header and fields of the String and
+   * the header of its byte array, on a 64-bit JVM with compressed references.
+   */
+  private static final int STRING_OVERHEAD = 40;
+
+  private final Interner<String> interner = Interners.newWeakInterner();
+
+  private final LongAdder strings = new LongAdder();
+
+  private final LongAdder duplicates = new LongAdder();
+
+  private final LongAdder savedBytes = new LongAdder();
+
+  @Override
+  public void afterUnmarshal(Object target, Object parent) {
+    if (target instanceof EntityStructure entity) {
+      entity.setId(deduplicate(entity.getId()));
+      if (entity instanceof EntityInVersionStructure versioned) {
+        versioned.setVersion(deduplicate(versioned.getVersion()));
+      }
+    } else if (target instanceof VersionOfObjectRefStructure reference) {
+      reference.setRef(deduplicate(reference.getRef()));
+      reference.setVersion(deduplicate(reference.getVersion()));
+    } else if (target instanceof MultilingualString text) {
+      text.setValue(deduplicate(text.getValue()));
+      text.setLang(deduplicate(text.getLang()));
+    } else if (target instanceof PrivateCodeStructure privateCode) {
+      privateCode.setValue(deduplicate(privateCode.getValue()));
+      privateCode.setType(deduplicate(privateCode.getType()));
+    }
+  }
+
+  /** Return the statistics of the strings deduplicated so far. */
+  public Statistics getStatistics() {
+    return new Statistics(
+      strings.sum(),
+      duplicates.sum(),
+      savedBytes.sum()
+    );
+  }
+
+  private String deduplicate(String value) {
+    if (value == null) {
+      return null;
+    }
+    strings.increment();
+    String canonical = interner.intern(value);
+    if (canonical != value) {
+      duplicates.increment();
+      savedBytes.add(STRING_OVERHEAD + value.length());
+    }
+    return canonical;
+  }
+
+  /**
+   * @param strings the number of strings looked up in the intern table
+   * @param duplicates the number of strings replaced by an equal instance
+   * @param savedBytes an estimate of the heap no longer used by the replaced strings,
+   *                   assuming one byte per character
+   */
+  public record Statistics(long strings, long duplicates, long savedBytes) {
+    @Override
+    public String toString() {
+      return String.format(
+        "%d strings, %d duplicates, %d KB saved",
+        strings,
+        duplicates,
+        savedBytes / 1024
+      );
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package org.entur.netex.loader.parser;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.entur.netex.loader.NetexXmlParser;
+
+/**
+ * Unmarshal the entities of a large collection, such as the vehicleJourneys of a
+ * TimetableFrame, on several threads.
+ * <p>
+ * The collection is read on the calling thread and copied, a chunk of entities at a time,
+ * into small standalone documents. The chunks are unmarshalled on the executor, and the
+ * entities are passed to the consumer on the calling thread in document order, so the
+ * result is the same as when the entities are unmarshalled one after the other.
+ */
+public class ChunkedContainerParser {
+
+  private static final XMLOutputFactory XML_OUTPUT_FACTORY =
+    createXmlOutputFactory();
+
+  private static final String CHUNK_ELEMENT = "chunk";
+
+  private final NetexXmlParser xmlParser;
+
+  private final ExecutorService executor;
+
+  private final int chunkSize;
+
+  private final int parallelism;
+
+  /**
+   * @param chunkSize the number of entities in each chunk
+   * @param parallelism the maximum number of chunks unmarshalled ahead of the consumer
+   */
+  public ChunkedContainerParser(
+    NetexXmlParser xmlParser,
+    ExecutorService executor,
+    int chunkSize,
+    int parallelism
+  ) {
+    this.xmlParser = xmlParser;
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Unmarshal the children of the collection the reader is positioned on, and pass them to
+   * the consumer in document order. On return the reader is positioned after the end tag
+   * of the collection.
+   *
+   * @param namespaces the namespaces in scope, by prefix, declared on each chunk so that
+   *                   prefixed attribute values stay valid
+   */
+  void parse(
+    XMLStreamReader reader,
+    Map<String, String> namespaces,
+    Consumer<Object> consumer
+  ) throws XMLStreamException {
+    Deque<Future<List<Object>>> pending = new ArrayDeque<>();
+    try {
+      reader.next();
+      while (nextElement(reader) == START_ELEMENT) {
+        byte[] chunk = copyChunk(reader, namespaces);
+        pending.add(executor.submit(() -> unmarshalChunk(chunk)));
+        if (pending.size() >= parallelism) {
+          getResult(pending.poll()).forEach(consumer);
+        }
+      }
+      reader.next();
+      while (!pending.isEmpty()) {
+        getResult(pending.poll()).forEach(consumer);
+      }
+    } finally {
+      pending.forEach(future -> future.cancel(true));
+    }
+  }
+
+  /** Copy up to chunkSize elements, starting with the element the reader is on. */
+  private byte[] copyChunk(
+    XMLStreamReader reader,
+    Map<String, String> namespaces
+  ) throws XMLStreamException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLStreamWriter writer = createXmlStreamWriter(out);
+    writer.writeStartElement(CHUNK_ELEMENT);
+    for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+      if (namespace.getKey().isEmpty()) {
+        writer.writeDefaultNamespace(namespace.getValue());
+      } else {
+        writer.writeNamespace(namespace.getKey(), namespace.getValue());
+      }
+    }
+    int count = 0;
+    do {
+      copyElement(reader, writer);
+      count++;
+    } while (count < chunkSize && nextElement(reader) == START_ELEMENT);
+    writer.writeEndElement();
+    writer.close();
+    return out.toByteArray();
+  }
+
+  /**
+   * Copy the element the reader is positioned on, including its children. On return the
+   * reader is positioned on the event following the end of the element.
+   */
+  private static void copyElement(
+    XMLStreamReader reader,
+    XMLStreamWriter writer
+  ) throws XMLStreamException {
+    int depth = 0;
+    do {
+      switch (reader.getEventType()) {
+        case START_ELEMENT -> {
+          depth++;
+          writeStartElement(reader, writer);
+        }
+        case END_ELEMENT -> {
+          depth--;
+          writer.writeEndElement();
+        }
+        case CHARACTERS, CDATA, SPACE -> writer.writeCharacters(
+          reader.getTextCharacters(),
+          reader.getTextStart(),
+          reader.getTextLength()
+        );
+        default -> {}
+      }
+      reader.next();
+    } while (depth > 0);
+  }
+
+  private static void writeStartElement(
+    XMLStreamReader reader,
+    XMLStreamWriter writer
+  ) throws XMLStreamException {
+    writer.writeStartElement(
+      nonNull(reader.getPrefix()),
+      reader.getLocalName(),
+      nonNull(reader.getNamespaceURI())
+    );
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      if (prefix == null || prefix.isEmpty()) {
+        writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+      } else {
+        writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+      }
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String namespace = reader.getAttributeNamespace(i);
+      if (namespace == null || namespace.isEmpty()) {
+        writer.writeAttribute(
+          reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i)
+        );
+      } else {
+        writer.writeAttribute(
+          nonNull(reader.getAttributePrefix(i)),
+          namespace,
+          reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i)
+        );
+      }
+    }
+  }
+
+  /** Unmarshal the entities of a chunk, called on the executor. */
+  private List<Object> unmarshalChunk(byte[] chunk)
+    throws XMLStreamException, JAXBException {
+    XMLStreamReader reader = NetexXmlParser.createXmlStreamReader(
+      new ByteArrayInputStream(chunk)
+    );
+    try {
+      List<Object> entities = new ArrayList<>();
+      // Move to the chunk element, then to its children
+      nextElement(reader);
+      reader.next();
+      while (nextElement(reader) == START_ELEMENT) {
+        Class<?> type = NetexStreamingDocumentParser.entityType(
+          reader.getLocalName()
+        );
+        if (type == null) {
+          skipElement(reader);
+        } else {
+          entities.add(xmlParser.parseXmlElement(reader, type));
+        }
+      }
+      return entities;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Wait for a chunk, and rethrow its failure on the calling thread. */
+  private static List<Object> getResult(Future<List<Object>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException(
+        new InterruptedIOException("Interrupted while parsing NeTEx files")
+      );
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof IOException ioException) {
+        throw new UncheckedIOException(ioException);
+      }
+      throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /** Move to the next start or end tag, unless the reader is already positioned on one. */
+  private static int nextElement(XMLStreamReader reader)
+    throws XMLStreamException {
+    int event = reader.getEventType();
+    while (event != START_ELEMENT && event != END_ELEMENT) {
+      event = reader.next();
+    }
+    return event;
+  }
+
+  /** Skip the element the reader is positioned on, including its children. */
+  private static void skipElement(XMLStreamReader reader)
+    throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        depth++;
+      } else if (event == END_ELEMENT) {
+        depth--;
+      }
+    }
+    reader.next();
+  }
+
+  private static String nonNull(String value) {
+    return value == null ? "" : value;
+  }
+
+  private static XMLStreamWriter createXmlStreamWriter(
+    ByteArrayOutputStream out
+  ) throws XMLStreamException {
+    // XMLOutputFactory is not guaranteed to be thread-safe
+    synchronized (XML_OUTPUT_FACTORY) {
+      return XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+    }
+  }
+
+  private static XMLOutputFactory createXmlOutputFactory() {
+    XMLOutputFactory factory = XMLOutputFactory.newFactory();
+    factory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+    return factory;
+  }
+}
@@ -0,0 +1,318 @@
+package org.entur.netex.loader.parser;
+
+import static java.util.Map.entry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.stream.XMLStreamReader;
+import org.entur.netex.loader.SkippingXmlStreamReader;
+import org.rutebanken.netex.model.Authority;
+import org.rutebanken.netex.model.Block;
+import org.rutebanken.netex.model.Branding;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DeadRun;
+import org.rutebanken.netex.model.DestinationDisplay;
+import org.rutebanken.netex.model.FareZone;
+import org.rutebanken.netex.model.FlexibleLine;
+import org.rutebanken.netex.model.FlexibleStopAssignment;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.GroupOfLines;
+import org.rutebanken.netex.model.GroupOfStopPlaces;
+import org.rutebanken.netex.model.GroupOfTariffZones;
+import org.rutebanken.netex.model.JourneyPattern;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
+import org.rutebanken.netex.model.OperatingDay;
+import org.rutebanken.netex.model.OperatingPeriod;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.Parking;
+import org.rutebanken.netex.model.PassengerStopAssignment;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.Route;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ScheduledStopPoint;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ServiceJourneyPattern;
+import org.rutebanken.netex.model.ServiceLink;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TopographicPlace;
+
+/**
+ * The entity types to load from a NeTEx document. Frames, collections in frames and
+ * entities that do not contain any of the selected types are skipped at the XML stream
+ * level and never unmarshalled.
+ * <p>
+ * Entities nested in other entities are loaded with their parent: selecting Quay loads the
+ * StopPlaces, selecting GroupOfLines loads the Networks.
+ */
+public final class EntityTypeSelection {
+
+  private static final String COMPOSITE_FRAME = "CompositeFrame";
+
+  private static final String FRAME_SUFFIX = "Frame";
+
+  /** The entity types found in each child element of the frames, by frame name. */
+  private static final Map<String, Map<String, Set<Class<?>>>> ENTITY_TYPES_BY_FRAME =
+    Map.of(
+      "ResourceFrame",
+      Map.of(
+        "organisations",
+        Set.of(Authority.class, Operator.class),
+        "typesOfValue",
+        Set.of(Branding.class)
+      ),
+      "ServiceCalendarFrame",
+      Map.of(
+        "ServiceCalendar",
+        Set.of(
+          DayType.class,
+          OperatingPeriod.class,
+          OperatingDay.class,
+          DayTypeAssignment.class
+        ),
+        "dayTypes",
+        Set.of(DayType.class),
+        "operatingPeriods",
+        Set.of(OperatingPeriod.class),
+        "operatingDays",
+        Set.of(OperatingDay.class),
+        "dayTypeAssignments",
+        Set.of(DayTypeAssignment.class)
+      ),
+      "VehicleScheduleFrame",
+      Map.of("blocks", Set.of(Block.class)),
+      "TimetableFrame",
+      Map.of(
+        "vehicleJourneys",
+        Set.of(ServiceJourney.class, DatedServiceJourney.class, DeadRun.class),
+        "journeyInterchanges",
+        Set.of(ServiceJourneyInterchange.class),
+        "notices",
+        Set.of(Notice.class),
+        "noticeAssignments",
+        Set.of(NoticeAssignment.class)
+      ),
+      "ServiceFrame",
+      Map.ofEntries(
+        entry(
+          "stopAssignments",
+          Set.of(PassengerStopAssignment.class, FlexibleStopAssignment.class)
+        ),
+        entry("routes", Set.of(Route.class)),
+        entry("Network", Set.of(Network.class, GroupOfLines.class)),
+        entry("additionalNetworks", Set.of(Network.class, GroupOfLines.class)),
+        entry("notices", Set.of(Notice.class)),
+        entry("noticeAssignments", Set.of(NoticeAssignment.class)),
+        entry("lines", Set.of(Line.class, FlexibleLine.class)),
+        entry(
+          "journeyPatterns",
+          Set.of(JourneyPattern.class, ServiceJourneyPattern.class)
+        ),
+        entry("destinationDisplays", Set.of(DestinationDisplay.class)),
+        entry("serviceLinks", Set.of(ServiceLink.class)),
+        entry("scheduledStopPoints", Set.of(ScheduledStopPoint.class)),
+        entry("routePoints", Set.of(RoutePoint.class))
+      ),
+      "SiteFrame",
+      Map.of(
+        "stopPlaces",
+        Set.of(StopPlace.class, Quay.class),
+        "groupsOfStopPlaces",
+        Set.of(GroupOfStopPlaces.class),
+        "flexibleStopPlaces",
+        Set.of(FlexibleStopPlace.class),
+        "tariffZones",
+        Set.of(TariffZone.class),
+        "topographicPlaces",
+        Set.of(TopographicPlace.class),
+        "parkings",
+        Set.of(Parking.class),
+        "groupsOfTariffZones",
+        Set.of(GroupOfTariffZones.class)
+      ),
+      "FareFrame",
+      Map.of("fareZones", Set.of(FareZone.class))
+    );
+
+  /**
+   * The entity types loaded with each entity, by element name. This is the entity itself,
+   * and the entities nested in it.
+   */
+  private static final Map<String, Set<Class<?>>> ENTITY_TYPES_BY_ELEMENT =
+    createEntityTypesByElement();
+
+  private static final EntityTypeSelection ALL = new EntityTypeSelection(
+    null
+  );
+
+  /** The selected types, null if all types are selected. */
+  private final Set<Class<?>> entityTypes;
+
+  private EntityTypeSelection(Set<Class<?>> entityTypes) {
+    this.entityTypes = entityTypes;
+  }
+
+  /** Select all entity types, nothing is skipped. */
+  public static EntityTypeSelection all() {
+    return ALL;
+  }
+
+  /**
+   * Select the given entity types.
+   *
+   * @throws IllegalArgumentException if one of the types is not loaded by the parser
+   */
+  public static EntityTypeSelection of(Collection<Class<?>> entityTypes) {
+    for (Class<?> entityType : entityTypes) {
+      if (!isSupported(entityType)) {
+        throw new IllegalArgumentException(
+          "Entity type not supported: " + entityType.getName()
+        );
+      }
+    }
+    return new EntityTypeSelection(Set.copyOf(entityTypes));
+  }
+
+  public boolean isAll() {
+    return entityTypes == null;
+  }
+
+  /**
+   * Return true if the frame with the given element name contains some of the selected
+   * types. Composite frames are always selected, the frames they contain are checked
+   * instead.
+   */
+  public boolean isFrameSelected(String frame) {
+    if (isAll() || COMPOSITE_FRAME.equals(frame)) {
+      return true;
+    }
+    Map<String, Set<Class<?>>> elements = ENTITY_TYPES_BY_FRAME.get(frame);
+    return (
+      elements != null &&
+      elements.keySet().stream().anyMatch(e -> isFrameElementSelected(frame, e))
+    );
+  }
+
+  /**
+   * Return true if the given child element of a frame contains some of the selected types.
+   */
+  public boolean isFrameElementSelected(String frame, String element) {
+    if (isAll()) {
+      return true;
+    }
+    Set<Class<?>> types = ENTITY_TYPES_BY_FRAME
+      .getOrDefault(frame, Map.of())
+      .getOrDefault(element, Set.of());
+    return types.stream().anyMatch(entityTypes::contains);
+  }
+
+  /**
+   * Return true if the entity with the given element name is, or contains, one of the
+   * selected types. Elements that are not entities handled by the parser are selected.
+   */
+  public boolean isEntitySelected(String element) {
+    if (isAll()) {
+      return true;
+    }
+    Set<Class<?>> types = ENTITY_TYPES_BY_ELEMENT.get(element);
+    return types == null || types.stream().anyMatch(entityTypes::contains);
+  }
+
+  /**
+   * Wrap the reader so that the frames and frame elements that are not selected are
+   * skipped.
+   */
+  public XMLStreamReader filter(XMLStreamReader reader) {
+    return isAll() ? reader : new SelectionXmlStreamReader(reader);
+  }
+
+  @Override
+  public String toString() {
+    if (isAll()) {
+      return "EntityTypeSelection{all}";
+    }
+    Set<String> names = new TreeSet<>();
+    entityTypes.forEach(type -> names.add(type.getSimpleName()));
+    return "EntityTypeSelection" + names;
+  }
+
+  private static boolean isSupported(Class<?> entityType) {
+    return ENTITY_TYPES_BY_FRAME
+      .values()
+      .stream()
+      .flatMap(elements -> elements.values().stream())
+      .anyMatch(types -> types.contains(entityType));
+  }
+
+  private static Map<String, Set<Class<?>>> createEntityTypesByElement() {
+    Map<String, Set<Class<?>>> typesByElement = new HashMap<>();
+    ENTITY_TYPES_BY_FRAME
+      .values()
+      .stream()
+      .flatMap(elements -> elements.values().stream())
+      .flatMap(Set::stream)
+      .forEach(type -> typesByElement.put(type.getSimpleName(), Set.of(type)));
+    typesByElement.put("StopPlace", Set.of(StopPlace.class, Quay.class));
+    typesByElement.put("Network", Set.of(Network.class, GroupOfLines.class));
+    return Map.copyOf(typesByElement);
+  }
+
+  /** Skip the frames and frame elements that are not selected. */
+  private class SelectionXmlStreamReader extends SkippingXmlStreamReader {
+
+    /** Depth of the current element. */
+    private int depth;
+
+    /** The frame the reader is in, and its depth, if any. */
+    private String frame;
+    private int frameDepth;
+
+    SelectionXmlStreamReader(XMLStreamReader reader) {
+      super(reader);
+    }
+
+    @Override
+    protected boolean acceptElement() {
+      String name = getLocalName();
+      if (frame != null) {
+        if (depth == frameDepth && !isFrameElementSelected(frame, name)) {
+          return false;
+        }
+        if (depth == frameDepth + 1 && !isEntitySelected(name)) {
+          return false;
+        }
+      } else if (isFrame(name)) {
+        if (!isFrameSelected(name)) {
+          return false;
+        }
+        if (!COMPOSITE_FRAME.equals(name)) {
+          frame = name;
+          frameDepth = depth + 1;
+        }
+      }
+      depth++;
+      return true;
+    }
+
+    @Override
+    protected void onEndElement() {
+      depth--;
+      if (frame != null && depth < frameDepth) {
+        frame = null;
+      }
+    }
+
+    private boolean isFrame(String name) {
+      return name.endsWith(FRAME_SUFFIX);
+    }
+  }
+}
@@ -1,7 +1,7 @@
 package org.entur.netex.loader.parser;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.FareFrame_VersionFrameStructure;
 import org.rutebanken.netex.model.FareZone;
@@ -9,7 +9,19 @@ import org.rutebanken.netex.model.FareZone;
 public class FareFrameParser
   extends NetexParser<FareFrame_VersionFrameStructure> {
 
-  private final Collection<FareZone> fareZones = new ArrayList<>();
+  private final VersionedEntities<FareZone> fareZones;
+
+  public FareFrameParser() {
+    this(false);
+  }
+
+  /**
+   * @param latestVersionsOnly keep only the latest version of the fare zones, see
+   *                           {@link VersionedEntities}
+   */
+  FareFrameParser(boolean latestVersionsOnly) {
+    this.fareZones = new VersionedEntities<>(latestVersionsOnly);
+  }
 
   @Override
   void parse(FareFrame_VersionFrameStructure node) {
@@ -20,10 +32,19 @@ public class FareFrameParser
 
   @Override
   void setResultOnIndex(NetexEntitiesIndex netexIndex) {
-    netexIndex.getFareZoneIndex().putAll(fareZones);
+    netexIndex.getFareZoneIndex().putAll(fareZones.values());
+  }
+
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    fareZones.values().forEach(listener::onFareZone);
   }
 
   private void parseFareZones(Collection<FareZone> fareZoneList) {
     fareZones.addAll(fareZoneList);
   }
+
+  void parseFareZone(FareZone fareZone) {
+    fareZones.add(fareZone);
+  }
 }
@@ -0,0 +1,64 @@
+package org.entur.netex.loader.parser;
+
+import java.util.Map;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.api.NetexEntityIndex;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Link the FlexibleStopAssignments to the FlexibleStopPlaces once all documents are loaded.
+ * <p>
+ * The FlexibleStopPlaces are usually defined in the shared file, and the assignments in the
+ * line files. Resolving the references after the load, instead of while parsing the line
+ * files, makes the result independent of the order in which the documents are loaded.
+ */
+public class FlexibleStopPlaceResolver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    FlexibleStopPlaceResolver.class
+  );
+
+  private FlexibleStopPlaceResolver() {}
+
+  /**
+   * Remove the FlexibleStopPlace references of the stop points that do not match a
+   * FlexibleStopPlace in the index.
+   */
+  public static void resolve(NetexEntitiesIndex index) {
+    resolve(
+      index.getFlexibleStopPlaceIdByStopPointRefIndex(),
+      index.getFlexibleStopPlaceIndex()
+    );
+  }
+
+  /**
+   * Remove the given FlexibleStopPlace references that do not match a FlexibleStopPlace
+   * of the given index. This resolves a subset of the references of an index, for
+   * instance those of an overlay index.
+   */
+  public static void resolve(
+    Map<String, String> flexibleStopPlaceIdByStopPointRef,
+    NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceById
+  ) {
+    flexibleStopPlaceIdByStopPointRef
+      .entrySet()
+      .removeIf(entry -> !isResolved(entry, flexibleStopPlaceById));
+  }
+
+  private static boolean isResolved(
+    Map.Entry<String, String> flexibleStopPlaceByStopPointRef,
+    NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceById
+  ) {
+    String flexibleStopPlaceRef = flexibleStopPlaceByStopPointRef.getValue();
+    if (flexibleStopPlaceById.get(flexibleStopPlaceRef) != null) {
+      return true;
+    }
+    LOG.warn(
+      "FlexibleStopPlace {} not found in stop place file.",
+      flexibleStopPlaceRef
+    );
+    return false;
+  }
+}
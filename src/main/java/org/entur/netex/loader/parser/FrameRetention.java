@@ -0,0 +1,23 @@
+package org.entur.netex.loader.parser;
+
+/**
+ * What is kept of the NeTEx frames in the index, such as
+ * {@link org.entur.netex.index.api.NetexEntitiesIndex#getServiceFrames()}, once their
+ * entities are indexed.
+ */
+public enum FrameRetention {
+  /**
+   * Keep the frames as unmarshalled. The frames keep their whole content reachable,
+   * including the elements that are not indexed.
+   */
+  FULL,
+
+  /**
+   * Keep a copy of each frame with only its metadata: id, version, validity and codespaces.
+   * The content of the frames can be garbage collected once the entities are indexed.
+   */
+  METADATA,
+
+  /** Do not keep the frames, the frame collections of the index stay empty. */
+  NONE
+}
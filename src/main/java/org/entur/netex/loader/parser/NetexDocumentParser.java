@@ -3,12 +3,11 @@ package org.entur.netex.loader.parser;
 import jakarta.xml.bind.JAXBElement;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.Common_VersionFrameStructure;
 import org.rutebanken.netex.model.CompositeFrame;
 import org.rutebanken.netex.model.FareFrame;
-import org.rutebanken.netex.model.GeneralFrame;
-import org.rutebanken.netex.model.InfrastructureFrame;
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
 import org.rutebanken.netex.model.ResourceFrame;
 import org.rutebanken.netex.model.ServiceCalendarFrame;
@@ -23,6 +22,9 @@ import org.slf4j.LoggerFactory;
  * This is the root parser for a Netex XML Document. The parser ONLY read the document and
  * populate the index with entities. The parser is only responsible for populating the
  * index, not for validating the document, nor linking of entities.
+ * <p>
+ * References that can only be checked once all documents are loaded are resolved
+ * afterwards, see {@link FlexibleStopPlaceResolver}.
  */
 public class NetexDocumentParser {
 
@@ -32,8 +34,26 @@ public class NetexDocumentParser {
 
   private final NetexEntitiesIndex netexIndex;
 
-  private NetexDocumentParser(NetexEntitiesIndex netexIndex) {
+  private final EntityTypeSelection entityTypes;
+
+  private final FrameRetention frameRetention;
+
+  private final SkippedElements skippedElements;
+
+  private final boolean latestVersionsOnly;
+
+  private NetexDocumentParser(
+    NetexEntitiesIndex netexIndex,
+    EntityTypeSelection entityTypes,
+    FrameRetention frameRetention,
+    SkippedElements skippedElements,
+    boolean latestVersionsOnly
+  ) {
     this.netexIndex = netexIndex;
+    this.entityTypes = entityTypes;
+    this.frameRetention = frameRetention;
+    this.skippedElements = skippedElements;
+    this.latestVersionsOnly = latestVersionsOnly;
   }
 
   /**
@@ -44,7 +64,50 @@ public class NetexDocumentParser {
     NetexEntitiesIndex index,
     PublicationDeliveryStructure doc
   ) {
-    new NetexDocumentParser(index).parse(doc);
+    parseAndPopulateIndex(index, doc, EntityTypeSelection.all());
+  }
+
+  /**
+   * Parse the document and add the result to the given index. The frames that do not
+   * contain any of the selected entity types are skipped.
+   */
+  public static void parseAndPopulateIndex(
+    NetexEntitiesIndex index,
+    PublicationDeliveryStructure doc,
+    EntityTypeSelection entityTypes
+  ) {
+    parseAndPopulateIndex(
+      index,
+      doc,
+      entityTypes,
+      FrameRetention.FULL,
+      new SkippedElements(),
+      false
+    );
+  }
+
+  /**
+   * Parse the document and add the result to the given index, keeping only what the given
+   * retention asks for of the frames. The elements skipped by the parsers are counted in
+   * the given counter. If latestVersionsOnly is set, only the latest version of the
+   * versioned entities of each frame is kept, see {@link VersionedEntities}.
+   */
+  public static void parseAndPopulateIndex(
+    NetexEntitiesIndex index,
+    PublicationDeliveryStructure doc,
+    EntityTypeSelection entityTypes,
+    FrameRetention frameRetention,
+    SkippedElements skippedElements,
+    boolean latestVersionsOnly
+  ) {
+    new NetexDocumentParser(
+      index,
+      entityTypes,
+      frameRetention,
+      skippedElements,
+      latestVersionsOnly
+    )
+      .parse(doc);
   }
 
   /** Top level parse method - parses the document. */
@@ -62,42 +125,59 @@ public class NetexDocumentParser {
   }
 
   private void parseCommonFrame(Common_VersionFrameStructure value) {
+    if (!entityTypes.isFrameSelected(value.getClass().getSimpleName())) {
+      LOG.debug("Frame {} not selected, skipping", value.getId());
+      return;
+    }
     if (value instanceof ResourceFrame resourceFrame) {
-      netexIndex.getResourceFrames().add(resourceFrame);
+      retain(resourceFrame, netexIndex.getResourceFrames(), ResourceFrame::new);
       parse((ResourceFrame) value, new ResourceFrameParser());
     } else if (value instanceof ServiceCalendarFrame serviceCalendarFrame) {
-      netexIndex.getServiceCalendarFrames().add(serviceCalendarFrame);
+      retain(
+        serviceCalendarFrame,
+        netexIndex.getServiceCalendarFrames(),
+        ServiceCalendarFrame::new
+      );
       parse((ServiceCalendarFrame) value, new ServiceCalendarFrameParser());
     } else if (value instanceof VehicleScheduleFrame vehicleScheduleFrame) {
-      netexIndex.getVehicleScheduleFrames().add(vehicleScheduleFrame);
+      retain(
+        vehicleScheduleFrame,
+        netexIndex.getVehicleScheduleFrames(),
+        VehicleScheduleFrame::new
+      );
       parse((VehicleScheduleFrame) value, new VehicleScheduleFrameParser());
     } else if (value instanceof TimetableFrame timetableFrame) {
-      netexIndex.getTimetableFrames().add(timetableFrame);
+      retain(
+        timetableFrame,
+        netexIndex.getTimetableFrames(),
+        TimetableFrame::new
+      );
       parse((TimetableFrame) value, new TimeTableFrameParser());
     } else if (value instanceof ServiceFrame serviceFrame) {
-      netexIndex.getServiceFrames().add(serviceFrame);
-      parse(
-        (ServiceFrame) value,
-        new ServiceFrameParser(netexIndex.getFlexibleStopPlaceIndex())
-      );
+      retain(serviceFrame, netexIndex.getServiceFrames(), ServiceFrame::new);
+      parse((ServiceFrame) value, new ServiceFrameParser(latestVersionsOnly));
     } else if (value instanceof SiteFrame siteFrame) {
-      netexIndex.getSiteFrames().add(siteFrame);
-      parse((SiteFrame) value, new SiteFrameParser());
+      retain(siteFrame, netexIndex.getSiteFrames(), SiteFrame::new);
+      parse((SiteFrame) value, new SiteFrameParser(latestVersionsOnly));
     } else if (value instanceof FareFrame fareFrame) {
-      parse(fareFrame, new FareFrameParser());
+      parse(fareFrame, new FareFrameParser(latestVersionsOnly));
     } else if (value instanceof CompositeFrame compositeFrame) {
-      netexIndex.getCompositeFrames().add(compositeFrame);
+      retain(
+        compositeFrame,
+        netexIndex.getCompositeFrames(),
+        CompositeFrame::new
+      );
       // We recursively parse composite frames and content until there
       // is no more nested frames - this is accepting documents witch
       // are not withing the specification, but we leave this for the
       // document schema validation
       parseCompositeFrame(compositeFrame);
-    } else if (
-      value instanceof GeneralFrame || value instanceof InfrastructureFrame
-    ) {
-      NetexParser.informOnElementIntentionallySkipped(LOG, value);
     } else {
-      NetexParser.informOnElementIntentionallySkipped(LOG, value);
+      skippedElements.add(value);
+      LOG.debug(
+        "Netex import - Element skipped: {}",
+        value.getClass().getName()
+      );
     }
   }
 
@@ -116,7 +196,35 @@ public class NetexDocumentParser {
     }
   }
 
+  /** Add the frame, or a copy of its metadata, to the frames of the index. */
+  private <F extends Common_VersionFrameStructure> void retain(
+    F frame,
+    Collection<F> frames,
+    Supplier<F> emptyFrame
+  ) {
+    switch (frameRetention) {
+      case FULL -> frames.add(frame);
+      case METADATA -> frames.add(copyOfMetadata(frame, emptyFrame.get()));
+      case NONE -> {}
+    }
+  }
+
+  private static <F extends Common_VersionFrameStructure> F copyOfMetadata(
+    F frame,
+    F copy
+  ) {
+    copy.setId(frame.getId());
+    copy.setVersion(frame.getVersion());
+    copy.getValidBetween().addAll(frame.getValidBetween());
+    copy.setValidityConditions(frame.getValidityConditions());
+    copy.setContentValidityConditions(frame.getContentValidityConditions());
+    copy.setCodespaces(frame.getCodespaces());
+    copy.setFrameDefaults(frame.getFrameDefaults());
+    return copy;
+  }
+
   private <T> void parse(T node, NetexParser<T> parser) {
+    parser.countSkippedElementsIn(skippedElements);
     parser.parse(node);
     parser.setResultOnIndex(netexIndex);
   }
@@ -1,6 +1,7 @@
 package org.entur.netex.loader.parser;
 
 import java.util.Collection;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.VersionFrame_VersionStructure;
 import org.slf4j.Logger;
@@ -9,21 +10,32 @@ import org.slf4j.Logger;
  * An abstract parser of given type T. Enforce two steps parsing:
  * <ol>
  *     <li>parse(...)</li>
- *     <li>setResultOnIndex(...)</li>
+ *     <li>setResultOnIndex(...) or setResultOnListener(...)</li>
  * </ol>
  */
 @SuppressWarnings("SameParameterValue")
 abstract class NetexParser<T> {
 
+  /** The counter of the skipped elements of the load, null to ignore them. */
+  private SkippedElements skippedElements;
+
   /** Perform parsing and keep the parsed objects internally. */
   abstract void parse(T node);
 
   /** Add the result - the parsed objects - to the index. */
   abstract void setResultOnIndex(NetexEntitiesIndex netexIndex);
 
-  /* static methods for logging unhandled elements - this ensure consistent logging. */
+  /** Pass the result - the parsed objects - to the listener. */
+  abstract void setResultOnListener(NetexEntityListener listener);
+
+  /** Count the elements skipped by this parser in the given counter. */
+  void countSkippedElementsIn(SkippedElements skippedElements) {
+    this.skippedElements = skippedElements;
+  }
+
+  /* methods for counting unhandled elements - this ensure consistent reporting. */
 
-  static void verifyCommonUnusedPropertiesIsNotSet(
+  void verifyCommonUnusedPropertiesIsNotSet(
     Logger log,
     VersionFrame_VersionStructure rel
   ) {
@@ -42,11 +54,20 @@ abstract class NetexParser<T> {
     informOnElementIntentionallySkipped(log, rel.getBrandingRef());
   }
 
-  static void informOnElementIntentionallySkipped(Logger log, Object rel) {
+  /**
+   * Count the element as skipped. The elements are reported once per load, see
+   * {@link SkippedElements}, and logged one by one only at debug level.
+   */
+  void informOnElementIntentionallySkipped(Logger log, Object rel) {
     if (rel == null) return;
     if (rel instanceof Collection) throw new IllegalArgumentException(
       "Do not pass in collections to this method."
     );
-    log.info("Netex import - Element skipped: {}", rel.getClass().getName());
+    if (skippedElements != null) {
+      skippedElements.add(rel);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Netex import - Element skipped: {}", rel.getClass().getName());
+    }
   }
 }
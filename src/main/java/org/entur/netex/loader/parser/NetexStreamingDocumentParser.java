@@ -0,0 +1,668 @@
+package org.entur.netex.loader.parser;
+
+import static java.util.Map.entry;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import jakarta.xml.bind.JAXBException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.entur.netex.NetexEntityListener;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.loader.NetexXmlParser;
+import org.rutebanken.netex.model.Authority;
+import org.rutebanken.netex.model.Block;
+import org.rutebanken.netex.model.Block_VersionStructure;
+import org.rutebanken.netex.model.Branding;
+import org.rutebanken.netex.model.DatedServiceJourney;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.DeadRun;
+import org.rutebanken.netex.model.DestinationDisplay;
+import org.rutebanken.netex.model.FareZone;
+import org.rutebanken.netex.model.FlexibleLine;
+import org.rutebanken.netex.model.FlexibleStopAssignment;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.GroupOfStopPlaces;
+import org.rutebanken.netex.model.GroupOfTariffZones;
+import org.rutebanken.netex.model.Interchange_VersionStructure;
+import org.rutebanken.netex.model.JourneyPattern;
+import org.rutebanken.netex.model.Journey_VersionStructure;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Network;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
+import org.rutebanken.netex.model.OperatingDay;
+import org.rutebanken.netex.model.OperatingPeriod;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.Organisation_VersionStructure;
+import org.rutebanken.netex.model.Parking;
+import org.rutebanken.netex.model.PassengerStopAssignment;
+import org.rutebanken.netex.model.Route;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ScheduledStopPoint;
+import org.rutebanken.netex.model.ServiceCalendar;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ServiceJourneyPattern;
+import org.rutebanken.netex.model.ServiceLink;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.TariffZone;
+import org.rutebanken.netex.model.TopographicPlace;
+import org.rutebanken.netex.model.Zone_VersionStructure;
+import org.rutebanken.util.LocalDateTimeISO8601XmlAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streaming alternative to the {@link NetexDocumentParser}. The document is read with an
+ * XML stream reader (StAX) and only the entities are unmarshalled, one at a time, before
+ * they are handed to the frame parsers. Neither the document nor the frames are built, so
+ * the memory needed to parse a document is proportional to the largest entity rather than
+ * to the whole document. As a consequence, the frames are not added to the index.
+ * <p>
+ * Elements that are not handled by the frame parsers are skipped without being unmarshalled.
+ * <p>
+ * The entities are either added to an index, or passed to a {@link NetexEntityListener}.
+ * In the latter case each entity is handed over as soon as it is parsed, and nothing is
+ * retained.
+ */
+public class NetexStreamingDocumentParser {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    NetexStreamingDocumentParser.class
+  );
+
+  /** The adapter of xsd:dateTime values in the NeTEx model. */
+  private static final LocalDateTimeISO8601XmlAdapter DATE_TIME_ADAPTER =
+    new LocalDateTimeISO8601XmlAdapter();
+
+  /** The entities that are unmarshalled, by element name. */
+  private static final Map<String, Class<?>> ENTITY_TYPES = Map.ofEntries(
+    entry("Authority", Authority.class),
+    entry("Block", Block.class),
+    entry("Branding", Branding.class),
+    entry("DatedServiceJourney", DatedServiceJourney.class),
+    entry("DayType", DayType.class),
+    entry("DayTypeAssignment", DayTypeAssignment.class),
+    entry("DeadRun", DeadRun.class),
+    entry("DestinationDisplay", DestinationDisplay.class),
+    entry("FareZone", FareZone.class),
+    entry("FlexibleLine", FlexibleLine.class),
+    entry("FlexibleStopAssignment", FlexibleStopAssignment.class),
+    entry("FlexibleStopPlace", FlexibleStopPlace.class),
+    entry("GroupOfStopPlaces", GroupOfStopPlaces.class),
+    entry("GroupOfTariffZones", GroupOfTariffZones.class),
+    entry("JourneyPattern", JourneyPattern.class),
+    entry("Line", Line.class),
+    entry("Network", Network.class),
+    entry("Notice", Notice.class),
+    entry("NoticeAssignment", NoticeAssignment.class),
+    entry("OperatingDay", OperatingDay.class),
+    entry("OperatingPeriod", OperatingPeriod.class),
+    entry("Operator", Operator.class),
+    entry("Parking", Parking.class),
+    entry("PassengerStopAssignment", PassengerStopAssignment.class),
+    entry("Route", Route.class),
+    entry("RoutePoint", RoutePoint.class),
+    entry("ScheduledStopPoint", ScheduledStopPoint.class),
+    entry("ServiceCalendar", ServiceCalendar.class),
+    entry("ServiceJourney", ServiceJourney.class),
+    entry("ServiceJourneyInterchange", ServiceJourneyInterchange.class),
+    entry("ServiceJourneyPattern", ServiceJourneyPattern.class),
+    entry("ServiceLink", ServiceLink.class),
+    entry("StopPlace", StopPlace.class),
+    entry("TariffZone", TariffZone.class),
+    entry("TopographicPlace", TopographicPlace.class)
+  );
+
+  // Handlers for the children of each frame. A child is either an entity, or a
+  // collection of entities such as "stopPlaces". Other children are skipped.
+
+  private static final Map<String, ElementHandler<ResourceFrameParser, ?>> RESOURCE_FRAME_ELEMENTS =
+    Map.of(
+      "organisations",
+      handler(
+        Organisation_VersionStructure.class,
+        ResourceFrameParser::parseOrganisation
+      ),
+      "typesOfValue",
+      handler(Branding.class, ResourceFrameParser::parseBranding)
+    );
+
+  private static final Map<String, ElementHandler<ServiceCalendarFrameParser, ?>> SERVICE_CALENDAR_FRAME_ELEMENTS =
+    Map.of(
+      "ServiceCalendar",
+      handler(
+        ServiceCalendar.class,
+        ServiceCalendarFrameParser::parseServiceCalendar
+      ),
+      "dayTypes",
+      handler(DayType.class, ServiceCalendarFrameParser::parseDayType),
+      "operatingPeriods",
+      handler(
+        OperatingPeriod.class,
+        ServiceCalendarFrameParser::parseOperatingPeriod
+      ),
+      "operatingDays",
+      handler(
+        OperatingDay.class,
+        ServiceCalendarFrameParser::parseOperatingDay
+      ),
+      "dayTypeAssignments",
+      handler(
+        DayTypeAssignment.class,
+        ServiceCalendarFrameParser::parseDayTypeAssignment
+      )
+    );
+
+  private static final Map<String, ElementHandler<VehicleScheduleFrameParser, ?>> VEHICLE_SCHEDULE_FRAME_ELEMENTS =
+    Map.of(
+      "blocks",
+      handler(
+        Block_VersionStructure.class,
+        VehicleScheduleFrameParser::parseBlock
+      )
+    );
+
+  private static final Map<String, ElementHandler<TimeTableFrameParser, ?>> TIMETABLE_FRAME_ELEMENTS =
+    Map.of(
+      "vehicleJourneys",
+      handler(
+        Journey_VersionStructure.class,
+        TimeTableFrameParser::parseJourney
+      ),
+      "journeyInterchanges",
+      handler(
+        Interchange_VersionStructure.class,
+        TimeTableFrameParser::parseInterchange
+      ),
+      "notices",
+      handler(Notice.class, TimeTableFrameParser::parseNotice),
+      "noticeAssignments",
+      handler(
+        NoticeAssignment.class,
+        TimeTableFrameParser::parseNoticeAssignment
+      )
+    );
+
+  private static final Map<String, ElementHandler<ServiceFrameParser, ?>> SERVICE_FRAME_ELEMENTS =
+    Map.ofEntries(
+      entry(
+        "stopAssignments",
+        handler(Object.class, ServiceFrameParser::parseStopAssignment)
+      ),
+      entry("routes", handler(Object.class, ServiceFrameParser::parseRoute)),
+      entry(
+        "Network",
+        handler(Network.class, ServiceFrameParser::parseNetwork)
+      ),
+      entry(
+        "additionalNetworks",
+        handler(Network.class, ServiceFrameParser::parseNetwork)
+      ),
+      entry("notices", handler(Notice.class, ServiceFrameParser::parseNotice)),
+      entry(
+        "noticeAssignments",
+        handler(
+          NoticeAssignment.class,
+          ServiceFrameParser::parseNoticeAssignment
+        )
+      ),
+      entry("lines", handler(Object.class, ServiceFrameParser::parseLine)),
+      entry(
+        "journeyPatterns",
+        handler(Object.class, ServiceFrameParser::parseJourneyPattern)
+      ),
+      entry(
+        "destinationDisplays",
+        handler(
+          DestinationDisplay.class,
+          ServiceFrameParser::parseDestinationDisplay
+        )
+      ),
+      entry(
+        "serviceLinks",
+        handler(ServiceLink.class, ServiceFrameParser::parseServiceLink)
+      ),
+      entry(
+        "scheduledStopPoints",
+        handler(
+          ScheduledStopPoint.class,
+          ServiceFrameParser::parseScheduledStopPoint
+        )
+      ),
+      entry(
+        "routePoints",
+        handler(RoutePoint.class, ServiceFrameParser::parseRoutePoint)
+      )
+    );
+
+  private static final Map<String, ElementHandler<SiteFrameParser, ?>> SITE_FRAME_ELEMENTS =
+    Map.of(
+      "stopPlaces",
+      handler(StopPlace.class, SiteFrameParser::parseStopPlace),
+      "groupsOfStopPlaces",
+      handler(GroupOfStopPlaces.class, SiteFrameParser::parseGroupOfStopPlaces),
+      "flexibleStopPlaces",
+      handler(FlexibleStopPlace.class, SiteFrameParser::parseFlexibleStopPlace),
+      "tariffZones",
+      handler(Zone_VersionStructure.class, SiteFrameParser::parseTariffZone),
+      "topographicPlaces",
+      handler(TopographicPlace.class, SiteFrameParser::parseTopographicPlace),
+      "parkings",
+      handler(Parking.class, SiteFrameParser::parseParking),
+      "groupsOfTariffZones",
+      handler(
+        GroupOfTariffZones.class,
+        SiteFrameParser::parseGroupOfTariffZones
+      )
+    );
+
+  private static final Map<String, ElementHandler<FareFrameParser, ?>> FARE_FRAME_ELEMENTS =
+    Map.of(
+      "fareZones",
+      handler(FareZone.class, FareFrameParser::parseFareZone)
+    );
+
+  /** The index to populate, null if the entities are passed to a listener. */
+  private final NetexEntitiesIndex netexIndex;
+
+  /** The listener to notify, null if the entities are added to an index. */
+  private final NetexEntityListener listener;
+
+  private final XMLStreamReader reader;
+
+  private final NetexXmlParser xmlParser;
+
+  /** Parser for the vehicleJourneys collections, null to parse them on this thread. */
+  private final ChunkedContainerParser journeyParser;
+
+  private final SkippedElements skippedElements;
+
+  private final boolean latestVersionsOnly;
+
+  /**
+   * The namespaces declared on each element whose children are being parsed, by prefix,
+   * innermost element first.
+   */
+  private final Deque<Map<String, String>> namespaceScopes = new ArrayDeque<>();
+
+  private NetexStreamingDocumentParser(
+    NetexEntitiesIndex netexIndex,
+    NetexEntityListener listener,
+    XMLStreamReader reader,
+    NetexXmlParser xmlParser,
+    ChunkedContainerParser journeyParser,
+    SkippedElements skippedElements,
+    boolean latestVersionsOnly
+  ) {
+    this.netexIndex = netexIndex;
+    this.listener = listener;
+    this.reader = reader;
+    this.xmlParser = xmlParser;
+    this.journeyParser = journeyParser;
+    this.skippedElements = skippedElements;
+    this.latestVersionsOnly = latestVersionsOnly;
+  }
+
+  /**
+   * This static method create a new parser and parse the document read by the given
+   * reader. The result is added to given index for further processing.
+   */
+  public static void parseAndPopulateIndex(
+    NetexEntitiesIndex index,
+    XMLStreamReader reader,
+    NetexXmlParser xmlParser
+  ) {
+    parseAndPopulateIndex(
+      index,
+      reader,
+      xmlParser,
+      null,
+      new SkippedElements(),
+      false
+    );
+  }
+
+  /**
+   * This static method create a new parser and parse the document read by the given
+   * reader. The result is added to given index for further processing. The journeys are
+   * unmarshalled in chunks by the given journey parser, if not null. The skipped elements
+   * are counted in the given counter. If latestVersionsOnly is set, a version of an entity
+   * is dropped as soon as a later version is parsed in the same frame, see
+   * {@link VersionedEntities}.
+   */
+  public static void parseAndPopulateIndex(
+    NetexEntitiesIndex index,
+    XMLStreamReader reader,
+    NetexXmlParser xmlParser,
+    ChunkedContainerParser journeyParser,
+    SkippedElements skippedElements,
+    boolean latestVersionsOnly
+  ) {
+    parse(
+      new NetexStreamingDocumentParser(
+        index,
+        null,
+        reader,
+        xmlParser,
+        journeyParser,
+        skippedElements,
+        latestVersionsOnly
+      )
+    );
+  }
+
+  /**
+   * This static method create a new parser and parse the document read by the given
+   * reader. The entities are passed to the given listener as they are parsed.
+   */
+  public static void parseAndNotifyListener(
+    NetexEntityListener listener,
+    XMLStreamReader reader,
+    NetexXmlParser xmlParser
+  ) {
+    parseAndNotifyListener(listener, reader, xmlParser, new SkippedElements());
+  }
+
+  /**
+   * This static method create a new parser and parse the document read by the given
+   * reader. The entities are passed to the given listener as they are parsed, and the
+   * skipped elements are counted in the given counter.
+   */
+  public static void parseAndNotifyListener(
+    NetexEntityListener listener,
+    XMLStreamReader reader,
+    NetexXmlParser xmlParser,
+    SkippedElements skippedElements
+  ) {
+    parse(
+      new NetexStreamingDocumentParser(
+        null,
+        listener,
+        reader,
+        xmlParser,
+        null,
+        skippedElements,
+        false
+      )
+    );
+  }
+
+  private static void parse(NetexStreamingDocumentParser parser) {
+    XMLStreamReader reader = parser.reader;
+    try {
+      parser.parse();
+    } catch (XMLStreamException | JAXBException e) {
+      throw new RuntimeException(e.getMessage(), e);
+    } finally {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        LOG.warn("Failed to close XML stream reader", e);
+      }
+    }
+  }
+
+  /** Top level parse method - parses the PublicationDelivery root element. */
+  private void parse() throws XMLStreamException, JAXBException {
+    nextElement();
+    forEachChildElement(() -> {
+      switch (reader.getLocalName()) {
+        case "PublicationTimestamp" -> {
+          LocalDateTime timestamp = parseDateTime(reader.getElementText());
+          if (listener != null) {
+            listener.onPublicationTimestamp(timestamp);
+          } else {
+            netexIndex.setPublicationTimestamp(timestamp);
+          }
+          reader.next();
+        }
+        case "dataObjects" -> forEachChildElement(this::parseFrame);
+        default -> skipElement();
+      }
+    });
+  }
+
+  private void parseFrame() throws XMLStreamException, JAXBException {
+    switch (reader.getLocalName()) {
+      case "ResourceFrame" -> parseFrame(
+        ResourceFrameParser::new,
+        RESOURCE_FRAME_ELEMENTS
+      );
+      case "ServiceCalendarFrame" -> parseFrame(
+        ServiceCalendarFrameParser::new,
+        SERVICE_CALENDAR_FRAME_ELEMENTS
+      );
+      case "VehicleScheduleFrame" -> parseFrame(
+        VehicleScheduleFrameParser::new,
+        VEHICLE_SCHEDULE_FRAME_ELEMENTS
+      );
+      case "TimetableFrame" -> parseFrame(
+        TimeTableFrameParser::new,
+        TIMETABLE_FRAME_ELEMENTS
+      );
+      case "ServiceFrame" -> parseFrame(
+        () -> new ServiceFrameParser(latestVersionsOnly),
+        SERVICE_FRAME_ELEMENTS
+      );
+      case "SiteFrame" -> parseFrame(
+        () -> new SiteFrameParser(latestVersionsOnly),
+        SITE_FRAME_ELEMENTS
+      );
+      case "FareFrame" -> parseFrame(
+        () -> new FareFrameParser(latestVersionsOnly),
+        FARE_FRAME_ELEMENTS
+      );
+      case "CompositeFrame" -> parseCompositeFrame();
+      default -> {
+        skippedElements.add(reader.getLocalName());
+        LOG.debug("Netex import - Element skipped: {}", reader.getLocalName());
+        skipElement();
+      }
+    }
+  }
+
+  private void parseCompositeFrame() throws XMLStreamException, JAXBException {
+    // We recursively parse composite frames and content until there
+    // is no more nested frames
+    forEachChildElement(() -> {
+      if ("frames".equals(reader.getLocalName())) {
+        forEachChildElement(this::parseFrame);
+      } else {
+        skipElement();
+      }
+    });
+  }
+
+  /**
+   * Parse the children of a frame with the given handlers. When populating an index, a
+   * single frame parser collects all the entities of the frame. When notifying a listener,
+   * a frame parser is created for each entity, and discarded once the listener is notified.
+   */
+  private <P extends NetexParser<?>> void parseFrame(
+    Supplier<P> parserFactory,
+    Map<String, ElementHandler<P, ?>> handlers
+  ) throws XMLStreamException, JAXBException {
+    P frameParser = listener == null ? newParser(parserFactory) : null;
+    forEachChildElement(() -> {
+      String name = reader.getLocalName();
+      ElementHandler<P, ?> handler = handlers.get(name);
+      if (handler == null) {
+        skipElement();
+      } else if (ENTITY_TYPES.containsKey(name)) {
+        parseEntity(frameParser, parserFactory, handler);
+      } else if (
+        frameParser != null &&
+        journeyParser != null &&
+        "vehicleJourneys".equals(name)
+      ) {
+        journeyParser.parse(
+          reader,
+          namespacesInScope(),
+          entity -> handler.accept(frameParser, entity)
+        );
+      } else {
+        forEachChildElement(() ->
+          parseEntity(frameParser, parserFactory, handler)
+        );
+      }
+    });
+    if (frameParser != null) {
+      frameParser.setResultOnIndex(netexIndex);
+    }
+  }
+
+  private <P extends NetexParser<?>> void parseEntity(
+    P frameParser,
+    Supplier<P> parserFactory,
+    ElementHandler<P, ?> handler
+  ) throws XMLStreamException, JAXBException {
+    Object entity = parseEntity();
+    if (frameParser != null) {
+      handler.accept(frameParser, entity);
+    } else {
+      P parser = newParser(parserFactory);
+      handler.accept(parser, entity);
+      parser.setResultOnListener(listener);
+    }
+  }
+
+  private <P extends NetexParser<?>> P newParser(Supplier<P> parserFactory) {
+    P parser = parserFactory.get();
+    parser.countSkippedElementsIn(skippedElements);
+    return parser;
+  }
+
+  /**
+   * Unmarshal the entity the reader is positioned on. Return null, and skip the element,
+   * if it is not one of the entities handled by the frame parsers.
+   */
+  private Object parseEntity() throws XMLStreamException, JAXBException {
+    Class<?> type = ENTITY_TYPES.get(reader.getLocalName());
+    if (type == null) {
+      LOG.debug("Netex import - Element skipped: {}", reader.getLocalName());
+      skipElement();
+      return null;
+    }
+    return xmlParser.parseXmlElement(reader, type);
+  }
+
+  /** The type of the entity with the given element name, or null if it is not handled. */
+  static Class<?> entityType(String elementName) {
+    return ENTITY_TYPES.get(elementName);
+  }
+
+  /* methods for navigating the document. */
+
+  /**
+   * Call the visitor for each child element of the element the reader is positioned on.
+   * The visitor must consume the child element, including its end tag. On return the
+   * reader is positioned after the end tag of the element.
+   */
+  private void forEachChildElement(ElementVisitor visitor)
+    throws XMLStreamException, JAXBException {
+    namespaceScopes.push(declaredNamespaces());
+    reader.next();
+    while (nextElement() == START_ELEMENT) {
+      visitor.visit();
+    }
+    reader.next();
+    namespaceScopes.pop();
+  }
+
+  /** Return the namespaces declared on the element the reader is positioned on. */
+  private Map<String, String> declaredNamespaces() {
+    if (reader.getNamespaceCount() == 0) {
+      return Map.of();
+    }
+    Map<String, String> namespaces = new HashMap<>();
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      namespaces.put(prefix == null ? "" : prefix, reader.getNamespaceURI(i));
+    }
+    return namespaces;
+  }
+
+  /**
+   * Return the namespaces in scope on the element the reader is positioned on, that is the
+   * namespaces declared on the element and on its ancestors.
+   */
+  private Map<String, String> namespacesInScope() {
+    Map<String, String> namespaces = new HashMap<>();
+    Iterator<Map<String, String>> scopes = namespaceScopes.descendingIterator();
+    while (scopes.hasNext()) {
+      namespaces.putAll(scopes.next());
+    }
+    namespaces.putAll(declaredNamespaces());
+    return namespaces;
+  }
+
+  /** Move to the next start or end tag, unless the reader is already positioned on one. */
+  private int nextElement() throws XMLStreamException {
+    int event = reader.getEventType();
+    while (event != START_ELEMENT && event != END_ELEMENT) {
+      event = reader.next();
+    }
+    return event;
+  }
+
+  /** Skip the element the reader is positioned on, including its children. */
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        depth++;
+      } else if (event == END_ELEMENT) {
+        depth--;
+      }
+    }
+    reader.next();
+  }
+
+  /**
+   * Parse a timestamp with the adapter the NeTEx model binds to xsd:dateTime, so that
+   * timestamps are parsed as with the unmarshalling of a whole document.
+   */
+  private static LocalDateTime parseDateTime(String text) {
+    try {
+      return DATE_TIME_ADAPTER.unmarshal(text.trim());
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid date-time: " + text, e);
+    }
+  }
+
+  private static <P, T> ElementHandler<P, T> handler(
+    Class<T> type,
+    BiConsumer<P, T> consumer
+  ) {
+    return new ElementHandler<>(type, consumer);
+  }
+
+  @FunctionalInterface
+  private interface ElementVisitor {
+    void visit() throws XMLStreamException, JAXBException;
+  }
+
+  /** Pass the unmarshalled elements of the expected type to a frame parser. */
+  private record ElementHandler<P, T>(
+    Class<T> type,
+    BiConsumer<P, T> consumer
+  ) {
+    void accept(P parser, Object element) {
+      if (type.isInstance(element)) {
+        consumer.accept(parser, type.cast(element));
+      }
+    }
+  }
+}
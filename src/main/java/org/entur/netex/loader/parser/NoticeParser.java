@@ -3,6 +3,7 @@ package org.entur.netex.loader.parser;
 import jakarta.xml.bind.JAXBElement;
 import java.util.ArrayList;
 import java.util.Collection;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.DataManagedObjectStructure;
 import org.rutebanken.netex.model.Notice;
@@ -30,33 +31,40 @@ class NoticeParser {
     this.notices.addAll(notices.getNotice());
   }
 
+  void parseNotice(Notice notice) {
+    this.notices.add(notice);
+  }
+
   void parseNoticeAssignments(NoticeAssignmentsInFrame_RelStructure na) {
     if (na == null) return;
 
     for (JAXBElement<? extends DataManagedObjectStructure> it : na.getNoticeAssignment_()) {
-      NoticeAssignment noticeAssignment = (NoticeAssignment) it.getValue();
-      boolean error = false;
+      parseNoticeAssignment((NoticeAssignment) it.getValue());
+    }
+  }
+
+  void parseNoticeAssignment(NoticeAssignment noticeAssignment) {
+    boolean error = false;
 
-      if (noticeAssignment.getNoticedObjectRef() == null) {
-        LOG.warn(
-          "Notice assignment is missing 'noticedObjectRef'. Id: {}",
-          noticeAssignment.getId()
-        );
-        error = true;
-      }
-      if (
-        noticeAssignment.getNoticeRef() == null &&
-        noticeAssignment.getNotice() == null
-      ) {
-        LOG.warn(
-          "Notice assignment have no 'notice' or 'noticeRef'. Id: {}",
-          noticeAssignment.getId()
-        );
-        error = true;
-      }
-      if (!error) {
-        this.noticeAssignments.add(noticeAssignment);
-      }
+    if (noticeAssignment.getNoticedObjectRef() == null) {
+      LOG.warn(
+        "Notice assignment is missing 'noticedObjectRef'. Id: {}",
+        noticeAssignment.getId()
+      );
+      error = true;
+    }
+    if (
+      noticeAssignment.getNoticeRef() == null &&
+      noticeAssignment.getNotice() == null
+    ) {
+      LOG.warn(
+        "Notice assignment have no 'notice' or 'noticeRef'. Id: {}",
+        noticeAssignment.getId()
+      );
+      error = true;
+    }
+    if (!error) {
+      this.noticeAssignments.add(noticeAssignment);
     }
   }
 
@@ -65,4 +73,9 @@ class NoticeParser {
     index.getNoticeIndex().putAll(notices);
     index.getNoticeAssignmentIndex().putAll(noticeAssignments);
   }
+
+  void setResultOnListener(NetexEntityListener listener) {
+    notices.forEach(listener::onNotice);
+    noticeAssignments.forEach(listener::onNoticeAssignment);
+  }
 }
@@ -3,6 +3,7 @@ package org.entur.netex.loader.parser;
 import jakarta.xml.bind.JAXBElement;
 import java.util.ArrayList;
 import java.util.Collection;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.Authority;
 import org.rutebanken.netex.model.Branding;
@@ -62,6 +63,13 @@ class ResourceFrameParser
     netexIndex.getBrandingIndex().putAll(brandings);
   }
 
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    authorities.forEach(listener::onAuthority);
+    operators.forEach(listener::onOperator);
+    brandings.forEach(listener::onBranding);
+  }
+
   /* private methods */
 
   private void parseOrganisations(OrganisationsInFrame_RelStructure elements) {
@@ -72,7 +80,7 @@ class ResourceFrameParser
     }
   }
 
-  private void parseOrganisation(Organisation_VersionStructure element) {
+  void parseOrganisation(Organisation_VersionStructure element) {
     if (element instanceof Authority authority) {
       authorities.add(authority);
     } else if (element instanceof Operator operator) {
@@ -95,4 +103,8 @@ class ResourceFrameParser
       }
     }
   }
+
+  void parseBranding(Branding branding) {
+    brandings.add(branding);
+  }
 }
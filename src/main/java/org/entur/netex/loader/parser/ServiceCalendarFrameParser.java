@@ -6,6 +6,7 @@ import jakarta.xml.bind.JAXBElement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.*;
 import org.slf4j.Logger;
@@ -55,7 +56,17 @@ class ServiceCalendarFrameParser
       .putAll(dayTypeAssignmentByDayTypeId);
   }
 
-  private void parseServiceCalendar(ServiceCalendar serviceCalendar) {
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    dayTypes.forEach(listener::onDayType);
+    operatingPeriods.forEach(listener::onOperatingPeriod);
+    operatingDays.forEach(listener::onOperatingDay);
+    dayTypeAssignmentByDayTypeId
+      .values()
+      .forEach(listener::onDayTypeAssignment);
+  }
+
+  void parseServiceCalendar(ServiceCalendar serviceCalendar) {
     if (serviceCalendar == null) return;
 
     parseDayTypes(serviceCalendar.getDayTypes());
@@ -80,8 +91,12 @@ class ServiceCalendarFrameParser
   }
 
   private void parseDayType(JAXBElement<?> dt) {
-    if (dt.getValue() instanceof DayType) {
-      dayTypes.add((DayType) dt.getValue());
+    parseDayType(dt.getValue());
+  }
+
+  void parseDayType(Object dayType) {
+    if (dayType instanceof DayType) {
+      dayTypes.add((DayType) dayType);
     }
   }
 
@@ -117,6 +132,14 @@ class ServiceCalendarFrameParser
     operatingDays.addAll(element.getOperatingDay());
   }
 
+  void parseOperatingDay(OperatingDay operatingDay) {
+    operatingDays.add(operatingDay);
+  }
+
+  void parseOperatingPeriod(OperatingPeriod operatingPeriod) {
+    operatingPeriods.add(operatingPeriod);
+  }
+
   private void parseOperatingDays(
     OperatingDays_RelStructure operatingDaysRelStructure
   ) {
@@ -147,8 +170,12 @@ class ServiceCalendarFrameParser
 
   private void parseDayTypeAssignments(List<DayTypeAssignment> elements) {
     for (DayTypeAssignment it : elements) {
-      String ref = it.getDayTypeRef().getValue().getRef();
-      dayTypeAssignmentByDayTypeId.put(ref, it);
+      parseDayTypeAssignment(it);
     }
   }
+
+  void parseDayTypeAssignment(DayTypeAssignment dayTypeAssignment) {
+    String ref = dayTypeAssignment.getDayTypeRef().getValue().getRef();
+    dayTypeAssignmentByDayTypeId.put(ref, dayTypeAssignment);
+  }
 }
@@ -7,13 +7,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
-import org.entur.netex.index.api.NetexEntityIndex;
 import org.rutebanken.netex.model.DestinationDisplay;
 import org.rutebanken.netex.model.DestinationDisplaysInFrame_RelStructure;
 import org.rutebanken.netex.model.FlexibleLine;
 import org.rutebanken.netex.model.FlexibleStopAssignment;
-import org.rutebanken.netex.model.FlexibleStopPlace;
 import org.rutebanken.netex.model.GroupOfLines;
 import org.rutebanken.netex.model.GroupsOfLinesInFrame_RelStructure;
 import org.rutebanken.netex.model.JourneyPattern;
@@ -22,6 +21,8 @@ import org.rutebanken.netex.model.Line;
 import org.rutebanken.netex.model.LinesInFrame_RelStructure;
 import org.rutebanken.netex.model.Network;
 import org.rutebanken.netex.model.NetworksInFrame_RelStructure;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
 import org.rutebanken.netex.model.PassengerStopAssignment;
 import org.rutebanken.netex.model.Route;
 import org.rutebanken.netex.model.RoutePoint;
@@ -43,8 +44,6 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     ServiceFrameParser.class
   );
 
-  private final NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceById;
-
   private final Collection<Network> networks = new ArrayList<>();
 
   private final Collection<GroupOfLines> groupOfLines = new ArrayList<>();
@@ -72,10 +71,12 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
   private final Map<String, String> flexibleStopPlaceByStopPointRef =
     new HashMap<>();
 
+  private final Collection<FlexibleStopAssignment> flexibleStopAssignments =
+    new ArrayList<>();
+
   private final Collection<ServiceLink> serviceLinks = new ArrayList<>();
 
-  private final Collection<ScheduledStopPoint> scheduledStopPoints =
-    new ArrayList<>();
+  private final VersionedEntities<ScheduledStopPoint> scheduledStopPoints;
 
   private final Collection<RoutePoint> routePoints = new ArrayList<>();
 
@@ -84,10 +85,16 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
 
   private final NoticeParser noticeParser = new NoticeParser();
 
-  ServiceFrameParser(
-    NetexEntityIndex<FlexibleStopPlace> flexibleStopPlaceById
-  ) {
-    this.flexibleStopPlaceById = flexibleStopPlaceById;
+  ServiceFrameParser() {
+    this(false);
+  }
+
+  /**
+   * @param latestVersionsOnly keep only the latest version of the scheduled stop points,
+   *                           see {@link VersionedEntities}
+   */
+  ServiceFrameParser(boolean latestVersionsOnly) {
+    this.scheduledStopPoints = new VersionedEntities<>(latestVersionsOnly);
   }
 
   @Override
@@ -163,7 +170,7 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
       .putAll(flexibleStopPlaceByStopPointRef);
     index.getRouteIndex().putAll(routes);
     index.getServiceLinkIndex().putAll(serviceLinks);
-    index.getScheduledStopPointIndex().putAll(scheduledStopPoints);
+    index.getScheduledStopPointIndex().putAll(scheduledStopPoints.values());
     index.getRoutePointIndex().putAll(routePoints);
     index
       .getPassengerStopAssignmentsByStopPointRefIndex()
@@ -173,65 +180,77 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     index.getNetworkIdByGroupOfLineIdIndex().putAll(networkIdByGroupOfLineId);
   }
 
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    networks.forEach(listener::onNetwork);
+    groupOfLines.forEach(group ->
+      listener.onGroupOfLines(
+        group,
+        networkIdByGroupOfLineId.get(group.getId())
+      )
+    );
+    lines.forEach(listener::onLine);
+    flexibleLines.forEach(listener::onFlexibleLine);
+    routes.forEach(listener::onRoute);
+    journeyPatterns.forEach(listener::onJourneyPattern);
+    serviceJourneyPatterns.forEach(listener::onServiceJourneyPattern);
+    destinationDisplays.forEach(listener::onDestinationDisplay);
+    serviceLinks.forEach(listener::onServiceLink);
+    scheduledStopPoints.values().forEach(listener::onScheduledStopPoint);
+    routePoints.forEach(listener::onRoutePoint);
+    passengerStopAssignmentByStopPointRef
+      .values()
+      .forEach(listener::onPassengerStopAssignment);
+    flexibleStopAssignments.forEach(listener::onFlexibleStopAssignment);
+    noticeParser.setResultOnListener(listener);
+  }
+
   private void parseStopAssignments(
     StopAssignmentsInFrame_RelStructure stopAssignments
   ) {
     if (stopAssignments == null) return;
 
     for (JAXBElement<?> stopAssignment : stopAssignments.getStopAssignment()) {
-      if (stopAssignment.getValue() instanceof PassengerStopAssignment) {
-        PassengerStopAssignment assignment =
-          (PassengerStopAssignment) stopAssignment.getValue();
-
-        String stopPointRef = assignment
-          .getScheduledStopPointRef()
-          .getValue()
-          .getRef();
-
-        passengerStopAssignmentByStopPointRef.put(stopPointRef, assignment);
-
-        if (assignment.getQuayRef() != null) {
-          String quayRef = assignment.getQuayRef().getValue().getRef();
-          quayIdByStopPointRef.put(stopPointRef, quayRef);
-        }
-
-        if (assignment.getStopPlaceRef() != null) {
-          String stopPlaceRef = assignment
-            .getStopPlaceRef()
-            .getValue()
-            .getRef();
-          stopPlaceIdByStopPointRef.put(stopPointRef, stopPlaceRef);
-        }
-      } else if (stopAssignment.getValue() instanceof FlexibleStopAssignment) {
-        FlexibleStopAssignment assignment =
-          (FlexibleStopAssignment) stopAssignment.getValue();
-        String flexibleStopPlaceRef = assignment
-          .getFlexibleStopPlaceRef()
-          .getRef();
-
-        // TODO      - This check belongs to the mapping or as a separate validation
-        //           - step. The problem is that we do not want to relay on the
-        //           - the order in witch elements are loaded.
-        FlexibleStopPlace flexibleStopPlace = flexibleStopPlaceById.get(
-          flexibleStopPlaceRef
-        );
-
-        if (flexibleStopPlace != null) {
-          String stopPointRef = assignment
-            .getScheduledStopPointRef()
-            .getValue()
-            .getRef();
-          flexibleStopPlaceByStopPointRef.put(
-            stopPointRef,
-            flexibleStopPlace.getId()
-          );
-        } else {
-          LOG.warn(
-            "FlexibleStopPlace {} not found in stop place file.",
-            flexibleStopPlaceRef
-          );
-        }
+      parseStopAssignment(stopAssignment.getValue());
+    }
+  }
+
+  void parseStopAssignment(Object stopAssignment) {
+    if (stopAssignment instanceof PassengerStopAssignment) {
+      PassengerStopAssignment assignment =
+        (PassengerStopAssignment) stopAssignment;
+
+      String stopPointRef = assignment
+        .getScheduledStopPointRef()
+        .getValue()
+        .getRef();
+
+      passengerStopAssignmentByStopPointRef.put(stopPointRef, assignment);
+
+      if (assignment.getQuayRef() != null) {
+        String quayRef = assignment.getQuayRef().getValue().getRef();
+        quayIdByStopPointRef.put(stopPointRef, quayRef);
       }
+
+      if (assignment.getStopPlaceRef() != null) {
+        String stopPlaceRef = assignment.getStopPlaceRef().getValue().getRef();
+        stopPlaceIdByStopPointRef.put(stopPointRef, stopPlaceRef);
+      }
+    } else if (stopAssignment instanceof FlexibleStopAssignment) {
+      FlexibleStopAssignment assignment =
+        (FlexibleStopAssignment) stopAssignment;
+      flexibleStopAssignments.add(assignment);
+
+      String stopPointRef = assignment
+        .getScheduledStopPointRef()
+        .getValue()
+        .getRef();
+      // The reference is checked against the FlexibleStopPlaces once all the documents
+      // are loaded, see FlexibleStopPlaceResolver
+      flexibleStopPlaceByStopPointRef.put(
+        stopPointRef,
+        assignment.getFlexibleStopPlaceRef().getRef()
+      );
     }
   }
 
@@ -239,13 +258,17 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     if (routes == null) return;
 
     for (JAXBElement<?> element : routes.getRoute_()) {
-      if (element.getValue() instanceof Route route) {
-        this.routes.add(route);
-      }
+      parseRoute(element.getValue());
+    }
+  }
+
+  void parseRoute(Object element) {
+    if (element instanceof Route route) {
+      this.routes.add(route);
     }
   }
 
-  private void parseNetwork(Network network) {
+  void parseNetwork(Network network) {
     if (network == null) return;
 
     networks.add(network);
@@ -284,13 +307,17 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     if (lines == null) return;
 
     for (JAXBElement<?> element : lines.getLine_()) {
-      if (element.getValue() instanceof Line) {
-        this.lines.add((Line) element.getValue());
-      } else if (element.getValue() instanceof FlexibleLine) {
-        this.flexibleLines.add((FlexibleLine) element.getValue());
-      } else {
-        informOnElementIntentionallySkipped(LOG, element.getValue());
-      }
+      parseLine(element.getValue());
+    }
+  }
+
+  void parseLine(Object line) {
+    if (line instanceof Line) {
+      this.lines.add((Line) line);
+    } else if (line instanceof FlexibleLine) {
+      this.flexibleLines.add((FlexibleLine) line);
+    } else {
+      informOnElementIntentionallySkipped(LOG, line);
     }
   }
 
@@ -300,15 +327,17 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     if (journeyPatterns == null) return;
 
     for (JAXBElement<?> pattern : journeyPatterns.getJourneyPattern_OrJourneyPatternView()) {
-      if (pattern.getValue() instanceof JourneyPattern) {
-        this.journeyPatterns.add((JourneyPattern) pattern.getValue());
-      } else if (pattern.getValue() instanceof ServiceJourneyPattern) {
-        this.serviceJourneyPatterns.add(
-            (ServiceJourneyPattern) pattern.getValue()
-          );
-      } else {
-        informOnElementIntentionallySkipped(LOG, pattern.getValue());
-      }
+      parseJourneyPattern(pattern.getValue());
+    }
+  }
+
+  void parseJourneyPattern(Object pattern) {
+    if (pattern instanceof JourneyPattern) {
+      this.journeyPatterns.add((JourneyPattern) pattern);
+    } else if (pattern instanceof ServiceJourneyPattern) {
+      this.serviceJourneyPatterns.add((ServiceJourneyPattern) pattern);
+    } else {
+      informOnElementIntentionallySkipped(LOG, pattern);
     }
   }
 
@@ -320,6 +349,10 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     this.destinationDisplays.addAll(destDisplays.getDestinationDisplay());
   }
 
+  void parseDestinationDisplay(DestinationDisplay destinationDisplay) {
+    this.destinationDisplays.add(destinationDisplay);
+  }
+
   private void parseServiceLinks(
     ServiceLinksInFrame_RelStructure serviceLinks
   ) {
@@ -328,6 +361,10 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
     this.serviceLinks.addAll(serviceLinks.getServiceLink());
   }
 
+  void parseServiceLink(ServiceLink serviceLink) {
+    this.serviceLinks.add(serviceLink);
+  }
+
   private void parseScheduledStopPoints(
     ScheduledStopPointsInFrame_RelStructure scheduledStopPoints
   ) {
@@ -338,9 +375,25 @@ class ServiceFrameParser extends NetexParser<Service_VersionFrameStructure> {
       );
   }
 
+  void parseScheduledStopPoint(ScheduledStopPoint scheduledStopPoint) {
+    this.scheduledStopPoints.add(scheduledStopPoint);
+  }
+
   private void parseRoutePoints(RoutePointsInFrame_RelStructure routePoints) {
     if (routePoints == null) return;
 
     this.routePoints.addAll(routePoints.getRoutePoint());
   }
+
+  void parseRoutePoint(RoutePoint routePoint) {
+    this.routePoints.add(routePoint);
+  }
+
+  void parseNotice(Notice notice) {
+    noticeParser.parseNotice(notice);
+  }
+
+  void parseNoticeAssignment(NoticeAssignment noticeAssignment) {
+    noticeParser.parseNoticeAssignment(noticeAssignment);
+  }
 }
@@ -8,8 +8,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
-import org.entur.netex.support.NetexVersionHelper;
 import org.rutebanken.netex.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,25 +24,40 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
   private final Collection<GroupOfStopPlaces> groupsOfStopPlaces =
     new ArrayList<>();
 
-  private final Collection<StopPlace> stopPlaces = new ArrayList<>();
+  private final VersionedEntities<StopPlace> stopPlaces;
 
-  private final Collection<TariffZone> tariffZones = new ArrayList<>();
+  private final VersionedEntities<TariffZone> tariffZones;
 
-  private final Collection<GroupOfTariffZones> groupsOfTariffZones =
-    new ArrayList<>();
+  private final VersionedEntities<GroupOfTariffZones> groupsOfTariffZones;
 
-  private final Collection<TopographicPlace> topographicPlaces =
-    new ArrayList<>();
+  private final VersionedEntities<TopographicPlace> topographicPlaces;
 
-  private final Collection<Parking> parkings = new ArrayList<>();
+  private final VersionedEntities<Parking> parkings;
 
-  private final Multimap<String, Quay> quays = ArrayListMultimap.create();
+  private final VersionedEntities<Quay> quays;
 
   private final Map<String, String> stopPlaceIdByQuayId = new HashMap<>();
 
   private final Multimap<String, Parking> parkingsByStopPlaceId =
     ArrayListMultimap.create();
 
+  SiteFrameParser() {
+    this(false);
+  }
+
+  /**
+   * @param latestVersionsOnly keep only the latest version of the versioned entities, see
+   *                           {@link VersionedEntities}
+   */
+  SiteFrameParser(boolean latestVersionsOnly) {
+    this.stopPlaces = new VersionedEntities<>(latestVersionsOnly);
+    this.tariffZones = new VersionedEntities<>(latestVersionsOnly);
+    this.groupsOfTariffZones = new VersionedEntities<>(latestVersionsOnly);
+    this.topographicPlaces = new VersionedEntities<>(latestVersionsOnly);
+    this.parkings = new VersionedEntities<>(latestVersionsOnly);
+    this.quays = new VersionedEntities<>(latestVersionsOnly);
+  }
+
   @Override
   public void parse(Site_VersionFrameStructure frame) {
     if (frame.getStopPlaces() != null) {
@@ -112,14 +127,32 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
   void setResultOnIndex(NetexEntitiesIndex netexIndex) {
     netexIndex.getFlexibleStopPlaceIndex().putAll(flexibleStopPlaces);
     netexIndex.getGroupOfStopPlacesIndex().putAll(groupsOfStopPlaces);
-    netexIndex.getStopPlaceIndex().putAll(stopPlaces);
-    netexIndex.getTariffZoneIndex().putAll(tariffZones);
-    netexIndex.getTopographicPlaceIndex().putAll(topographicPlaces);
-    netexIndex.getParkingIndex().putAll(parkings);
+    netexIndex.getStopPlaceIndex().putAll(stopPlaces.values());
+    netexIndex.getTariffZoneIndex().putAll(tariffZones.values());
+    netexIndex.getTopographicPlaceIndex().putAll(topographicPlaces.values());
+    netexIndex.getParkingIndex().putAll(parkings.values());
     netexIndex.getQuayIndex().putAll(quays.values());
     netexIndex.getStopPlaceIdByQuayIdIndex().putAll(stopPlaceIdByQuayId);
     netexIndex.getParkingsByParentSiteRefIndex().putAll(parkingsByStopPlaceId);
-    netexIndex.getGroupOfTariffZonesIndex().putAll(groupsOfTariffZones);
+    netexIndex
+      .getGroupOfTariffZonesIndex()
+      .putAll(groupsOfTariffZones.values());
+  }
+
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    flexibleStopPlaces.forEach(listener::onFlexibleStopPlace);
+    groupsOfStopPlaces.forEach(listener::onGroupOfStopPlaces);
+    stopPlaces.values().forEach(listener::onStopPlace);
+    quays
+      .values()
+      .forEach(quay ->
+        listener.onQuay(quay, stopPlaceIdByQuayId.get(quay.getId()))
+      );
+    tariffZones.values().forEach(listener::onTariffZone);
+    topographicPlaces.values().forEach(listener::onTopographicPlace);
+    parkings.values().forEach(listener::onParking);
+    groupsOfTariffZones.values().forEach(listener::onGroupOfTariffZones);
   }
 
   private void parseFlexibleStopPlaces(
@@ -128,21 +161,32 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
     flexibleStopPlaces.addAll(flexibleStopPlacesList);
   }
 
+  void parseFlexibleStopPlace(FlexibleStopPlace flexibleStopPlace) {
+    flexibleStopPlaces.add(flexibleStopPlace);
+  }
+
   private void parseGroupsOfStopPlaces(
     Collection<GroupOfStopPlaces> groupsOfStopPlacesList
   ) {
     groupsOfStopPlaces.addAll(groupsOfStopPlacesList);
   }
 
+  void parseGroupOfStopPlaces(GroupOfStopPlaces groupOfStopPlaces) {
+    groupsOfStopPlaces.add(groupOfStopPlaces);
+  }
+
   private void parseStopPlaces(
     List<JAXBElement<? extends Site_VersionStructure>> stopPlaceList
   ) {
     for (JAXBElement<? extends Site_VersionStructure> jaxbStopPlace : stopPlaceList) {
-      StopPlace stopPlace = (StopPlace) jaxbStopPlace.getValue();
-      stopPlaces.add(stopPlace);
-      if (!isMultiModalStopPlace(stopPlace)) {
-        parseQuays(stopPlace.getQuays(), stopPlace.getId());
-      }
+      parseStopPlace((StopPlace) jaxbStopPlace.getValue());
+    }
+  }
+
+  void parseStopPlace(StopPlace stopPlace) {
+    stopPlaces.add(stopPlace);
+    if (!isMultiModalStopPlace(stopPlace)) {
+      parseQuays(stopPlace.getQuays(), stopPlace.getId());
     }
   }
 
@@ -150,9 +194,13 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
     List<JAXBElement<? extends Zone_VersionStructure>> tariffZoneList
   ) {
     for (JAXBElement<? extends Zone_VersionStructure> tariffZone : tariffZoneList) {
-      if (tariffZone.getValue() instanceof TariffZone) {
-        tariffZones.add((TariffZone) tariffZone.getValue());
-      }
+      parseTariffZone(tariffZone.getValue());
+    }
+  }
+
+  void parseTariffZone(Zone_VersionStructure tariffZone) {
+    if (tariffZone instanceof TariffZone) {
+      tariffZones.add((TariffZone) tariffZone);
     }
   }
 
@@ -162,13 +210,30 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
     topographicPlaces.addAll(topographicPlaceList);
   }
 
+  void parseTopographicPlace(TopographicPlace topographicPlace) {
+    topographicPlaces.add(topographicPlace);
+  }
+
   private void parseParkings(Collection<Parking> parkingList) {
     for (Parking parking : parkingList) {
-      parkings.add(parking);
-      parkingsByStopPlaceId.put(parking.getParentSiteRef().getRef(), parking);
+      parseParking(parking);
     }
   }
 
+  void parseParking(Parking parking) {
+    Parking dropped = parkings.add(parking);
+    if (dropped == parking) {
+      return;
+    }
+    if (dropped != null) {
+      parkingsByStopPlaceId.remove(
+        dropped.getParentSiteRef().getRef(),
+        dropped
+      );
+    }
+    parkingsByStopPlaceId.put(parking.getParentSiteRef().getRef(), parking);
+  }
+
   /**
    * Parse Quays and update the Map (quay id --> stop place id).
    * Special case: when a Quay is moved from one StopPlace to another, Quay versions are referenced under different StopPlaces.
@@ -186,14 +251,14 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
     for (JAXBElement<?> jaxbQuay : quayRefOrQuay.getQuayRefOrQuay()) {
       if (jaxbQuay.getValue() instanceof Quay quay) {
         String quayId = quay.getId();
-        quays.put(quayId, quay);
+        if (quays.add(quay) == quay) {
+          continue;
+        }
         if (!stopPlaceIdByQuayId.containsKey(quayId)) {
           stopPlaceIdByQuayId.put(quayId, stopPlaceId);
         } else if (!stopPlaceIdByQuayId.get(quayId).equals(stopPlaceId)) {
           // the Quay has been moved to another StopPlace. The latest version of the Quay is used for updating the Map (quay id --> stop place id)
-          Quay latestVersion = NetexVersionHelper.latestVersionedElementIn(
-            quays.get(quayId)
-          );
+          Quay latestVersion = quays.latestVersionOf(quayId);
           if (quay.equals(latestVersion)) {
             stopPlaceIdByQuayId.put(quayId, stopPlaceId);
           }
@@ -221,4 +286,8 @@ class SiteFrameParser extends NetexParser<Site_VersionFrameStructure> {
   ) {
     groupsOfTariffZones.addAll(groupOfTariffZones);
   }
+
+  void parseGroupOfTariffZones(GroupOfTariffZones groupOfTariffZones) {
+    groupsOfTariffZones.add(groupOfTariffZones);
+  }
 }
@@ -0,0 +1,49 @@
+package org.entur.netex.loader.parser;
+
+import jakarta.xml.bind.JAXBElement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of elements intentionally skipped by the parsers during a load, by element type.
+ * The parsers only increment a counter for each skipped element, so that the skipped
+ * elements can be reported once per load instead of logged one by one. This class is
+ * thread-safe.
+ */
+public class SkippedElements {
+
+  private final ConcurrentMap<String, LongAdder> counts =
+    new ConcurrentHashMap<>();
+
+  /** Count an element skipped by a parser, by the simple name of its type. */
+  void add(Object element) {
+    Object value = element instanceof JAXBElement<?> jaxbElement
+      ? jaxbElement.getValue()
+      : element;
+    add(value.getClass().getSimpleName());
+  }
+
+  /** Count an element skipped by a parser, given its type or element name. */
+  void add(String type) {
+    counts.computeIfAbsent(type, key -> new LongAdder()).increment();
+  }
+
+  /** Return the number of skipped elements by type, sorted by type. */
+  public Map<String, Long> asMap() {
+    Map<String, Long> result = new TreeMap<>();
+    counts.forEach((type, count) -> result.put(type, count.sum()));
+    return result;
+  }
+
+  public boolean isEmpty() {
+    return counts.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import java.util.ArrayList;
 import java.util.List;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.DatedServiceJourney;
 import org.rutebanken.netex.model.DeadRun;
@@ -11,6 +12,8 @@ import org.rutebanken.netex.model.Interchange_VersionStructure;
 import org.rutebanken.netex.model.JourneyInterchangesInFrame_RelStructure;
 import org.rutebanken.netex.model.Journey_VersionStructure;
 import org.rutebanken.netex.model.JourneysInFrame_RelStructure;
+import org.rutebanken.netex.model.Notice;
+import org.rutebanken.netex.model.NoticeAssignment;
 import org.rutebanken.netex.model.ServiceJourney;
 import org.rutebanken.netex.model.ServiceJourneyInterchange;
 import org.rutebanken.netex.model.Timetable_VersionFrameStructure;
@@ -110,21 +113,34 @@ class TimeTableFrameParser
     noticeParser.setResultOnIndex(netexIndex);
   }
 
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    serviceJourneys.forEach(listener::onServiceJourney);
+    datedServiceJourneys.forEach(listener::onDatedServiceJourney);
+    deadRuns.forEach(listener::onDeadRun);
+    serviceJourneyInterchanges.forEach(listener::onServiceJourneyInterchange);
+    noticeParser.setResultOnListener(listener);
+  }
+
   private void parseJourneys(JourneysInFrame_RelStructure element) {
     for (Journey_VersionStructure it : element.getVehicleJourneyOrDatedVehicleJourneyOrNormalDatedVehicleJourney()) {
-      if (it instanceof ServiceJourney serviceJourney) {
-        serviceJourneys.add(serviceJourney);
-      } else if (it instanceof DatedServiceJourney datedServiceJourney) {
-        datedServiceJourneys.add(datedServiceJourney);
-        datedServiceJourneyByServiceJourneyId.put(
-          datedServiceJourney.getJourneyRef().getValue().getRef(),
-          datedServiceJourney
-        );
-      } else if (it instanceof DeadRun deadRun) {
-        deadRuns.add(deadRun);
-      } else {
-        informOnElementIntentionallySkipped(LOG, it);
-      }
+      parseJourney(it);
+    }
+  }
+
+  void parseJourney(Journey_VersionStructure journey) {
+    if (journey instanceof ServiceJourney serviceJourney) {
+      serviceJourneys.add(serviceJourney);
+    } else if (journey instanceof DatedServiceJourney datedServiceJourney) {
+      datedServiceJourneys.add(datedServiceJourney);
+      datedServiceJourneyByServiceJourneyId.put(
+        datedServiceJourney.getJourneyRef().getValue().getRef(),
+        datedServiceJourney
+      );
+    } else if (journey instanceof DeadRun deadRun) {
+      deadRuns.add(deadRun);
+    } else {
+      informOnElementIntentionallySkipped(LOG, journey);
     }
   }
 
@@ -135,22 +151,36 @@ class TimeTableFrameParser
       return;
     }
     for (Interchange_VersionStructure it : journeyInterchangesElement.getServiceJourneyPatternInterchangeOrServiceJourneyInterchange()) {
-      if (it instanceof ServiceJourneyInterchange serviceJourneyInterchange) {
-        serviceJourneyInterchanges.add(serviceJourneyInterchange);
-
-        String fromRef = serviceJourneyInterchange.getFromJourneyRef().getRef();
-        serviceJourneyInterchangesByServiceJourneyId.put(
-          fromRef,
-          serviceJourneyInterchange
-        );
-        String toRef = serviceJourneyInterchange.getToJourneyRef().getRef();
-        serviceJourneyInterchangesByServiceJourneyId.put(
-          toRef,
-          serviceJourneyInterchange
-        );
-      } else {
-        informOnElementIntentionallySkipped(LOG, it);
-      }
+      parseInterchange(it);
     }
   }
+
+  void parseInterchange(Interchange_VersionStructure interchange) {
+    if (
+      interchange instanceof ServiceJourneyInterchange serviceJourneyInterchange
+    ) {
+      serviceJourneyInterchanges.add(serviceJourneyInterchange);
+
+      String fromRef = serviceJourneyInterchange.getFromJourneyRef().getRef();
+      serviceJourneyInterchangesByServiceJourneyId.put(
+        fromRef,
+        serviceJourneyInterchange
+      );
+      String toRef = serviceJourneyInterchange.getToJourneyRef().getRef();
+      serviceJourneyInterchangesByServiceJourneyId.put(
+        toRef,
+        serviceJourneyInterchange
+      );
+    } else {
+      informOnElementIntentionallySkipped(LOG, interchange);
+    }
+  }
+
+  void parseNotice(Notice notice) {
+    noticeParser.parseNotice(notice);
+  }
+
+  void parseNoticeAssignment(NoticeAssignment noticeAssignment) {
+    noticeParser.parseNoticeAssignment(noticeAssignment);
+  }
 }
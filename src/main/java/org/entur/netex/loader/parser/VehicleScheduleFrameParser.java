@@ -2,6 +2,7 @@ package org.entur.netex.loader.parser;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import org.entur.netex.NetexEntityListener;
 import org.entur.netex.index.api.NetexEntitiesIndex;
 import org.rutebanken.netex.model.Block;
 import org.rutebanken.netex.model.Block_VersionStructure;
@@ -30,7 +31,12 @@ class VehicleScheduleFrameParser
     netexIndex.getBlockIndex().putAll(blocks);
   }
 
-  private void parseBlock(Block_VersionStructure element) {
+  @Override
+  void setResultOnListener(NetexEntityListener listener) {
+    blocks.forEach(listener::onBlock);
+  }
+
+  void parseBlock(Block_VersionStructure element) {
     if (element instanceof Block block) {
       blocks.add(block);
     } else {
@@ -0,0 +1,77 @@
+package org.entur.netex.loader.parser;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.entur.netex.support.NetexVersionHelper;
+import org.rutebanken.netex.model.EntityInVersionStructure;
+
+/**
+ * The versioned entities collected by a frame parser, by id. When only the latest versions
+ * are kept, a version is dropped as soon as a later version of the same entity is parsed,
+ * rather than when the frame is added to the index. Of two versions with the same number,
+ * the last one is kept, as in the index.
+ */
+final class VersionedEntities<V extends EntityInVersionStructure> {
+
+  /** All the versions, null if only the latest versions are kept. */
+  private final ListMultimap<String, V> allVersions;
+
+  /** The latest version of each entity, null if all the versions are kept. */
+  private final Map<String, V> latestVersions;
+
+  VersionedEntities(boolean latestVersionsOnly) {
+    this.allVersions = latestVersionsOnly ? null : ArrayListMultimap.create();
+    this.latestVersions = latestVersionsOnly ? new LinkedHashMap<>() : null;
+  }
+
+  /**
+   * Add the entity. When only the latest versions are kept, return the version that is
+   * dropped: the given entity if a later version was added before, or the version it
+   * replaces.
+   *
+   * @return the dropped version, or null if no version is dropped
+   */
+  V add(V entity) {
+    if (allVersions != null) {
+      allVersions.put(entity.getId(), entity);
+      return null;
+    }
+    V previous = latestVersions.get(entity.getId());
+    if (previous != null && !replaces(entity, previous)) {
+      return entity;
+    }
+    latestVersions.put(entity.getId(), entity);
+    return previous;
+  }
+
+  void addAll(Collection<? extends V> entities) {
+    for (V entity : entities) {
+      add(entity);
+    }
+  }
+
+  /** Return the latest version of the entity added so far, or null if there is none. */
+  V latestVersionOf(String id) {
+    return allVersions == null
+      ? latestVersions.get(id)
+      : NetexVersionHelper.latestVersionedElementIn(allVersions.get(id));
+  }
+
+  Collection<V> values() {
+    return allVersions == null ? latestVersions.values() : allVersions.values();
+  }
+
+  /** Return true if the entity has the same or a higher version number than the other. */
+  private static boolean replaces(
+    EntityInVersionStructure entity,
+    EntityInVersionStructure other
+  ) {
+    return (
+      NetexVersionHelper.versionNumber(entity.getVersion()) >=
+      NetexVersionHelper.versionNumber(other.getVersion())
+    );
+  }
+}
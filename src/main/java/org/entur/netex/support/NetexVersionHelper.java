@@ -1,9 +1,6 @@
 package org.entur.netex.support;
 
-import static java.util.Comparator.comparingLong;
-
 import java.util.Collection;
-import java.util.Comparator;
 import org.rutebanken.netex.model.EntityInVersionStructure;
 
 /**
@@ -26,6 +23,21 @@ public class NetexVersionHelper {
     return Long.parseLong(e.getVersion());
   }
 
+  /**
+   * Return the number of the given version, or {@link Long#MIN_VALUE} if it is not a
+   * number, so that versions that are not numbers come before all the others.
+   */
+  public static long versionNumber(String version) {
+    if (version == null) {
+      return Long.MIN_VALUE;
+    }
+    try {
+      return Long.parseLong(version);
+    } catch (NumberFormatException e) {
+      return Long.MIN_VALUE;
+    }
+  }
+
   /**
    * Return the element with the latest (maximum) version for a given {@code list} of elements.
    * If no elements exist in the collection {@code null} is returned.
@@ -36,7 +48,17 @@ public class NetexVersionHelper {
     if (list.size() == 1) {
       return list.iterator().next();
     }
-    return list.stream().max(comparingVersion()).orElse(null);
+    // Parse each version once, rather than on every comparison
+    T latest = null;
+    long latestVersion = 0;
+    for (T element : list) {
+      long version = versionOf(element);
+      if (latest == null || version > latestVersion) {
+        latest = element;
+        latestVersion = version;
+      }
+    }
+    return latest;
   }
 
   public static <T extends EntityInVersionStructure> T versionOfElementIn(
@@ -49,13 +71,4 @@ public class NetexVersionHelper {
       .findFirst()
       .orElse(null);
   }
-
-  /**
-   * Return a comparator to compare {@link EntityInVersionStructure} elements by <b>version</b>.
-   */
-  private static <
-    T extends EntityInVersionStructure
-  > Comparator<T> comparingVersion() {
-    return comparingLong(NetexVersionHelper::versionOf);
-  }
 }
@@ -0,0 +1,103 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.ServiceJourney;
+
+class TestChunkedJourneyParsing {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  private static final String DEAD_RUN_FILE =
+    "src/test/resources/deadRuns.zip";
+
+  @Test
+  void testChunkedJourneys() throws IOException {
+    NetexEntitiesIndex expected = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex actual = new NetexParser(
+      new NetexParserOptions().withJourneyChunkSize(10).withParallelism(4)
+    )
+      .parse(LINE_FILE);
+
+    assertSameJourneys(expected, actual);
+    Assertions.assertEquals(
+      expected.getDatedServiceJourneyByServiceJourneyRefIndex().size(),
+      actual.getDatedServiceJourneyByServiceJourneyRefIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyInterchangeIndex().getAll().size(),
+      actual.getServiceJourneyInterchangeIndex().getAll().size()
+    );
+    Assertions.assertTrue(actual.getTimetableFrames().isEmpty());
+  }
+
+  @Test
+  void testSingleJourneyChunks() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      NetexEntitiesIndex expected = new NetexParser().parse(DEAD_RUN_FILE);
+      NetexEntitiesIndex actual = new NetexParser(
+        new NetexParserOptions().withJourneyChunkSize(1).withExecutor(executor)
+      )
+        .parse(DEAD_RUN_FILE);
+
+      assertSameJourneys(expected, actual);
+      Assertions.assertEquals(
+        expected.getDeadRunIndex().getAll().size(),
+        actual.getDeadRunIndex().getAll().size()
+      );
+      Assertions.assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testInvalidChunkSize() {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> new NetexParserOptions().withJourneyChunkSize(0)
+    );
+  }
+
+  private static void assertSameJourneys(
+    NetexEntitiesIndex expected,
+    NetexEntitiesIndex actual
+  ) {
+    Assertions.assertFalse(
+      expected.getServiceJourneyIndex().getAll().isEmpty()
+    );
+    Assertions.assertEquals(
+      passingTimesById(expected),
+      passingTimesById(actual)
+    );
+    Assertions.assertEquals(
+      expected.getDatedServiceJourneyIndex().getAll().size(),
+      actual.getDatedServiceJourneyIndex().getAll().size()
+    );
+  }
+
+  private static Map<String, Integer> passingTimesById(
+    NetexEntitiesIndex index
+  ) {
+    return index
+      .getServiceJourneyIndex()
+      .getAll()
+      .stream()
+      .collect(
+        Collectors.toMap(
+          ServiceJourney::getId,
+          journey ->
+            journey.getPassingTimes() == null
+              ? 0
+              : journey.getPassingTimes().getTimetabledPassingTime().size()
+        )
+      );
+  }
+}
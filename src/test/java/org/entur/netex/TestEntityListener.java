@@ -0,0 +1,81 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.StopPlace;
+
+class TestEntityListener {
+
+  private final NetexParser parser = new NetexParser();
+
+  @Test
+  void testLineFile() throws IOException {
+    String file = "src/test/resources/line_file.zip";
+    NetexEntitiesIndex index = parser.parse(file);
+    CountingListener listener = new CountingListener();
+    parser.parse(file, listener);
+
+    Assertions.assertEquals(
+      index.getPublicationTimestamp(),
+      listener.publicationTimestamp
+    );
+    Assertions.assertEquals(
+      index.getServiceJourneyIndex().getAll().size(),
+      listener.serviceJourneys
+    );
+  }
+
+  @Test
+  void testCommonFile() throws IOException {
+    String file = "src/test/resources/common_file.zip";
+    NetexEntitiesIndex index = parser.parse(file);
+    CountingListener listener = new CountingListener();
+    parser.parse(file, listener);
+
+    Assertions.assertEquals(
+      index.getStopPlaceIndex().getLatestVersions().size(),
+      listener.stopPlaceIds.size()
+    );
+    Assertions.assertEquals(
+      index.getStopPlaceIdByQuayIdIndex(),
+      listener.stopPlaceIdByQuayId
+    );
+  }
+
+  private static class CountingListener implements NetexEntityListener {
+
+    private LocalDateTime publicationTimestamp;
+    private int serviceJourneys;
+    private final Set<String> stopPlaceIds = new HashSet<>();
+    private final Map<String, String> stopPlaceIdByQuayId = new HashMap<>();
+
+    @Override
+    public void onPublicationTimestamp(LocalDateTime publicationTimestamp) {
+      this.publicationTimestamp = publicationTimestamp;
+    }
+
+    @Override
+    public void onServiceJourney(ServiceJourney serviceJourney) {
+      serviceJourneys++;
+    }
+
+    @Override
+    public void onStopPlace(StopPlace stopPlace) {
+      stopPlaceIds.add(stopPlace.getId());
+    }
+
+    @Override
+    public void onQuay(Quay quay, String stopPlaceId) {
+      stopPlaceIdByQuayId.put(quay.getId(), stopPlaceId);
+    }
+  }
+}
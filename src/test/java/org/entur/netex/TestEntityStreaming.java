@@ -0,0 +1,129 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestEntityStreaming {
+
+  private final NetexParser domParser = new NetexParser();
+
+  private final NetexParser streamingParser = new NetexParser(
+    new NetexParserOptions().withEntityStreaming(true)
+  );
+
+  @Test
+  void testLineFile() throws IOException {
+    String file = "src/test/resources/line_file.zip";
+    NetexEntitiesIndex expected = domParser.parse(file);
+    NetexEntitiesIndex actual = streamingParser.parse(file);
+
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      actual.getPublicationTimestamp()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDatedServiceJourneyIndex().getAll().size(),
+      actual.getDatedServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDatedServiceJourneyByServiceJourneyRefIndex().size(),
+      actual.getDatedServiceJourneyByServiceJourneyRefIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyInterchangeIndex().getAll().size(),
+      actual.getServiceJourneyInterchangeIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getJourneyPatternIndex().getAll().size(),
+      actual.getJourneyPatternIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getRouteIndex().getAll().size(),
+      actual.getRouteIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      actual.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getNoticeAssignmentIndex().getAll().size(),
+      actual.getNoticeAssignmentIndex().getAll().size()
+    );
+    Assertions.assertNotNull(
+      actual
+        .getServiceJourneyInterchangeIndex()
+        .get("GOA:ServiceJourneyInterchange:6")
+    );
+    Assertions.assertTrue(actual.getTimetableFrames().isEmpty());
+  }
+
+  @Test
+  void testCommonFile() throws IOException {
+    String file = "src/test/resources/common_file.zip";
+    NetexEntitiesIndex expected = domParser.parse(file);
+    NetexEntitiesIndex actual = streamingParser.parse(file);
+
+    Assertions.assertEquals(
+      expected.getStopPlaceIndex().getLatestVersions().size(),
+      actual.getStopPlaceIndex().getLatestVersions().size()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIndex().getLatestVersions().size(),
+      actual.getQuayIndex().getLatestVersions().size()
+    );
+    Assertions.assertEquals(
+      expected.getStopPlaceIdByQuayIdIndex(),
+      actual.getStopPlaceIdByQuayIdIndex()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getPassengerStopAssignmentsByStopPointRefIndex().size(),
+      actual.getPassengerStopAssignmentsByStopPointRefIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getScheduledStopPointIndex().getLatestVersions().size(),
+      actual.getScheduledStopPointIndex().getLatestVersions().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceLinkIndex().getAll().size(),
+      actual.getServiceLinkIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeIndex().getAll().size(),
+      actual.getDayTypeIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeAssignmentsByDayTypeIdIndex().size(),
+      actual.getDayTypeAssignmentsByDayTypeIdIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      actual.getOperatorIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getNetworkIdByGroupOfLineIdIndex(),
+      actual.getNetworkIdByGroupOfLineIdIndex()
+    );
+  }
+
+  @Test
+  void testVehicleScheduleFrame() throws IOException {
+    String file = "src/test/resources/data.zip";
+    NetexEntitiesIndex expected = domParser.parse(file);
+    NetexEntitiesIndex actual = streamingParser.parse(file);
+
+    Assertions.assertEquals(
+      expected.getBlockIndex().getAll().size(),
+      actual.getBlockIndex().getAll().size()
+    );
+  }
+}
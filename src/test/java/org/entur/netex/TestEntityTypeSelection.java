@@ -0,0 +1,81 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.ServiceJourneyInterchange;
+import org.rutebanken.netex.model.ValidBetween;
+
+class TestEntityTypeSelection {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+  private static final String COMMON_FILE =
+    "src/test/resources/common_file.zip";
+
+  @Test
+  void testTimetableOnly() throws IOException {
+    NetexEntitiesIndex expected = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex actual = new NetexParser(
+      new NetexParserOptions()
+        .withEntityTypes(ServiceJourney.class, ServiceJourneyInterchange.class)
+    )
+      .parse(LINE_FILE);
+
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyInterchangeIndex().getAll().size(),
+      actual.getServiceJourneyInterchangeIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      actual.getPublicationTimestamp()
+    );
+    Assertions.assertTrue(actual.getNoticeAssignmentIndex().getAll().isEmpty());
+    Assertions.assertTrue(actual.getRouteIndex().getAll().isEmpty());
+    Assertions.assertTrue(actual.getLineIndex().getAll().isEmpty());
+    Assertions.assertTrue(actual.getServiceFrames().isEmpty());
+  }
+
+  @Test
+  void testStreaming() throws IOException {
+    NetexEntitiesIndex expected = new NetexParser().parse(COMMON_FILE);
+    NetexEntitiesIndex actual = new NetexParser(
+      new NetexParserOptions()
+        .withEntityStreaming(true)
+        .withEntityTypes(Operator.class, DayType.class)
+    )
+      .parse(COMMON_FILE);
+
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      actual.getOperatorIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeIndex().getAll().size(),
+      actual.getDayTypeIndex().getAll().size()
+    );
+    Assertions.assertTrue(actual.getAuthorityIndex().getAll().isEmpty());
+    Assertions.assertTrue(
+      actual.getDayTypeAssignmentsByDayTypeIdIndex().isEmpty()
+    );
+    Assertions.assertTrue(
+      actual.getScheduledStopPointIndex().getAllVersions().isEmpty()
+    );
+  }
+
+  @Test
+  void testUnsupportedEntityType() {
+    NetexParserOptions options = new NetexParserOptions();
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> options.withEntityTypes(ValidBetween.class)
+    );
+  }
+}
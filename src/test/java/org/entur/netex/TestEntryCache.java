@@ -0,0 +1,145 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.snapshot.ZipEntryCache;
+import org.entur.netex.loader.StringDeduplicator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestEntryCache {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testUnchangedArchive() throws IOException {
+    ZipEntryCache cache = new ZipEntryCache(tempDir.resolve("cache"));
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions().withEntryCache(cache)
+    );
+
+    NetexEntitiesIndex parsed = parser.parse(LINE_FILE);
+    Assertions.assertEquals(0, cache.getHitCount());
+    Assertions.assertEquals(1, cache.getMissCount());
+
+    NetexEntitiesIndex cached = parser.parse(LINE_FILE);
+    Assertions.assertEquals(1, cache.getHitCount());
+    Assertions.assertEquals(1, cache.getMissCount());
+
+    Assertions.assertEquals(
+      parsed.getServiceJourneyIndex().getAll().size(),
+      cached.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      parsed.getJourneyPatternIndex().getAll().size(),
+      cached.getJourneyPatternIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      parsed.getPublicationTimestamp(),
+      cached.getPublicationTimestamp()
+    );
+  }
+
+  @Test
+  void testModifiedEntry() throws IOException {
+    Path archive = tempDir.resolve("archive.zip");
+    writeArchive(archive, "src/test/resources/common_file.zip", LINE_FILE);
+    new NetexParser(
+      new NetexParserOptions()
+        .withEntryCache(new ZipEntryCache(tempDir.resolve("cache")))
+    )
+      .parse(archive.toString());
+
+    writeArchive(
+      archive,
+      "src/test/resources/common_file.zip",
+      "src/test/resources/data.zip"
+    );
+    ZipEntryCache cache = new ZipEntryCache(tempDir.resolve("cache"));
+    NetexEntitiesIndex index = new NetexParser(
+      new NetexParserOptions().withEntryCache(cache).withParallelism(2)
+    )
+      .parse(archive.toString());
+
+    NetexEntitiesIndex expected = new NetexParser().parse(archive.toString());
+    Assertions.assertEquals(1, cache.getHitCount());
+    Assertions.assertEquals(1, cache.getMissCount());
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      index.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(1, cache.removeUnusedEntries());
+  }
+
+  @Test
+  void testStringDeduplicationOfCachedEntries() throws IOException {
+    ZipEntryCache cache = new ZipEntryCache(tempDir.resolve("cache"));
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions()
+        .withEntryCache(cache)
+        .withStringDeduplication(true)
+    );
+    List<Path> archives = List.of(Path.of(LINE_FILE));
+
+    parser.parseAll(archives, new NetexEntitiesIndexImpl());
+    StringDeduplicator.Statistics statistics = parser
+      .parseAll(archives, new NetexEntitiesIndexImpl())
+      .getStringDeduplication();
+
+    Assertions.assertEquals(1, cache.getHitCount());
+    Assertions.assertTrue(statistics.strings() > 0);
+    Assertions.assertTrue(statistics.duplicates() > 0);
+  }
+
+  @Test
+  void testUnwritableCache() throws IOException {
+    Path directory = Files.createFile(tempDir.resolve("cache"));
+    ZipEntryCache cache = new ZipEntryCache(directory);
+
+    NetexEntitiesIndex index = new NetexParser(
+      new NetexParserOptions().withEntryCache(cache)
+    )
+      .parse(LINE_FILE);
+
+    NetexEntitiesIndex expected = new NetexParser().parse(LINE_FILE);
+    Assertions.assertEquals(1, cache.getMissCount());
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      index.getServiceJourneyIndex().getAll().size()
+    );
+  }
+
+  private static void writeArchive(Path archive, String... zips)
+    throws IOException {
+    try (
+      ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))
+    ) {
+      for (String zip : zips) {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+          Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            out.putNextEntry(new ZipEntry(entry.getName()));
+            try (InputStream in = zipFile.getInputStream(entry)) {
+              in.transferTo(out);
+            }
+            out.closeEntry();
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.util.Collection;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.RoutePoint;
+import org.rutebanken.netex.model.ServiceJourney;
+
+class TestFilteringXmlStreamReaderFactory {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+  private static final String COMMON_FILE =
+    "src/test/resources/common_file.zip";
+
+  @Test
+  void testExcludedElements() throws IOException {
+    NetexParser parser = new NetexParser(
+      new FilteringXmlStreamReaderFactory()
+        .withExcludedElements("keyList", "projections")
+    );
+
+    NetexEntitiesIndex lineIndex = parser.parse(LINE_FILE);
+    Collection<ServiceJourney> serviceJourneys = lineIndex
+      .getServiceJourneyIndex()
+      .getAll();
+    Assertions.assertFalse(serviceJourneys.isEmpty());
+    for (ServiceJourney serviceJourney : serviceJourneys) {
+      Assertions.assertNull(serviceJourney.getKeyList());
+    }
+
+    NetexEntitiesIndex commonIndex = parser.parse(COMMON_FILE);
+    Assertions.assertFalse(commonIndex.getRoutePointIndex().getAll().isEmpty());
+    for (RoutePoint routePoint : commonIndex.getRoutePointIndex().getAll()) {
+      Assertions.assertNull(routePoint.getProjections());
+    }
+  }
+
+  @Test
+  void testIncludedFrames() throws IOException {
+    NetexParser parser = new NetexParser(
+      new FilteringXmlStreamReaderFactory().withIncludedFrames("ServiceFrame")
+    );
+    NetexEntitiesIndex expected = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex actual = parser.parse(LINE_FILE);
+
+    Assertions.assertTrue(actual.getServiceJourneyIndex().getAll().isEmpty());
+    Assertions.assertTrue(actual.getTimetableFrames().isEmpty());
+    Assertions.assertEquals(
+      expected.getJourneyPatternIndex().getAll().size(),
+      actual.getJourneyPatternIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getRouteIndex().getAll().size(),
+      actual.getRouteIndex().getAll().size()
+    );
+  }
+}
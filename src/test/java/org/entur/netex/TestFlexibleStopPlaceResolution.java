@@ -0,0 +1,154 @@
+package org.entur.netex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestFlexibleStopPlaceResolution {
+
+  private static final String HEADER =
+    "<PublicationDelivery version=\"1.13\" " +
+    "xmlns=\"http://www.netex.org.uk/netex\">" +
+    "<PublicationTimestamp>2023-06-14T00:07:41</PublicationTimestamp>" +
+    "<ParticipantRef>TST</ParticipantRef><dataObjects>";
+
+  private static final String FOOTER = "</dataObjects></PublicationDelivery>";
+
+  private static final String LINE_FILE =
+    HEADER +
+    "<ServiceFrame version=\"1\" id=\"TST:ServiceFrame:1\"><stopAssignments>" +
+    flexibleStopAssignment(1) +
+    flexibleStopAssignment(2) +
+    "</stopAssignments></ServiceFrame>" +
+    FOOTER;
+
+  private static final String SHARED_FILE =
+    HEADER +
+    "<SiteFrame version=\"1\" id=\"TST:SiteFrame:1\"><flexibleStopPlaces>" +
+    "<FlexibleStopPlace version=\"1\" id=\"TST:FlexibleStopPlace:1\">" +
+    "<Name>Flexible area</Name></FlexibleStopPlace>" +
+    "</flexibleStopPlaces></SiteFrame>" +
+    FOOTER;
+
+  /** Only the assignment to the FlexibleStopPlace defined in the shared file resolves. */
+  private static final Map<String, String> EXPECTED = Map.of(
+    "TST:ScheduledStopPoint:1",
+    "TST:FlexibleStopPlace:1"
+  );
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testLineFileBeforeSharedFile() throws IOException {
+    String zip = createZip(LINE_FILE, SHARED_FILE);
+    Assertions.assertEquals(
+      EXPECTED,
+      new NetexParser().parse(zip).getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+  }
+
+  @Test
+  void testSharedFileBeforeLineFile() throws IOException {
+    String zip = createZip(SHARED_FILE, LINE_FILE);
+    Assertions.assertEquals(
+      EXPECTED,
+      new NetexParser().parse(zip).getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+  }
+
+  @Test
+  void testParallelAndStreaming() throws IOException {
+    String zip = createZip(LINE_FILE, SHARED_FILE);
+    NetexEntitiesIndex parallel = new NetexParser(
+      new NetexParserOptions().withParallelism(2)
+    )
+      .parse(zip);
+    NetexEntitiesIndex streaming = new NetexParser(
+      new NetexParserOptions().withEntityStreaming(true)
+    )
+      .parse(zip);
+    Assertions.assertEquals(
+      EXPECTED,
+      parallel.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      EXPECTED,
+      streaming.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+  }
+
+  @Test
+  void testSeparateStreams() {
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    parser.parse(stream(SHARED_FILE), index);
+    parser.parse(stream(LINE_FILE), index);
+    Assertions.assertEquals(
+      EXPECTED,
+      index.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+  }
+
+  @Test
+  void testSeparateStreamsWithDeferredResolution() {
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions().withFlexibleStopPlaceResolution(false)
+    );
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    parser.parse(stream(LINE_FILE), index);
+    parser.parse(stream(SHARED_FILE), index);
+    Assertions.assertEquals(
+      2,
+      index.getFlexibleStopPlaceIdByStopPointRefIndex().size()
+    );
+
+    NetexParser.resolveFlexibleStopPlaces(index);
+    Assertions.assertEquals(
+      EXPECTED,
+      index.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+  }
+
+  private String createZip(String... documents) throws IOException {
+    Path zip = tempDir.resolve("dataset.zip");
+    try (
+      ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))
+    ) {
+      for (int i = 0; i < documents.length; i++) {
+        out.putNextEntry(new ZipEntry("file" + i + ".xml"));
+        out.write(documents[i].getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+    return zip.toString();
+  }
+
+  private static ByteArrayInputStream stream(String document) {
+    return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String flexibleStopAssignment(int i) {
+    return (
+      "<FlexibleStopAssignment version=\"1\" order=\"" +
+      i +
+      "\" id=\"TST:FlexibleStopAssignment:" +
+      i +
+      "\"><ScheduledStopPointRef ref=\"TST:ScheduledStopPoint:" +
+      i +
+      "\"/><FlexibleStopPlaceRef ref=\"TST:FlexibleStopPlace:" +
+      i +
+      "\"/></FlexibleStopAssignment>"
+    );
+  }
+}
@@ -0,0 +1,72 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.loader.parser.FrameRetention;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.TimetableFrame;
+
+class TestFrameRetention {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  @Test
+  void testNoFrames() throws IOException {
+    NetexEntitiesIndex full = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex index = parse(FrameRetention.NONE);
+
+    Assertions.assertFalse(full.getTimetableFrames().isEmpty());
+    Assertions.assertTrue(index.getTimetableFrames().isEmpty());
+    Assertions.assertTrue(index.getServiceFrames().isEmpty());
+    Assertions.assertTrue(index.getCompositeFrames().isEmpty());
+    Assertions.assertEquals(
+      full.getServiceJourneyIndex().getAll().size(),
+      index.getServiceJourneyIndex().getAll().size()
+    );
+  }
+
+  @Test
+  void testFrameMetadata() throws IOException {
+    NetexEntitiesIndex full = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex index = parse(FrameRetention.METADATA);
+
+    Assertions.assertEquals(
+      idsOf(full.getTimetableFrames()),
+      idsOf(index.getTimetableFrames())
+    );
+    Assertions.assertEquals(
+      full.getCompositeFrames().size(),
+      index.getCompositeFrames().size()
+    );
+    for (TimetableFrame frame : index.getTimetableFrames()) {
+      Assertions.assertNotNull(frame.getVersion());
+      Assertions.assertNull(frame.getVehicleJourneys());
+    }
+    index
+      .getCompositeFrames()
+      .forEach(frame -> Assertions.assertNull(frame.getFrames()));
+    Assertions.assertEquals(
+      full.getServiceJourneyIndex().getAll().size(),
+      index.getServiceJourneyIndex().getAll().size()
+    );
+  }
+
+  private static NetexEntitiesIndex parse(FrameRetention frameRetention)
+    throws IOException {
+    return new NetexParser(
+      new NetexParserOptions().withFrameRetention(frameRetention)
+    )
+      .parse(LINE_FILE);
+  }
+
+  private static Set<String> idsOf(Collection<TimetableFrame> frames) {
+    return frames
+      .stream()
+      .map(TimetableFrame::getId)
+      .collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,189 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rutebanken.netex.model.Operator;
+
+class TestIndexHolder {
+
+  private static final Path COMMON_FILE = Path.of(
+    "src/test/resources/common_file.zip"
+  );
+
+  private static final Path LINE_FILE = Path.of(
+    "src/test/resources/line_file.zip"
+  );
+
+  private static final Path DATA_FILE = Path.of("src/test/resources/data.zip");
+
+  private static final String OPERATOR_ID = "AVI:Operator:W6";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testPublishNewGeneration() throws Exception {
+    NetexIndexHolder holder = new NetexIndexHolder(new NetexParser());
+    Assertions.assertNull(holder.get());
+
+    NetexEntitiesIndex first = holder.load(List.of(COMMON_FILE, LINE_FILE));
+    Assertions.assertSame(first, holder.get());
+    int lines = first.getLineIndex().getAll().size();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      NetexEntitiesIndex second = holder
+        .loadInBackground(List.of(COMMON_FILE, DATA_FILE), executor)
+        .get();
+      Assertions.assertSame(second, holder.get());
+      Assertions.assertNotSame(first, second);
+    } finally {
+      executor.shutdown();
+    }
+    Assertions.assertEquals(2, holder.getGeneration());
+    Assertions.assertEquals(lines, first.getLineIndex().getAll().size());
+  }
+
+  @Test
+  void testReuseUnchangedArchives() throws Exception {
+    Path lineArchive = tempDir.resolve("line.zip");
+    Files.copy(LINE_FILE, lineArchive);
+    NetexIndexHolder holder = new NetexIndexHolder(new NetexParser(), true);
+
+    NetexEntitiesIndex first = holder.load(List.of(COMMON_FILE, lineArchive));
+    Files.copy(DATA_FILE, lineArchive, StandardCopyOption.REPLACE_EXISTING);
+    NetexEntitiesIndex second = holder.load(List.of(COMMON_FILE, lineArchive));
+
+    Operator operator = first
+      .getOperatorIndex()
+      .getAll()
+      .stream()
+      .filter(o -> o.getId().startsWith("AVI:"))
+      .findFirst()
+      .orElseThrow();
+    Assertions.assertSame(
+      operator,
+      second.getOperatorIndex().get(operator.getId())
+    );
+
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex expected = parser.parse(
+      DATA_FILE.toString(),
+      parser.parse(COMMON_FILE.toString())
+    );
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      second.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      second.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      second.getOperatorIndex().getAll().size()
+    );
+  }
+
+  @Test
+  void testRemovedArchive() throws Exception {
+    NetexIndexHolder holder = new NetexIndexHolder(
+      new NetexParser(new NetexParserOptions().withParallelism(2)),
+      true
+    );
+
+    NetexEntitiesIndex first = holder.load(List.of(COMMON_FILE, LINE_FILE));
+    NetexEntitiesIndex second = holder.load(List.of(COMMON_FILE));
+
+    NetexEntitiesIndex expected = new NetexParser()
+      .parse(COMMON_FILE.toString());
+    Assertions.assertFalse(first.getLineIndex().getAll().isEmpty());
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      second.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      second.getOperatorIndex().getAll().size()
+    );
+  }
+
+  @Test
+  void testEntityDefinedInTwoArchives() throws Exception {
+    Path first = tempDir.resolve("first.zip");
+    Path second = tempDir.resolve("second.zip");
+    Files.copy(COMMON_FILE, first);
+    Files.copy(COMMON_FILE, second);
+    List<Path> archives = List.of(first, second);
+    NetexIndexHolder holder = new NetexIndexHolder(new NetexParser(), true);
+    Operator operator = holder
+      .load(archives)
+      .getOperatorIndex()
+      .get(OPERATOR_ID);
+    Assertions.assertNotNull(operator);
+
+    // The second archive keeps precedence when only the first one changes
+    writeArchive(first, COMMON_FILE, LINE_FILE);
+    Assertions.assertSame(
+      operator,
+      holder.load(archives).getOperatorIndex().get(OPERATOR_ID)
+    );
+
+    // The operator of the first archive is used once the second one drops it
+    Files.copy(LINE_FILE, second, StandardCopyOption.REPLACE_EXISTING);
+    NetexEntitiesIndex index = holder.load(archives);
+    Operator fallback = index.getOperatorIndex().get(OPERATOR_ID);
+    Assertions.assertNotNull(fallback);
+    Assertions.assertNotSame(operator, fallback);
+
+    NetexEntitiesIndex expected = new NetexParser().newIndex();
+    new NetexParser().parseAll(archives, expected);
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      index.getOperatorIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      index.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeAssignmentsByDayTypeIdIndex().size(),
+      index.getDayTypeAssignmentsByDayTypeIdIndex().size()
+    );
+  }
+
+  private static void writeArchive(Path archive, Path... zips)
+    throws IOException {
+    try (
+      ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))
+    ) {
+      for (Path zip : zips) {
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+          Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            out.putNextEntry(new ZipEntry(entry.getName()));
+            try (InputStream in = zipFile.getInputStream(entry)) {
+              in.transferTo(out);
+            }
+            out.closeEntry();
+          }
+        }
+      }
+    }
+  }
+}
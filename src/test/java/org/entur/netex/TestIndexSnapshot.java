@@ -0,0 +1,126 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.snapshot.NetexIndexSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rutebanken.netex.model.ServiceJourney;
+import org.rutebanken.netex.model.StopPlace;
+
+class TestIndexSnapshot {
+
+  private static final List<Path> ARCHIVES = List.of(
+    Path.of("src/test/resources/common_file.zip"),
+    Path.of("src/test/resources/line_file.zip"),
+    Path.of("src/test/resources/data.zip")
+  );
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteAndRead() throws IOException {
+    NetexEntitiesIndex expected = new NetexEntitiesIndexImpl();
+    new NetexParser().parseAll(ARCHIVES, expected);
+    Path snapshot = tempDir.resolve("index.snapshot");
+    NetexIndexSnapshot.write(expected, ARCHIVES, snapshot);
+
+    NetexEntitiesIndex actual = new NetexEntitiesIndexImpl();
+    Assertions.assertTrue(NetexIndexSnapshot.read(snapshot, ARCHIVES, actual));
+
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      actual.getPublicationTimestamp()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    for (ServiceJourney journey : expected.getServiceJourneyIndex().getAll()) {
+      ServiceJourney copy = actual
+        .getServiceJourneyIndex()
+        .get(journey.getId());
+      Assertions.assertEquals(journey.getVersion(), copy.getVersion());
+      Assertions.assertEquals(
+        journey.getPassingTimes().getTimetabledPassingTime().size(),
+        copy.getPassingTimes().getTimetabledPassingTime().size()
+      );
+    }
+    Assertions.assertEquals(
+      expected.getStopPlaceIndex().getAllVersions().keySet(),
+      actual.getStopPlaceIndex().getAllVersions().keySet()
+    );
+    Collection<StopPlace> stopPlaces = expected
+      .getStopPlaceIndex()
+      .getLatestVersions();
+    for (StopPlace stopPlace : stopPlaces) {
+      StopPlace copy = actual
+        .getStopPlaceIndex()
+        .getLatestVersion(stopPlace.getId());
+      Assertions.assertEquals(stopPlace.getVersion(), copy.getVersion());
+      Assertions.assertEquals(
+        stopPlace.getName().getValue(),
+        copy.getName().getValue()
+      );
+    }
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeAssignmentsByDayTypeIdIndex().size(),
+      actual.getDayTypeAssignmentsByDayTypeIdIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getTimetableFrames().size(),
+      actual.getTimetableFrames().size()
+    );
+  }
+
+  @Test
+  void testOutOfDateSnapshot() throws IOException {
+    Path archive = tempDir.resolve("archive.zip");
+    Files.copy(ARCHIVES.get(0), archive);
+    NetexEntitiesIndex index = new NetexParser().parse(archive.toString());
+    Path snapshot = tempDir.resolve("index.snapshot");
+    NetexIndexSnapshot.write(index, List.of(archive), snapshot);
+
+    Files.copy(ARCHIVES.get(2), archive, StandardCopyOption.REPLACE_EXISTING);
+
+    NetexEntitiesIndex actual = new NetexEntitiesIndexImpl();
+    Assertions.assertFalse(
+      NetexIndexSnapshot.read(snapshot, List.of(archive), actual)
+    );
+    Assertions.assertTrue(actual.getLineIndex().getAll().isEmpty());
+    Assertions.assertFalse(
+      NetexIndexSnapshot.read(tempDir.resolve("none"), ARCHIVES, actual)
+    );
+  }
+
+  @Test
+  void testParseWithSnapshot() throws IOException {
+    Path snapshot = tempDir.resolve("index.snapshot");
+    NetexParser parser = new NetexParser();
+
+    NetexEntitiesIndex parsed = parser.parseWithSnapshot(ARCHIVES, snapshot);
+    Assertions.assertTrue(Files.exists(snapshot));
+    NetexEntitiesIndex read = parser.parseWithSnapshot(ARCHIVES, snapshot);
+
+    Assertions.assertEquals(
+      parsed.getLineIndex().getAll().size(),
+      read.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      parsed.getStopPlaceIdByQuayIdIndex(),
+      read.getStopPlaceIdByQuayIdIndex()
+    );
+  }
+}
@@ -0,0 +1,109 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.VersionedNetexEntityIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.StopPlace;
+
+class TestLatestVersionsOnly {
+
+  private static final Path STOP_PLACES = Path.of(
+    "src/test/resources/MultipleVersionsStopPlaces.xml"
+  );
+
+  @Test
+  void testLatestVersionsOnly() throws IOException {
+    NetexEntitiesIndex expected = parse(new NetexParserOptions());
+    NetexEntitiesIndex actual = parse(
+      new NetexParserOptions().withLatestVersionsOnly(true)
+    );
+
+    Assertions.assertEquals(
+      8,
+      expected.getStopPlaceIndex().getAllVersions("NSR:StopPlace:5543").size()
+    );
+    Assertions.assertEquals(
+      1,
+      actual.getStopPlaceIndex().getAllVersions("NSR:StopPlace:5543").size()
+    );
+    Assertions.assertEquals(
+      expected.getStopPlaceIndex().getLatestVersions().size(),
+      actual.getStopPlaceIndex().getLatestVersions().size()
+    );
+    Collection<StopPlace> latestVersions = expected
+      .getStopPlaceIndex()
+      .getLatestVersions();
+    for (StopPlace stopPlace : latestVersions) {
+      StopPlace latest = actual
+        .getStopPlaceIndex()
+        .getLatestVersion(stopPlace.getId());
+      Assertions.assertEquals(stopPlace.getVersion(), latest.getVersion());
+      Assertions.assertSame(
+        latest,
+        actual
+          .getStopPlaceIndex()
+          .getVersion(stopPlace.getId(), stopPlace.getVersion())
+      );
+    }
+    Assertions.assertNull(
+      actual.getStopPlaceIndex().getVersion("NSR:StopPlace:5543", "1")
+    );
+  }
+
+  @Test
+  void testOlderVersionDoesNotReplaceLaterOne() {
+    VersionedNetexEntityIndexImpl<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>(true);
+    StopPlace v2 = stopPlace("2");
+    StopPlace v1 = stopPlace("1");
+    StopPlace v3 = stopPlace("3");
+
+    index.putAll(List.of(v2));
+    index.putAll(List.of(v1));
+    Assertions.assertSame(v2, index.getLatestVersion(v2.getId()));
+
+    index.putAll(List.of(v3));
+    Assertions.assertSame(v3, index.getLatestVersion(v3.getId()));
+    Assertions.assertEquals(1, index.getAllVersions(v3.getId()).size());
+  }
+
+  @Test
+  void testRepublishedVersionReplacesExistingOne() {
+    VersionedNetexEntityIndexImpl<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>(true);
+    StopPlace published = stopPlace("2");
+    StopPlace republished = stopPlace("2");
+    StopPlace first = stopPlace("any");
+    StopPlace second = stopPlace("any");
+
+    index.putAll(List.of(published));
+    index.putAll(List.of(republished));
+    Assertions.assertSame(
+      republished,
+      index.getLatestVersion("NSR:StopPlace:1")
+    );
+
+    index.remove("NSR:StopPlace:1");
+    index.putAll(List.of(first));
+    index.putAll(List.of(second));
+    Assertions.assertSame(second, index.getLatestVersion("NSR:StopPlace:1"));
+  }
+
+  private static StopPlace stopPlace(String version) {
+    return new StopPlace().withId("NSR:StopPlace:1").withVersion(version);
+  }
+
+  private static NetexEntitiesIndex parse(NetexParserOptions options)
+    throws IOException {
+    try (InputStream stream = Files.newInputStream(STOP_PLACES)) {
+      return new NetexParser(options).parse(stream);
+    }
+  }
+}
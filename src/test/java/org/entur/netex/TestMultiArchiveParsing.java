@@ -0,0 +1,84 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.entur.netex.NetexLoadReport.ArchiveLoad;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestMultiArchiveParsing {
+
+  private static final List<Path> ARCHIVES = List.of(
+    Path.of("src/test/resources/common_file.zip"),
+    Path.of("src/test/resources/line_file.zip"),
+    Path.of("src/test/resources/data.zip")
+  );
+
+  @Test
+  void testParseAll() throws IOException {
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex expected = new NetexEntitiesIndexImpl();
+    for (Path archive : ARCHIVES) {
+      parser.parse(archive.toString(), expected);
+    }
+
+    NetexEntitiesIndex actual = new NetexEntitiesIndexImpl();
+    NetexLoadReport report = parser.parseAll(ARCHIVES, actual);
+
+    assertSameContent(expected, actual);
+    Assertions.assertEquals(
+      ARCHIVES,
+      report.getArchives().stream().map(ArchiveLoad::archive).toList()
+    );
+    for (ArchiveLoad archive : report.getArchives()) {
+      Assertions.assertEquals(1, archive.entries());
+    }
+  }
+
+  @Test
+  void testParseAllStreaming() throws IOException {
+    NetexEntitiesIndex expected = new NetexEntitiesIndexImpl();
+    new NetexParser().parseAll(ARCHIVES, expected);
+
+    NetexEntitiesIndex actual = new NetexEntitiesIndexImpl();
+    NetexLoadReport report = new NetexParser(
+      new NetexParserOptions().withEntityStreaming(true)
+    )
+      .parseAll(ARCHIVES, actual);
+
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(ARCHIVES.size(), report.getArchives().size());
+  }
+
+  private static void assertSameContent(
+    NetexEntitiesIndex expected,
+    NetexEntitiesIndex actual
+  ) {
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      actual.getPublicationTimestamp()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      actual.getOperatorIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getBlockIndex().getAll().size(),
+      actual.getBlockIndex().getAll().size()
+    );
+  }
+}
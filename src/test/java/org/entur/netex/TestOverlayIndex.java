@@ -0,0 +1,275 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.impl.OverlayNetexEntitiesIndexImpl;
+import org.entur.netex.index.impl.ReadOnlyNetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.FlexibleStopPlace;
+import org.rutebanken.netex.model.Line;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.ValidBetween;
+
+class TestOverlayIndex {
+
+  private static final String COMMON_FILE =
+    "src/test/resources/common_file.zip";
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  private static final String DATA_FILE = "src/test/resources/data.zip";
+
+  @Test
+  void testSameContentAsSingleIndex() throws IOException {
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex base = new ReadOnlyNetexEntitiesIndexImpl(
+      parser.parse(COMMON_FILE)
+    );
+    NetexEntitiesIndex overlay = parser.parse(
+      LINE_FILE,
+      new OverlayNetexEntitiesIndexImpl(base)
+    );
+    NetexEntitiesIndex expected = parser.parse(
+      LINE_FILE,
+      parser.parse(COMMON_FILE)
+    );
+
+    Assertions.assertEquals(
+      expected.getOperatorIndex().getAll().size(),
+      overlay.getOperatorIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      overlay.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getScheduledStopPointIndex().getAllVersions().keySet(),
+      overlay.getScheduledStopPointIndex().getAllVersions().keySet()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      overlay.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeAssignmentsByDayTypeIdIndex().size(),
+      overlay.getDayTypeAssignmentsByDayTypeIdIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceFrames().size(),
+      overlay.getServiceFrames().size()
+    );
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      overlay.getPublicationTimestamp()
+    );
+  }
+
+  @Test
+  void testSharedBase() throws IOException {
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex base = new ReadOnlyNetexEntitiesIndexImpl(
+      parser.parse(COMMON_FILE)
+    );
+    NetexEntitiesIndex first = parser.parse(
+      LINE_FILE,
+      new OverlayNetexEntitiesIndexImpl(base)
+    );
+    NetexEntitiesIndex second = parser.parse(
+      DATA_FILE,
+      new OverlayNetexEntitiesIndexImpl(base)
+    );
+
+    Operator operator = base.getOperatorIndex().getAll().iterator().next();
+    Assertions.assertSame(
+      operator,
+      first.getOperatorIndex().get(operator.getId())
+    );
+    Assertions.assertSame(
+      operator,
+      second.getOperatorIndex().get(operator.getId())
+    );
+
+    Line line = first.getLineIndex().getAll().iterator().next();
+    Assertions.assertNull(second.getLineIndex().get(line.getId()));
+    Assertions.assertNull(base.getLineIndex().get(line.getId()));
+  }
+
+  @Test
+  void testBaseIsNotModified() throws IOException {
+    NetexParser parser = new NetexParser();
+    NetexEntitiesIndex base = parser.parse(COMMON_FILE);
+    NetexEntitiesIndex overlay = parser.parse(
+      LINE_FILE,
+      new OverlayNetexEntitiesIndexImpl(base)
+    );
+    Operator operator = base.getOperatorIndex().getAll().iterator().next();
+
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> overlay.getOperatorIndex().remove(operator.getId())
+    );
+    Assertions.assertSame(
+      operator,
+      base.getOperatorIndex().get(operator.getId())
+    );
+
+    Line line = overlay.getLineIndex().getAll().iterator().next();
+    overlay.getLineIndex().remove(line.getId());
+    Assertions.assertNull(overlay.getLineIndex().get(line.getId()));
+    Assertions.assertTrue(base.getLineIndex().getAll().isEmpty());
+  }
+
+  @Test
+  void testRemovalExposesBaseEntity() {
+    NetexEntitiesIndex base = new NetexEntitiesIndexImpl();
+    Operator baseOperator = new Operator().withId("TST:Operator:1");
+    base.getOperatorIndex().put(baseOperator.getId(), baseOperator);
+    NetexEntitiesIndex overlay = new OverlayNetexEntitiesIndexImpl(base);
+    Operator overlayOperator = new Operator().withId("TST:Operator:1");
+
+    overlay.getOperatorIndex().put(overlayOperator.getId(), overlayOperator);
+    Assertions.assertSame(
+      overlayOperator,
+      overlay.getOperatorIndex().get("TST:Operator:1")
+    );
+    Assertions.assertEquals(1, overlay.getOperatorIndex().getAll().size());
+
+    overlay.getOperatorIndex().remove("TST:Operator:1");
+    Assertions.assertSame(
+      baseOperator,
+      overlay.getOperatorIndex().get("TST:Operator:1")
+    );
+    Assertions.assertEquals(
+      List.of(baseOperator),
+      List.copyOf(overlay.getOperatorIndex().getAll())
+    );
+  }
+
+  @Test
+  void testMultimapValuesOfBaseComeFirst() {
+    NetexEntitiesIndex base = new NetexEntitiesIndexImpl();
+    DayTypeAssignment first = new DayTypeAssignment()
+      .withId("TST:DayTypeAssignment:1");
+    DayTypeAssignment second = new DayTypeAssignment()
+      .withId("TST:DayTypeAssignment:2");
+    DayTypeAssignment third = new DayTypeAssignment()
+      .withId("TST:DayTypeAssignment:3");
+    base.getDayTypeAssignmentsByDayTypeIdIndex().put("TST:DayType:1", first);
+    base.getDayTypeAssignmentsByDayTypeIdIndex().put("TST:DayType:1", third);
+    NetexEntitiesIndex overlay = new OverlayNetexEntitiesIndexImpl(base);
+
+    overlay
+      .getDayTypeAssignmentsByDayTypeIdIndex()
+      .put("TST:DayType:1", second);
+
+    Assertions.assertEquals(
+      List.of(first, third, second),
+      List.copyOf(
+        overlay.getDayTypeAssignmentsByDayTypeIdIndex().get("TST:DayType:1")
+      )
+    );
+  }
+
+  @Test
+  void testOverlayHidesBaseVersions() {
+    NetexEntitiesIndex base = new NetexEntitiesIndexImpl();
+    StopPlace baseVersion = new StopPlace()
+      .withId("TST:StopPlace:1")
+      .withVersion("2");
+    StopPlace otherStopPlace = new StopPlace()
+      .withId("TST:StopPlace:2")
+      .withVersion("1");
+    base.getStopPlaceIndex().putAll(List.of(baseVersion, otherStopPlace));
+    NetexEntitiesIndex overlay = new OverlayNetexEntitiesIndexImpl(base);
+    StopPlace overlayVersion = new StopPlace()
+      .withId("TST:StopPlace:1")
+      .withVersion("1");
+
+    overlay.getStopPlaceIndex().putAll(List.of(overlayVersion));
+
+    LocalDateTime now = LocalDateTime.now();
+    Assertions.assertEquals(
+      List.of(otherStopPlace, overlayVersion),
+      List.copyOf(overlay.getStopPlaceIndex().getLatestVersionsValidAt(now))
+    );
+    Assertions.assertSame(
+      overlayVersion,
+      overlay.getStopPlaceIndex().getVersionValidAt("TST:StopPlace:1", now)
+    );
+  }
+
+  @Test
+  void testOverlayVersionNotValidHidesBaseVersion() {
+    LocalDateTime now = LocalDateTime.now();
+    NetexEntitiesIndex base = new NetexEntitiesIndexImpl();
+    base
+      .getStopPlaceIndex()
+      .putAll(
+        List.of(new StopPlace().withId("TST:StopPlace:1").withVersion("1"))
+      );
+    NetexEntitiesIndex overlay = new OverlayNetexEntitiesIndexImpl(base);
+    StopPlace expired = new StopPlace()
+      .withId("TST:StopPlace:1")
+      .withVersion("2")
+      .withValidBetween(
+        new ValidBetween()
+          .withFromDate(now.minusDays(2))
+          .withToDate(now.minusDays(1))
+      );
+
+    overlay.getStopPlaceIndex().putAll(List.of(expired));
+
+    Collection<StopPlace> validNow = overlay
+      .getStopPlaceIndex()
+      .getLatestVersionsValidAt(now);
+    Assertions.assertFalse(validNow.iterator().hasNext());
+    Assertions.assertEquals(0, validNow.size());
+    Assertions.assertTrue(validNow.isEmpty());
+    Assertions.assertTrue(
+      overlay
+        .getStopPlaceIndex()
+        .getLatestVersionsValidOn(now.toLocalDate())
+        .isEmpty()
+    );
+  }
+
+  @Test
+  void testFlexibleStopPlacesOfOverlayAreResolved() {
+    NetexEntitiesIndex base = new NetexEntitiesIndexImpl();
+    FlexibleStopPlace flexibleStopPlace = new FlexibleStopPlace()
+      .withId("TST:FlexibleStopPlace:1");
+    base
+      .getFlexibleStopPlaceIndex()
+      .put(flexibleStopPlace.getId(), flexibleStopPlace);
+    base
+      .getFlexibleStopPlaceIdByStopPointRefIndex()
+      .put("TST:StopPoint:1", "TST:FlexibleStopPlace:2");
+    NetexEntitiesIndex overlay = new OverlayNetexEntitiesIndexImpl(
+      new ReadOnlyNetexEntitiesIndexImpl(base)
+    );
+    Map<String, String> references =
+      overlay.getFlexibleStopPlaceIdByStopPointRefIndex();
+    references.put("TST:StopPoint:2", "TST:FlexibleStopPlace:1");
+    references.put("TST:StopPoint:3", "TST:FlexibleStopPlace:3");
+
+    NetexParser.resolveFlexibleStopPlaces(overlay);
+
+    Assertions.assertEquals(
+      Map.of(
+        "TST:StopPoint:1",
+        "TST:FlexibleStopPlace:2",
+        "TST:StopPoint:2",
+        "TST:FlexibleStopPlace:1"
+      ),
+      Map.copyOf(references)
+    );
+  }
+}
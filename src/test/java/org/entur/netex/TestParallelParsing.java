@@ -0,0 +1,173 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestParallelParsing {
+
+  @TempDir
+  static Path tempDir;
+
+  private static String dataset;
+
+  private static NetexEntitiesIndex sequentialIndex;
+
+  @BeforeAll
+  static void init() throws IOException {
+    dataset = tempDir.resolve("dataset.zip").toString();
+    try (
+      ZipOutputStream zipOutputStream = new ZipOutputStream(
+        Files.newOutputStream(Path.of(dataset))
+      )
+    ) {
+      copyEntries("src/test/resources/common_file.zip", zipOutputStream);
+      copyEntries("src/test/resources/line_file.zip", zipOutputStream);
+      copyEntries("src/test/resources/data.zip", zipOutputStream);
+    }
+    sequentialIndex = new NetexParser().parse(dataset);
+  }
+
+  @Test
+  void testParallelismLevel() throws IOException {
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions().withParallelism(4)
+    );
+    assertSameContent(sequentialIndex, parser.parse(dataset));
+  }
+
+  @Test
+  void testExecutor() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      NetexParser parser = new NetexParser(
+        new NetexParserOptions().withExecutor(executor)
+      );
+      assertSameContent(sequentialIndex, parser.parse(dataset));
+      Assertions.assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testPipelining() throws IOException {
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions().withPipelining(true)
+    );
+    assertSameContent(sequentialIndex, parser.parse(dataset));
+  }
+
+  @Test
+  void testPipeliningFailure() throws IOException {
+    Path invalid = tempDir.resolve("invalid.zip");
+    try (
+      ZipOutputStream zipOutputStream = new ZipOutputStream(
+        Files.newOutputStream(invalid)
+      )
+    ) {
+      copyEntries("src/test/resources/data.zip", zipOutputStream);
+      zipOutputStream.putNextEntry(new ZipEntry("invalid.xml"));
+      zipOutputStream.write("<PublicationDelivery>".getBytes());
+      zipOutputStream.closeEntry();
+    }
+    NetexParser parser = new NetexParser(
+      new NetexParserOptions().withPipelining(true)
+    );
+    Assertions.assertThrows(
+      RuntimeException.class,
+      () -> parser.parse(invalid.toString())
+    );
+  }
+
+  @Test
+  void testSharedParserAcrossThreads() throws Exception {
+    NetexParser.warmUp();
+    NetexParser parser = new NetexParser();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<NetexEntitiesIndex>> indexes = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        indexes.add(executor.submit(() -> parser.parse(dataset)));
+      }
+      for (Future<NetexEntitiesIndex> index : indexes) {
+        assertSameContent(sequentialIndex, index.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testInvalidParallelism() {
+    NetexParserOptions options = new NetexParserOptions();
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> options.withParallelism(0)
+    );
+  }
+
+  private static void assertSameContent(
+    NetexEntitiesIndex expected,
+    NetexEntitiesIndex actual
+  ) {
+    Assertions.assertEquals(
+      expected.getPublicationTimestamp(),
+      actual.getPublicationTimestamp()
+    );
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getDatedServiceJourneyByServiceJourneyRefIndex().size(),
+      actual.getDatedServiceJourneyByServiceJourneyRefIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getStopPlaceIndex().getLatestVersions().size(),
+      actual.getStopPlaceIndex().getLatestVersions().size()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getFlexibleStopPlaceIdByStopPointRefIndex(),
+      actual.getFlexibleStopPlaceIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getBlockIndex().getAll().size(),
+      actual.getBlockIndex().getAll().size()
+    );
+  }
+
+  private static void copyEntries(String zip, ZipOutputStream out)
+    throws IOException {
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        out.putNextEntry(new ZipEntry(entry.getName()));
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          in.transferTo(out);
+        }
+        out.closeEntry();
+      }
+    }
+  }
+}
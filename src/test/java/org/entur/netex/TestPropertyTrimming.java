@@ -0,0 +1,90 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.loader.PropertyTrimmer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.DataManagedObjectStructure;
+import org.rutebanken.netex.model.RoutePoint;
+
+class TestPropertyTrimming {
+
+  @Test
+  void testUnusedProperties() throws IOException {
+    NetexEntitiesIndex full = parseStopPlaces(new NetexParserOptions());
+    NetexEntitiesIndex trimmed = parseStopPlaces(
+      new NetexParserOptions()
+        .withTrimmedProperties(PropertyTrimmer.UNUSED_PROPERTIES)
+    );
+
+    Assertions.assertTrue(hasKeyList(allVersions(full)));
+    Assertions.assertFalse(hasKeyList(allVersions(trimmed)));
+    Assertions.assertEquals(
+      allVersions(full).size(),
+      allVersions(trimmed).size()
+    );
+  }
+
+  @Test
+  void testProjections() throws IOException {
+    String commonFile = "src/test/resources/common_file.zip";
+    NetexEntitiesIndex full = new NetexParser().parse(commonFile);
+    NetexEntitiesIndex trimmed = new NetexParser(
+      new NetexParserOptions()
+        .withTrimmedProperties(Set.of(PropertyTrimmer.PROJECTIONS))
+    )
+      .parse(commonFile);
+
+    Assertions.assertTrue(
+      full
+        .getRoutePointIndex()
+        .getAll()
+        .stream()
+        .anyMatch(routePoint -> routePoint.getProjections() != null)
+    );
+    for (RoutePoint routePoint : trimmed.getRoutePointIndex().getAll()) {
+      Assertions.assertNull(routePoint.getProjections());
+    }
+    Assertions.assertEquals(
+      full.getServiceLinkIndex().getAll().size(),
+      trimmed.getServiceLinkIndex().getAll().size()
+    );
+  }
+
+  private static NetexEntitiesIndex parseStopPlaces(NetexParserOptions options)
+    throws IOException {
+    try (
+      InputStream stream = Files.newInputStream(
+        Path.of("src/test/resources/MultipleVersionsStopPlaces.xml")
+      )
+    ) {
+      return new NetexParser(options).parse(stream);
+    }
+  }
+
+  private static Collection<DataManagedObjectStructure> allVersions(
+    NetexEntitiesIndex index
+  ) {
+    Collection<DataManagedObjectStructure> entities = new ArrayList<>();
+    index
+      .getStopPlaceIndex()
+      .getAllVersions()
+      .values()
+      .forEach(entities::addAll);
+    index.getQuayIndex().getAllVersions().values().forEach(entities::addAll);
+    return entities;
+  }
+
+  private static boolean hasKeyList(
+    Collection<DataManagedObjectStructure> entities
+  ) {
+    return entities.stream().anyMatch(entity -> entity.getKeyList() != null);
+  }
+}
@@ -0,0 +1,162 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.index.impl.NetexIdDictionary;
+import org.entur.netex.index.impl.ReadOnlyNetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestReadOnlyIndex {
+
+  @Test
+  void testLineFile() throws IOException {
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl();
+    new NetexParser().parse("src/test/resources/line_file.zip", index);
+    NetexEntitiesIndex readOnly = index.toReadOnly();
+
+    Assertions.assertEquals(
+      index.getPublicationTimestamp(),
+      readOnly.getPublicationTimestamp()
+    );
+    Assertions.assertEquals(
+      index.getServiceJourneyIndex().getAll().size(),
+      readOnly.getServiceJourneyIndex().getAll().size()
+    );
+    index
+      .getServiceJourneyIndex()
+      .getAll()
+      .forEach(journey ->
+        Assertions.assertSame(
+          journey,
+          readOnly.getServiceJourneyIndex().get(journey.getId())
+        )
+      );
+    index
+      .getDatedServiceJourneyByServiceJourneyRefIndex()
+      .keySet()
+      .forEach(id ->
+        Assertions.assertEquals(
+          List.copyOf(
+            index.getDatedServiceJourneyByServiceJourneyRefIndex().get(id)
+          ),
+          readOnly.getDatedServiceJourneyByServiceJourneyRefIndex().get(id)
+        )
+      );
+    Assertions.assertEquals(
+      index.getQuayIdByStopPointRefIndex(),
+      readOnly.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      index.getTimetableFrames().size(),
+      readOnly.getTimetableFrames().size()
+    );
+  }
+
+  @Test
+  void testVersionedEntities() throws IOException {
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl();
+    try (
+      InputStream stream = Files.newInputStream(
+        Path.of("src/test/resources/MultipleVersionsStopPlaces.xml")
+      )
+    ) {
+      new NetexParser().parse(stream, index);
+    }
+    NetexEntitiesIndex readOnly = index.toReadOnly();
+
+    Assertions.assertEquals(
+      8,
+      readOnly.getStopPlaceIndex().getAllVersions("NSR:StopPlace:5543").size()
+    );
+    Assertions.assertEquals(
+      2,
+      readOnly.getStopPlaceIndex().getLatestVersions().size()
+    );
+    Assertions.assertSame(
+      index.getStopPlaceIndex().getLatestVersion("NSR:StopPlace:5543"),
+      readOnly.getStopPlaceIndex().getLatestVersion("NSR:StopPlace:5543")
+    );
+    Assertions.assertEquals(
+      "1",
+      readOnly
+        .getStopPlaceIndex()
+        .getVersion("NSR:StopPlace:5543", "1")
+        .getVersion()
+    );
+    Assertions.assertTrue(
+      readOnly.getStopPlaceIndex().getAllVersions("unknown").isEmpty()
+    );
+  }
+
+  @Test
+  void testIntKeyedIndexes() throws IOException {
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl();
+    try (
+      InputStream stream = Files.newInputStream(
+        Path.of("src/test/resources/MultipleVersionsStopPlaces.xml")
+      )
+    ) {
+      new NetexParser().parse(stream, index);
+    }
+    ReadOnlyNetexEntitiesIndexImpl readOnly = index.toReadOnly();
+    NetexIdDictionary dictionary = readOnly.getIdDictionary();
+
+    Assertions.assertFalse(readOnly.getStopPlaceIdByQuayIdIndex().isEmpty());
+    readOnly
+      .getStopPlaceIdByQuayIdIndex()
+      .forEach((quayId, stopPlaceId) -> {
+        int quay = dictionary.indexOf(quayId);
+        int stopPlace = readOnly.getStopPlaceIdByQuayIdIntIndex().get(quay);
+        Assertions.assertSame(stopPlaceId, dictionary.idOf(stopPlace));
+        Assertions.assertSame(
+          readOnly.getQuayIndex().getLatestVersion(quayId),
+          readOnly.getQuayByIntIdIndex().get(quay)
+        );
+        Assertions.assertSame(
+          readOnly.getStopPlaceIndex().getLatestVersion(stopPlaceId),
+          readOnly.getStopPlaceByIntIdIndex().get(stopPlace)
+        );
+      });
+    Assertions.assertEquals(
+      NetexIdDictionary.NO_ID,
+      dictionary.indexOf("unknown")
+    );
+    Assertions.assertNull(
+      readOnly.getQuayByIntIdIndex().get(NetexIdDictionary.NO_ID)
+    );
+  }
+
+  @Test
+  void testModification() throws IOException {
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl();
+    new NetexParser().parse("src/test/resources/line_file.zip", index);
+    NetexEntitiesIndex readOnly = index.toReadOnly();
+
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> readOnly.getServiceJourneyIndex().remove("id")
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> readOnly.getStopPlaceIndex().remove("id")
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> readOnly.getQuayIdByStopPointRefIndex().remove("id")
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> readOnly.getDatedServiceJourneyByServiceJourneyRefIndex().clear()
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> readOnly.setPublicationTimestamp(null)
+    );
+  }
+}
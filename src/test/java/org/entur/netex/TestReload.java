@@ -0,0 +1,236 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.IndexProvenance;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rutebanken.netex.model.DayTypeAssignment;
+import org.rutebanken.netex.model.Operator;
+import org.rutebanken.netex.model.ServiceJourney;
+
+class TestReload {
+
+  private static final String COMMON_FILE =
+    "src/test/resources/common_file.zip";
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  private static final String DATA_FILE = "src/test/resources/data.zip";
+
+  private static final String LINE_ENTRY =
+    "GOA_GOA-Line-L50_50_Sortoget-Region.xml";
+
+  private static final String OPERATOR_ID = "TST:Operator:1";
+
+  private static final String DAY_TYPE_ID = "TST:DayType:1";
+
+  private static final String STOP_POINT_ID = "TST:ScheduledStopPoint:1";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testProvenance() throws IOException {
+    IndexProvenance provenance = new IndexProvenance();
+    NetexEntitiesIndex index = new NetexParser()
+      .parse(
+        writeArchive("dataset.zip", COMMON_FILE, LINE_FILE).toString(),
+        new NetexEntitiesIndexImpl(),
+        provenance
+      );
+
+    Assertions.assertEquals(
+      Set.of("_AVI_shared_data.xml", LINE_ENTRY),
+      provenance.getSources()
+    );
+    ServiceJourney serviceJourney = index
+      .getServiceJourneyIndex()
+      .getAll()
+      .iterator()
+      .next();
+    Assertions.assertEquals(
+      LINE_ENTRY,
+      provenance.getSource(serviceJourney.getId())
+    );
+    Assertions.assertNull(provenance.getSource("unknown"));
+  }
+
+  @Test
+  void testReload() throws IOException {
+    NetexParser parser = new NetexParser();
+    IndexProvenance provenance = new IndexProvenance();
+    NetexEntitiesIndex index = parser.parse(
+      writeArchive("dataset.zip", COMMON_FILE, LINE_FILE).toString(),
+      new NetexEntitiesIndexImpl(),
+      provenance
+    );
+    try (
+      ZipFile zipFile = new ZipFile(DATA_FILE);
+      InputStream stream = zipFile.getInputStream(zipFile.getEntry("data.xml"))
+    ) {
+      parser.reload(LINE_ENTRY, stream, index, provenance);
+    }
+
+    NetexEntitiesIndex expected = parser.parse(
+      writeArchive("expected.zip", COMMON_FILE, DATA_FILE).toString()
+    );
+    assertSameContent(expected, index);
+  }
+
+  @Test
+  void testRemove() throws IOException {
+    NetexParser parser = new NetexParser();
+    IndexProvenance provenance = new IndexProvenance();
+    NetexEntitiesIndex index = parser.parse(
+      writeArchive("dataset.zip", COMMON_FILE, LINE_FILE).toString(),
+      new NetexEntitiesIndexImpl(),
+      provenance
+    );
+
+    Assertions.assertTrue(provenance.remove(LINE_ENTRY, index));
+    Assertions.assertFalse(provenance.remove(LINE_ENTRY, index));
+
+    assertSameContent(parser.parse(COMMON_FILE), index);
+    Assertions.assertEquals(
+      Set.of("_AVI_shared_data.xml"),
+      provenance.getSources()
+    );
+  }
+
+  @Test
+  void testEntityDefinedInTwoSources() {
+    IndexProvenance provenance = new IndexProvenance();
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    Operator first = operator();
+    Operator second = operator();
+    DayTypeAssignment firstAssignment = new DayTypeAssignment()
+      .withId("TST:DayTypeAssignment:1");
+    DayTypeAssignment secondAssignment = new DayTypeAssignment()
+      .withId("TST:DayTypeAssignment:2");
+    provenance.replace("a", source(first, firstAssignment, "1"), index);
+    provenance.replace("b", source(second, secondAssignment, "2"), index);
+    Assertions.assertSame(second, index.getOperatorIndex().get(OPERATOR_ID));
+    Assertions.assertEquals("b", provenance.getSource(OPERATOR_ID));
+
+    // A reloaded source keeps its precedence
+    Operator reloaded = operator();
+    provenance.replace("a", source(reloaded, firstAssignment, "1"), index);
+    Assertions.assertSame(second, index.getOperatorIndex().get(OPERATOR_ID));
+    Assertions.assertEquals(
+      "TST:Quay:2",
+      index.getQuayIdByStopPointRefIndex().get(STOP_POINT_ID)
+    );
+    Assertions.assertEquals(
+      List.of(firstAssignment, secondAssignment),
+      List.copyOf(
+        index.getDayTypeAssignmentsByDayTypeIdIndex().get(DAY_TYPE_ID)
+      )
+    );
+
+    // The entity of the first source is back once the second one drops it
+    provenance.replace("b", new NetexEntitiesIndexImpl(), index);
+    Assertions.assertSame(reloaded, index.getOperatorIndex().get(OPERATOR_ID));
+    Assertions.assertEquals("a", provenance.getSource(OPERATOR_ID));
+    Assertions.assertEquals(
+      "TST:Quay:1",
+      index.getQuayIdByStopPointRefIndex().get(STOP_POINT_ID)
+    );
+
+    provenance.remove("a", index);
+    Assertions.assertNull(index.getOperatorIndex().get(OPERATOR_ID));
+    Assertions.assertNull(provenance.getSource(OPERATOR_ID));
+    Assertions.assertTrue(index.getQuayIdByStopPointRefIndex().isEmpty());
+  }
+
+  private static Operator operator() {
+    return new Operator().withId(OPERATOR_ID);
+  }
+
+  private static NetexEntitiesIndex source(
+    Operator operator,
+    DayTypeAssignment dayTypeAssignment,
+    String quay
+  ) {
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    index.getOperatorIndex().put(operator.getId(), operator);
+    index
+      .getDayTypeAssignmentsByDayTypeIdIndex()
+      .put(DAY_TYPE_ID, dayTypeAssignment);
+    index
+      .getQuayIdByStopPointRefIndex()
+      .put(STOP_POINT_ID, "TST:Quay:" + quay);
+    return index;
+  }
+
+  private static void assertSameContent(
+    NetexEntitiesIndex expected,
+    NetexEntitiesIndex actual
+  ) {
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getLineIndex().getAll().size(),
+      actual.getLineIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getScheduledStopPointIndex().getAllVersions().keySet(),
+      actual.getScheduledStopPointIndex().getAllVersions().keySet()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+    Assertions.assertEquals(
+      expected.getDayTypeAssignmentsByDayTypeIdIndex().size(),
+      actual.getDayTypeAssignmentsByDayTypeIdIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getPassengerStopAssignmentsByStopPointRefIndex().size(),
+      actual.getPassengerStopAssignmentsByStopPointRefIndex().size()
+    );
+    Assertions.assertEquals(
+      expected.getTimetableFrames().size(),
+      actual.getTimetableFrames().size()
+    );
+    Assertions.assertEquals(
+      expected.getServiceFrames().size(),
+      actual.getServiceFrames().size()
+    );
+  }
+
+  private Path writeArchive(String name, String... zips) throws IOException {
+    Path archive = tempDir.resolve(name);
+    try (
+      ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))
+    ) {
+      for (String zip : zips) {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+          Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            out.putNextEntry(new ZipEntry(entry.getName()));
+            try (InputStream in = zipFile.getInputStream(entry)) {
+              in.transferTo(out);
+            }
+            out.closeEntry();
+          }
+        }
+      }
+    }
+    return archive;
+  }
+}
@@ -0,0 +1,85 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestSkippedElements {
+
+  private static final String DOCUMENT =
+    """
+    <?xml version="1.0" encoding="UTF-8"?>
+    <PublicationDelivery xmlns="http://www.netex.org.uk/netex" version="1">
+      <PublicationTimestamp>2021-05-11T10:58:40</PublicationTimestamp>
+      <ParticipantRef>NSR</ParticipantRef>
+      <dataObjects>
+        <GeneralFrame version="1" id="NSR:GeneralFrame:1"/>
+        <SiteFrame version="1" id="NSR:SiteFrame:1">
+          <stopPlaces>
+            <StopPlace version="1" id="NSR:StopPlace:1">
+              <Name>Stop</Name>
+            </StopPlace>
+          </stopPlaces>
+        </SiteFrame>
+        <GeneralFrame version="1" id="NSR:GeneralFrame:2"/>
+      </dataObjects>
+    </PublicationDelivery>
+    """;
+
+  @TempDir
+  static Path tempDir;
+
+  private static Path archive;
+
+  @BeforeAll
+  static void init() throws IOException {
+    archive = tempDir.resolve("skipped.zip");
+    try (
+      ZipOutputStream zipOutputStream = new ZipOutputStream(
+        Files.newOutputStream(archive)
+      )
+    ) {
+      zipOutputStream.putNextEntry(new ZipEntry("skipped.xml"));
+      zipOutputStream.write(DOCUMENT.strip().getBytes());
+      zipOutputStream.closeEntry();
+    }
+  }
+
+  @Test
+  void testSkippedElementsAreReported() throws IOException {
+    assertSkippedElements(new NetexParserOptions());
+  }
+
+  @Test
+  void testSkippedElementsAreReportedWithEntityStreaming()
+    throws IOException {
+    assertSkippedElements(new NetexParserOptions().withEntityStreaming(true));
+  }
+
+  private static void assertSkippedElements(NetexParserOptions options)
+    throws IOException {
+    NetexEntitiesIndex index = new NetexEntitiesIndexImpl();
+    NetexLoadReport report = new NetexParser(
+      options.withSkippedElementsSummary(false)
+    )
+      .parseAll(List.of(archive), index);
+
+    Assertions.assertEquals(
+      Map.of("GeneralFrame", 2L),
+      report.getSkippedElements()
+    );
+    Assertions.assertNotNull(
+      index.getStopPlaceIndex().getLatestVersion("NSR:StopPlace:1")
+    );
+  }
+}
@@ -0,0 +1,79 @@
+package org.entur.netex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.entur.netex.index.api.NetexEntitiesIndex;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.entur.netex.loader.StringDeduplicator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.DayType;
+import org.rutebanken.netex.model.DayTypeAssignment;
+
+class TestStringDeduplication {
+
+  private static final String LINE_FILE = "src/test/resources/line_file.zip";
+
+  @Test
+  void testReferencesShareTheIdOfTheEntity() throws IOException {
+    NetexEntitiesIndex index = new NetexParser(
+      new NetexParserOptions().withStringDeduplication(true)
+    )
+      .parse(LINE_FILE);
+
+    Assertions.assertFalse(
+      index.getDayTypeAssignmentsByDayTypeIdIndex().isEmpty()
+    );
+    for (DayTypeAssignment assignment : index
+      .getDayTypeAssignmentsByDayTypeIdIndex()
+      .values()) {
+      String ref = assignment.getDayTypeRef().getValue().getRef();
+      DayType dayType = index.getDayTypeIndex().get(ref);
+      if (dayType != null) {
+        Assertions.assertSame(dayType.getId(), ref);
+      }
+    }
+  }
+
+  @Test
+  void testSameContent() throws IOException {
+    NetexEntitiesIndex expected = new NetexParser().parse(LINE_FILE);
+    NetexEntitiesIndex actual = new NetexParser(
+      new NetexParserOptions()
+        .withStringDeduplication(true)
+        .withParallelism(2)
+    )
+      .parse(LINE_FILE);
+
+    Assertions.assertEquals(
+      expected.getServiceJourneyIndex().getAll().size(),
+      actual.getServiceJourneyIndex().getAll().size()
+    );
+    Assertions.assertEquals(
+      expected.getQuayIdByStopPointRefIndex(),
+      actual.getQuayIdByStopPointRefIndex()
+    );
+  }
+
+  @Test
+  void testReport() throws IOException {
+    List<Path> archives = List.of(Path.of(LINE_FILE));
+    NetexLoadReport report = new NetexParser(
+      new NetexParserOptions().withStringDeduplication(true)
+    )
+      .parseAll(archives, new NetexEntitiesIndexImpl());
+
+    StringDeduplicator.Statistics statistics = report.getStringDeduplication();
+    Assertions.assertNotNull(statistics);
+    Assertions.assertTrue(statistics.duplicates() > 0);
+    Assertions.assertTrue(statistics.strings() > statistics.duplicates());
+    Assertions.assertTrue(statistics.savedBytes() > 0);
+
+    Assertions.assertNull(
+      new NetexParser()
+        .parseAll(archives, new NetexEntitiesIndexImpl())
+        .getStringDeduplication()
+    );
+  }
+}
@@ -0,0 +1,94 @@
+package org.entur.netex.index.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CompactImmutableMapTest {
+
+  @Test
+  void testGet() {
+    Map<String, Integer> source = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      source.put("NSR:Quay:" + i, i);
+    }
+    Map<String, Integer> map = CompactImmutableMap.copyOf(source);
+
+    Assertions.assertEquals(source, map);
+    Assertions.assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i, map.get("NSR:Quay:" + i));
+      Assertions.assertTrue(map.containsKey("NSR:Quay:" + i));
+    }
+    Assertions.assertNull(map.get("NSR:Quay:1000"));
+    Assertions.assertFalse(map.containsKey("NSR:Quay:1000"));
+    Assertions.assertNull(map.get(null));
+  }
+
+  @Test
+  void testEmpty() {
+    Map<String, Integer> map = CompactImmutableMap.copyOf(Map.of());
+
+    Assertions.assertTrue(map.isEmpty());
+    Assertions.assertNull(map.get("NSR:Quay:1"));
+  }
+
+  @Test
+  void testIterationOrder() {
+    Map<String, Integer> source = new LinkedHashMap<>();
+    source.put("c", 3);
+    source.put("a", 1);
+    source.put("b", 2);
+    Map<String, Integer> map = CompactImmutableMap.copyOf(source);
+
+    Assertions.assertEquals(List.of("c", "a", "b"), List.copyOf(map.keySet()));
+    Assertions.assertEquals(List.of(3, 1, 2), List.copyOf(map.values()));
+    Assertions.assertEquals(
+      List.copyOf(source.entrySet()),
+      List.copyOf(map.entrySet())
+    );
+    Assertions.assertTrue(map.keySet().contains("a"));
+    Assertions.assertFalse(map.keySet().contains("d"));
+  }
+
+  @Test
+  void testRejectsDuplicateKeys() {
+    // Distinct keys for the source map, but equal lists once copied
+    Map<Object, Integer> source = new LinkedHashMap<>();
+    List<String> first = new ArrayList<>(List.of("a"));
+    List<String> second = new ArrayList<>(List.of("b"));
+    source.put(first, 1);
+    source.put(second, 2);
+    second.set(0, "a");
+
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> CompactImmutableMap.copyOf(source)
+    );
+  }
+
+  @Test
+  void testReadOnly() {
+    Map<String, Integer> map = CompactImmutableMap.copyOf(Map.of("a", 1));
+
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> map.put("b", 2)
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> map.remove("a")
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> map.keySet().remove("a")
+    );
+    Assertions.assertThrows(
+      UnsupportedOperationException.class,
+      () -> map.values().clear()
+    );
+  }
+}
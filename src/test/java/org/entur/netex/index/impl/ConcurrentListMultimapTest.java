@@ -0,0 +1,121 @@
+package org.entur.netex.index.impl;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentListMultimapTest {
+
+  @Test
+  void testSameContentAsArrayListMultimap() {
+    ListMultimap<String, Integer> expected = ArrayListMultimap.create();
+    ListMultimap<String, Integer> actual = ConcurrentListMultimap.create();
+    for (ListMultimap<String, Integer> multimap : List.of(expected, actual)) {
+      multimap.put("a", 1);
+      multimap.putAll("a", List.of(2, 3));
+      multimap.put("b", 4);
+      multimap.remove("a", 2);
+      multimap.get("c").add(5);
+      multimap.get("a").add(0, 6);
+      multimap.replaceValues("b", List.of(7, 8));
+    }
+
+    Assertions.assertEquals(expected, actual);
+    Assertions.assertEquals(actual, expected);
+    Assertions.assertEquals(expected.hashCode(), actual.hashCode());
+    Assertions.assertEquals(expected.size(), actual.size());
+    Assertions.assertEquals(List.of(6, 1, 3), actual.get("a"));
+    Assertions.assertEquals(expected.keys(), actual.keys());
+  }
+
+  @Test
+  void testEmptyKeysAreRemoved() {
+    ListMultimap<String, Integer> multimap = ConcurrentListMultimap.create();
+    multimap.put("a", 1);
+    List<Integer> values = multimap.get("a");
+    values.remove(0);
+
+    Assertions.assertTrue(multimap.isEmpty());
+    Assertions.assertFalse(multimap.containsKey("a"));
+    Assertions.assertTrue(values.isEmpty());
+    Assertions.assertEquals(List.of(), multimap.removeAll("a"));
+  }
+
+  @Test
+  void testRemoveEach() {
+    ConcurrentListMultimap<String, Integer> multimap =
+      ConcurrentListMultimap.create();
+    multimap.putAll("a", List.of(1, 2, 1, 3, 2));
+
+    Assertions.assertTrue(multimap.removeEach("a", List.of(1, 2, 4)));
+    Assertions.assertEquals(List.of(1, 3, 2), multimap.get("a"));
+    Assertions.assertFalse(multimap.removeEach("a", List.of(4)));
+    Assertions.assertTrue(multimap.removeEach("a", List.of(2, 3, 1)));
+    Assertions.assertFalse(multimap.containsKey("a"));
+  }
+
+  @Test
+  void testIteratorRemoval() {
+    ListMultimap<String, Integer> multimap = ConcurrentListMultimap.create();
+    multimap.putAll("a", List.of(1, 2, 3));
+    multimap.putAll("b", List.of(4, 5));
+
+    multimap.values().removeIf(value -> value == 2);
+    multimap.entries().removeIf(entry -> entry.getValue() == 4);
+    multimap.asMap().get("b").remove(5);
+
+    Assertions.assertEquals(List.of(1, 3), multimap.get("a"));
+    Assertions.assertFalse(multimap.containsKey("b"));
+  }
+
+  @Test
+  void testSnapshotIsNotModifiedByAppends() {
+    ListMultimap<String, Integer> multimap = ConcurrentListMultimap.create();
+    multimap.putAll("a", List.of(1, 2, 3));
+    List<Integer> snapshot = List.copyOf(multimap.get("a"));
+    var iterator = multimap.get("a").iterator();
+    List<Integer> removed = multimap.removeAll("a");
+    for (int i = 0; i < 100; i++) {
+      multimap.put("a", i);
+    }
+
+    Assertions.assertEquals(snapshot, removed);
+    Assertions.assertEquals(1, iterator.next());
+    Assertions.assertEquals(100, multimap.get("a").size());
+  }
+
+  @Test
+  void testConcurrentPutAll() throws Exception {
+    ListMultimap<Integer, Integer> multimap = ConcurrentListMultimap.create();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        int value = thread;
+        futures.add(
+          executor.submit(() -> {
+            for (int i = 0; i < 10_000; i++) {
+              ListMultimap<Integer, Integer> frame = ArrayListMultimap.create();
+              frame.put(i % 10, value);
+              multimap.putAll(frame);
+            }
+          })
+        );
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Assertions.assertEquals(40_000, multimap.size());
+    Assertions.assertEquals(4_000, multimap.get(0).size());
+  }
+}
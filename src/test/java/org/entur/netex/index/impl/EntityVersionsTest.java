@@ -0,0 +1,44 @@
+package org.entur.netex.index.impl;
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.StopPlace;
+
+class EntityVersionsTest {
+
+  @Test
+  void testSortedByVersion() {
+    StopPlace v2 = stopPlace("2");
+    StopPlace v10 = stopPlace("10");
+    StopPlace v1 = stopPlace("1");
+    EntityVersions<StopPlace> versions = EntityVersions.of(
+      List.of(v2, v10, v1)
+    );
+
+    Assertions.assertEquals(List.of(v1, v2, v10), versions.asList());
+    Assertions.assertSame(v10, versions.latest());
+    Assertions.assertSame(v2, versions.get("2"));
+    Assertions.assertNull(versions.get("3"));
+    Assertions.assertNull(versions.get(null));
+  }
+
+  @Test
+  void testVersionsThatAreNotNumbers() {
+    StopPlace any = stopPlace("any");
+    StopPlace v1 = stopPlace("1");
+    EntityVersions<StopPlace> versions = EntityVersions.of(List.of(v1, any));
+
+    Assertions.assertSame(v1, versions.latest());
+    Assertions.assertSame(any, versions.get("any"));
+  }
+
+  @Test
+  void testNoVersion() {
+    Assertions.assertNull(EntityVersions.of(List.<StopPlace>of()));
+  }
+
+  private static StopPlace stopPlace(String version) {
+    return new StopPlace().withId("NSR:StopPlace:1").withVersion(version);
+  }
+}
@@ -0,0 +1,42 @@
+package org.entur.netex.index.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class NetexIdDictionaryTest {
+
+  @Test
+  void testDenseInts() {
+    NetexIdDictionary dictionary = new NetexIdDictionary();
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i, dictionary.add("NSR:Quay:" + i));
+    }
+    dictionary.trimToSize();
+
+    Assertions.assertEquals(1000, dictionary.size());
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(i, dictionary.indexOf("NSR:Quay:" + i));
+      Assertions.assertEquals("NSR:Quay:" + i, dictionary.idOf(i));
+    }
+    Assertions.assertEquals(
+      NetexIdDictionary.NO_ID,
+      dictionary.indexOf("NSR:Quay:1000")
+    );
+    Assertions.assertEquals(NetexIdDictionary.NO_ID, dictionary.indexOf(null));
+    Assertions.assertThrows(
+      IndexOutOfBoundsException.class,
+      () -> dictionary.idOf(1000)
+    );
+  }
+
+  @Test
+  void testCanonicalInstance() {
+    NetexIdDictionary dictionary = new NetexIdDictionary();
+    String id = "NSR:StopPlace:1";
+
+    Assertions.assertSame(id, dictionary.canonical(id));
+    Assertions.assertSame(id, dictionary.canonical(new String(id)));
+    Assertions.assertEquals(1, dictionary.size());
+    Assertions.assertNull(dictionary.canonical(null));
+  }
+}
@@ -0,0 +1,220 @@
+package org.entur.netex.index.impl;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.entur.netex.index.api.VersionedNetexEntityIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.StopPlace;
+import org.rutebanken.netex.model.ValidBetween;
+
+class ValidityIndexTest {
+
+  private static final LocalDateTime JANUARY = LocalDateTime.of(
+    2021,
+    1,
+    1,
+    0,
+    0
+  );
+
+  private static final LocalDateTime FEBRUARY = JANUARY.plusMonths(1);
+
+  private static final LocalDateTime MARCH = JANUARY.plusMonths(2);
+
+  @Test
+  void testVersionValidAt() {
+    StopPlace v1 = stopPlace("1", "1", JANUARY, FEBRUARY);
+    StopPlace v2 = stopPlace("1", "2", FEBRUARY.plusSeconds(1), null);
+    VersionedNetexEntityIndex<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>();
+    index.putAll(List.of(v2, v1));
+
+    Assertions.assertNull(
+      index.getVersionValidAt("NSR:StopPlace:1", JANUARY.minusDays(1))
+    );
+    Assertions.assertSame(
+      v1,
+      index.getVersionValidAt("NSR:StopPlace:1", FEBRUARY)
+    );
+    Assertions.assertSame(
+      v2,
+      index.getVersionValidAt("NSR:StopPlace:1", MARCH)
+    );
+    Assertions.assertNull(index.getVersionValidAt("NSR:StopPlace:2", MARCH));
+  }
+
+  @Test
+  void testHighestVersionWinsOnOverlap() {
+    StopPlace v1 = stopPlace("1", "1", null, null);
+    StopPlace v2 = stopPlace("1", "2", FEBRUARY, MARCH);
+    VersionedNetexEntityIndex<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>();
+    index.putAll(List.of(v1, v2));
+
+    Assertions.assertSame(
+      v1,
+      index.getVersionValidAt("NSR:StopPlace:1", JANUARY)
+    );
+    Assertions.assertSame(
+      v2,
+      index.getVersionValidAt("NSR:StopPlace:1", MARCH)
+    );
+    Assertions.assertEquals(
+      List.of(v2),
+      List.copyOf(index.getLatestVersionsValidAt(MARCH))
+    );
+  }
+
+  @Test
+  void testLatestVersionsValidAt() {
+    StopPlace first = stopPlace("1", "1", JANUARY, FEBRUARY);
+    StopPlace second = stopPlace("2", "1", FEBRUARY, MARCH);
+    StopPlace third = stopPlace("3", "1", JANUARY, null);
+    VersionedNetexEntityIndex<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>();
+    index.putAll(List.of(first, second, third));
+
+    Assertions.assertEquals(
+      Set.of(first, third),
+      Set.copyOf(index.getLatestVersionsValidAt(JANUARY))
+    );
+    Assertions.assertEquals(
+      Set.of(first, second, third),
+      Set.copyOf(index.getLatestVersionsValidAt(FEBRUARY))
+    );
+    Assertions.assertTrue(
+      index.getLatestVersionsValidAt(JANUARY.minusDays(1)).isEmpty()
+    );
+
+    index.remove("NSR:StopPlace:3");
+
+    Assertions.assertEquals(
+      Set.of(second),
+      Set.copyOf(index.getLatestVersionsValidAt(MARCH))
+    );
+  }
+
+  @Test
+  void testLatestVersionsValidOn() {
+    StopPlace first = stopPlace("1", "1", JANUARY, FEBRUARY.minusHours(12));
+    StopPlace second = stopPlace("1", "2", FEBRUARY.plusHours(12), null);
+    StopPlace third = stopPlace("2", "1", FEBRUARY.plusDays(1), null);
+    VersionedNetexEntityIndex<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>();
+    index.putAll(List.of(first, second, third));
+
+    Assertions.assertEquals(
+      Set.of(first),
+      Set.copyOf(index.getLatestVersionsValidOn(JANUARY.toLocalDate()))
+    );
+    Assertions.assertEquals(
+      Set.of(second),
+      Set.copyOf(index.getLatestVersionsValidOn(FEBRUARY.toLocalDate()))
+    );
+    Assertions.assertTrue(index.getLatestVersionsValidAt(FEBRUARY).isEmpty());
+    Assertions.assertEquals(
+      Set.of(second, third),
+      Set.copyOf(
+        index.getLatestVersionsValidOn(FEBRUARY.plusDays(1).toLocalDate())
+      )
+    );
+  }
+
+  @Test
+  void testDefaultMethodsMatchIndex() {
+    StopPlace first = stopPlace("1", "1", JANUARY, FEBRUARY.minusHours(12));
+    StopPlace second = stopPlace("1", "2", FEBRUARY.plusHours(12), null);
+    StopPlace third = stopPlace("2", "1", null, null);
+    VersionedNetexEntityIndex<StopPlace> index =
+      new VersionedNetexEntityIndexImpl<>();
+    index.putAll(List.of(first, second, third));
+    VersionedNetexEntityIndex<StopPlace> scanning = new ScanningIndex<>(index);
+
+    for (LocalDateTime time : List.of(JANUARY, FEBRUARY, MARCH)) {
+      Assertions.assertEquals(
+        index.getVersionValidAt("NSR:StopPlace:1", time),
+        scanning.getVersionValidAt("NSR:StopPlace:1", time)
+      );
+      Assertions.assertEquals(
+        Set.copyOf(index.getLatestVersionsValidAt(time)),
+        Set.copyOf(scanning.getLatestVersionsValidAt(time))
+      );
+      Assertions.assertEquals(
+        Set.copyOf(index.getLatestVersionsValidOn(time.toLocalDate())),
+        Set.copyOf(scanning.getLatestVersionsValidOn(time.toLocalDate()))
+      );
+    }
+  }
+
+  private static StopPlace stopPlace(
+    String id,
+    String version,
+    LocalDateTime from,
+    LocalDateTime to
+  ) {
+    StopPlace stopPlace = new StopPlace()
+      .withId("NSR:StopPlace:" + id)
+      .withVersion(version);
+    if (from != null || to != null) {
+      stopPlace.withValidBetween(
+        new ValidBetween().withFromDate(from).withToDate(to)
+      );
+    }
+    return stopPlace;
+  }
+
+  /** Index relying on the default methods of the interface for the time lookups. */
+  private static class ScanningIndex<V extends StopPlace>
+    implements VersionedNetexEntityIndex<V> {
+
+    private final VersionedNetexEntityIndex<V> delegate;
+
+    private ScanningIndex(VersionedNetexEntityIndex<V> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public V getLatestVersion(String id) {
+      return delegate.getLatestVersion(id);
+    }
+
+    @Override
+    public V getVersion(String id, String version) {
+      return delegate.getVersion(id, version);
+    }
+
+    @Override
+    public Collection<V> getLatestVersions() {
+      return delegate.getLatestVersions();
+    }
+
+    @Override
+    public Collection<V> getAllVersions(String id) {
+      return delegate.getAllVersions(id);
+    }
+
+    @Override
+    public Map<String, Collection<V>> getAllVersions() {
+      return delegate.getAllVersions();
+    }
+
+    @Override
+    public void put(String id, Collection<V> entities) {
+      delegate.put(id, entities);
+    }
+
+    @Override
+    public void putAll(Collection<V> entities) {
+      delegate.putAll(entities);
+    }
+
+    @Override
+    public void remove(String id) {
+      delegate.remove(id);
+    }
+  }
+}
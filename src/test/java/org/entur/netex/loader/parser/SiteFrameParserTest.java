@@ -0,0 +1,86 @@
+package org.entur.netex.loader.parser;
+
+import java.util.List;
+import org.entur.netex.index.impl.NetexEntitiesIndexImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rutebanken.netex.model.ObjectFactory;
+import org.rutebanken.netex.model.Quay;
+import org.rutebanken.netex.model.Quays_RelStructure;
+import org.rutebanken.netex.model.StopPlace;
+
+class SiteFrameParserTest {
+
+  private static final ObjectFactory FACTORY = new ObjectFactory();
+
+  private static final String QUAY_ID = "NSR:Quay:1";
+
+  @Test
+  void testLatestVersionsOnly() {
+    SiteFrameParser parser = new SiteFrameParser(true);
+    Quay quay2 = quay("2");
+    Quay quay1 = quay("1");
+    StopPlace stopPlace2 = stopPlace("NSR:StopPlace:2", "2", quay2);
+    StopPlace stopPlace1 = stopPlace("NSR:StopPlace:1", "1", quay1);
+    StopPlace stopPlace2Older = stopPlace("NSR:StopPlace:2", "1");
+    parser.parseStopPlace(stopPlace2);
+    parser.parseStopPlace(stopPlace1);
+    parser.parseStopPlace(stopPlace2Older);
+
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl(true);
+    parser.setResultOnIndex(index);
+
+    Assertions.assertEquals(
+      List.of(stopPlace2),
+      index.getStopPlaceIndex().getAllVersions("NSR:StopPlace:2")
+    );
+    Assertions.assertEquals(
+      List.of(quay2),
+      index.getQuayIndex().getAllVersions(QUAY_ID)
+    );
+    Assertions.assertEquals(
+      "NSR:StopPlace:2",
+      index.getStopPlaceIdByQuayIdIndex().get(QUAY_ID)
+    );
+  }
+
+  @Test
+  void testAllVersions() {
+    SiteFrameParser parser = new SiteFrameParser();
+    Quay quay2 = quay("2");
+    Quay quay1 = quay("1");
+    parser.parseStopPlace(stopPlace("NSR:StopPlace:2", "2", quay2));
+    parser.parseStopPlace(stopPlace("NSR:StopPlace:1", "1", quay1));
+
+    NetexEntitiesIndexImpl index = new NetexEntitiesIndexImpl();
+    parser.setResultOnIndex(index);
+
+    Assertions.assertEquals(
+      List.of(quay1, quay2),
+      index.getQuayIndex().getAllVersions(QUAY_ID)
+    );
+    Assertions.assertEquals(
+      "NSR:StopPlace:2",
+      index.getStopPlaceIdByQuayIdIndex().get(QUAY_ID)
+    );
+  }
+
+  private static Quay quay(String version) {
+    return new Quay().withId(QUAY_ID).withVersion(version);
+  }
+
+  private static StopPlace stopPlace(
+    String id,
+    String version,
+    Quay... quays
+  ) {
+    Quays_RelStructure quaysStructure = new Quays_RelStructure();
+    for (Quay quay : quays) {
+      quaysStructure.getQuayRefOrQuay().add(FACTORY.createQuay(quay));
+    }
+    return new StopPlace()
+      .withId(id)
+      .withVersion(version)
+      .withQuays(quaysStructure);
+  }
+}